@@ -0,0 +1,24 @@
+package com.hospital.dashboard.cache;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA entity listener bumping the {@link DataVersion} on every write to an entity that feeds the
+ * dashboard, the forecast or the chat context (which counts patients and medications). Instantiated by
+ * Hibernate through the Spring bean container.
+ */
+public class DataChangeListener {
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        dataVersion.bumpOnCommit();
+    }
+}
@@ -0,0 +1,41 @@
+package com.hospital.dashboard.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global counter of writes to the cost data. Every cached result remembers the version it was computed
+ * at and is only served while the counter has not moved.
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public long bump() {
+        return version.incrementAndGet();
+    }
+
+    /**
+     * Bumps now and, inside a transaction, once more after it completes: a read between the flush and
+     * the commit still sees the old rows and must not be cached under the new version.
+     */
+    public void bumpOnCommit() {
+        bump();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bump();
+                }
+            });
+        }
+    }
+}
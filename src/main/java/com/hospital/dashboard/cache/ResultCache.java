@@ -0,0 +1,188 @@
+package com.hospital.dashboard.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache of computed results keyed by endpoint and parameters. An entry is fresh while the
+ * {@link DataVersion} it was computed at is still current; any write to the cost data makes every
+ * entry stale. The cache holds at most {@code hospifin.cache.max-entries} results, least recently used
+ * first out. With {@code hospifin.cache.serve-stale} enabled, a stale entry is returned immediately and
+ * recomputed in the background. Concurrent misses on the same key share a single computation.
+ *
+ * <p>Every caller gets the same result object, so maps and lists in it are handed out as read-only
+ * copies, all the way down.
+ */
+@Component
+public class ResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    private final DataVersion dataVersion;
+    private final int maxEntries;
+    private final boolean serveStale;
+
+    private final Map<String, CachedResult> entries;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final SingleFlight<String, Object> loads = new SingleFlight<>();
+    private final ExecutorService refreshExecutor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResultCache(DataVersion dataVersion,
+            @Value("${hospifin.cache.max-entries:100}") int maxEntries,
+            @Value("${hospifin.cache.serve-stale:false}") boolean serveStale) {
+        this.dataVersion = dataVersion;
+        this.maxEntries = maxEntries;
+        this.serveStale = serveStale;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                if (size() > ResultCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "result-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> T get(String key, Supplier<T> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * Same as {@link #get(String, Supplier)}, but a freshly computed value is only stored when
+     * {@code cacheable} accepts it (e.g. a partial result).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader, Predicate<? super T> cacheable) {
+        long version = dataVersion.current();
+        CachedResult entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null && entry.version == version) {
+            hits.incrementAndGet();
+            return (T) entry.value;
+        }
+        if (entry != null && serveStale) {
+            staleHits.incrementAndGet();
+            refreshInBackground(key, loader, cacheable);
+            return (T) entry.value;
+        }
+
+        misses.incrementAndGet();
+        return load(key, loader, cacheable);
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get() + staleHits.get();
+        long total = hitCount + misses.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("serveStale", serveStale);
+        stats.put("dataVersion", dataVersion.current());
+        stats.put("hits", hits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("sharedLoads", loads.getSharedCount());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Supplier<T> loader, Predicate<? super T> cacheable) {
+        return (T) loads.execute(key, () -> {
+            // Read the version before computing: a write landing during the computation leaves the entry stale
+            long version = dataVersion.current();
+            T value = (T) readOnly(loader.get());
+            if (cacheable.test(value)) {
+                synchronized (entries) {
+                    entries.put(key, new CachedResult(version, value));
+                }
+            }
+            return value;
+        });
+    }
+
+    private <T> void refreshInBackground(String key, Supplier<T> loader, Predicate<? super T> cacheable) {
+        if (!refreshing.add(key))
+            return; // Already being refreshed
+        refreshExecutor.execute(() -> {
+            try {
+                load(key, loader, cacheable);
+            } catch (RuntimeException e) {
+                logger.warn("Background refresh of " + key + " failed: " + e.getMessage());
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    // Read-only copies of the maps and lists (in order, null values kept); other values are shared as they are
+    private static Object readOnly(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, readOnly(v)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(element -> copy.add(readOnly(element)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private record CachedResult(long version, Object value) {
+    }
+}
@@ -2,6 +2,7 @@ package com.hospital.dashboard.config;
 
 import com.hospital.dashboard.model.*;
 import com.hospital.dashboard.repository.*;
+import com.hospital.dashboard.service.CostRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -28,6 +29,8 @@ public class DataSeeder implements CommandLineRunner {
         private ConsumableRepository consumableRepository;
         @Autowired
         private PersonnelRepository personnelRepository;
+        @Autowired
+        private CostRollupService costRollupService;
 
         private final java.security.SecureRandom random = new java.security.SecureRandom();
 
@@ -50,6 +53,9 @@ public class DataSeeder implements CommandLineRunner {
                         seedAdditionalMedications();
                         seedRealisticHistoricalData();
                 }
+
+                // Seeding writes through the repositories, so backfill the daily rollup from the raw tables
+                costRollupService.rebuild();
         }
 
         private void seedPatients() {
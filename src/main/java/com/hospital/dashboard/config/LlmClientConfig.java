@@ -0,0 +1,38 @@
+package com.hospital.dashboard.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class LlmClientConfig {
+
+    // Non-blocking client for the LLM server: bounded connection pool, connect and response timeouts,
+    // idle connections evicted so a restarted LM Studio does not leave dead sockets in the pool
+    @Bean(name = "llmWebClient")
+    public WebClient llmWebClient(WebClient.Builder builder,
+            @Value("${hospifin.llm.base-url:http://localhost:1234/v1}") String baseUrl,
+            @Value("${hospifin.llm.max-connections:20}") int maxConnections,
+            @Value("${hospifin.llm.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${hospifin.llm.response-timeout-ms:60000}") long responseTimeoutMs) {
+        ConnectionProvider pool = ConnectionProvider.builder("llm")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(connectTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+        HttpClient httpClient = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        return builder.baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -1,22 +1,154 @@
 package com.hospital.dashboard.controller;
 
+import com.hospital.dashboard.dto.BatchResult;
+import com.hospital.dashboard.dto.KeysetPage;
+import com.hospital.dashboard.repository.BatchWriter;
+import com.hospital.dashboard.repository.EntityExporter;
+import com.hospital.dashboard.repository.KeysetPager;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public abstract class BaseController<T, ID> {
 
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private EntityExporter entityExporter;
+
+    @Autowired
+    private BatchWriter batchWriter;
+
     protected abstract JpaRepository<T, ID> getRepository();
 
+    // Whole table: fine for small tables, large ones should be read with ?limit=
     @GetMapping
     public List<T> getAll() {
         return getRepository().findAll();
     }
 
+    // Opt-in keyset pagination: pass back nextCursor as ?after= to get the following page
+    @GetMapping(params = "limit")
+    public KeysetPage<T> getPage(@RequestParam int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long patientId,
+            @RequestParam(defaultValue = "false") boolean total) {
+        String dateAttribute;
+        if ("id".equals(sort))
+            dateAttribute = null;
+        else if ("date".equals(sort) && getDateAttribute() != null)
+            dateAttribute = getDateAttribute();
+        else
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sort);
+        if (!"asc".equals(order) && !"desc".equals(order))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported order: " + order);
+
+        try {
+            return keysetPager.page(getEntityType(), dateAttribute, "desc".equals(order), after, limit, from, to,
+                    patientId, total);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Full history as NDJSON, streamed row by row instead of building the list in memory
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        Class<T> type = getEntityType();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + type.getSimpleName().toLowerCase() + ".ndjson\"")
+                .body(out -> entityExporter.writeNdjson(type, out));
+    }
+
+    // The write and the hooks share one transaction: a failed write leaves the derived data untouched
     @PostMapping
+    @Transactional
     public T create(@RequestBody T entity) {
-        return getRepository().save(entity);
+        T saved = getRepository().save(entity);
+        afterCreate(saved);
+        return saved;
+    }
+
+    // Bulk create in one transaction; items carrying an id are rejected, the others get one
+    @PostMapping("/batch")
+    public BatchResult createAll(@RequestBody List<T> entities) {
+        return writeBatch(entities, (chunk, offset, results) -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                T entity = chunk.get(i);
+                if (entity == null || idOf(entity) != null) {
+                    results.add(BatchResult.Item.rejected(offset + i, entity == null ? null : idOf(entity),
+                            entity == null ? "Empty item" : "Id must not be set on create"));
+                    continue;
+                }
+                T saved = getRepository().save(entity);
+                afterCreate(saved);
+                results.add(BatchResult.Item.created(offset + i, idOf(saved)));
+            }
+        });
+    }
+
+    @PutMapping("/{id}")
+    @Transactional
+    public T update(@PathVariable ID id, @RequestBody T details) {
+        T entity = getRepository().findById(id).orElseThrow();
+        beforeUpdate(entity);
+        copyDetails(details, entity);
+        T saved = getRepository().save(entity);
+        afterUpdate(saved);
+        return saved;
+    }
+
+    // Bulk update in one transaction; each item carries the id of the row it replaces
+    @PutMapping("/batch")
+    @SuppressWarnings("unchecked")
+    public BatchResult updateAll(@RequestBody List<T> details) {
+        return writeBatch(details, (chunk, offset, results) -> {
+            // One query per chunk for the current rows
+            List<ID> ids = chunk.stream().filter(Objects::nonNull).map(item -> (ID) idOf(item))
+                    .filter(Objects::nonNull).toList();
+            Map<Object, T> existing = new HashMap<>();
+            getRepository().findAllById(ids).forEach(entity -> existing.put(idOf(entity), entity));
+
+            for (int i = 0; i < chunk.size(); i++) {
+                T item = chunk.get(i);
+                Object id = item == null ? null : idOf(item);
+                T entity = id == null ? null : existing.get(id);
+                if (entity == null) {
+                    results.add(BatchResult.Item.rejected(offset + i, id, id == null ? "Missing id" : "Not found"));
+                    continue;
+                }
+                beforeUpdate(entity);
+                copyDetails(item, entity);
+                afterUpdate(getRepository().save(entity));
+                results.add(BatchResult.Item.updated(offset + i, id));
+            }
+        });
     }
 
     @GetMapping("/{id}")
@@ -25,10 +157,62 @@ public abstract class BaseController<T, ID> {
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void delete(@PathVariable ID id) {
+        beforeDelete(id);
         getRepository().deleteById(id);
     }
 
-    // Update usually requires specific logic per entity, so we leave it abstract or
-    // override it
+    // Copies the editable fields of a PUT body onto the stored entity
+    protected abstract void copyDetails(T details, T entity);
+
+    // Hooks for controllers that keep derived data (e.g. the daily cost rollup) in sync
+    protected void afterCreate(T entity) {
+    }
+
+    protected void beforeUpdate(T entity) {
+    }
+
+    protected void afterUpdate(T entity) {
+    }
+
+    protected void beforeDelete(ID id) {
+    }
+
+    // Date attribute behind ?sort=date, indexed together with the id; null when the entity has none
+    protected String getDateAttribute() {
+        return null;
+    }
+
+    // Validates ?expand= against the nested objects a projection can carry
+    protected static Set<String> expansions(Set<String> requested, String... allowed) {
+        if (requested == null)
+            return Set.of();
+        for (String expansion : requested) {
+            if (!List.of(allowed).contains(expansion))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported expand: " + expansion);
+        }
+        return requested;
+    }
+
+    private BatchResult writeBatch(List<T> items, BatchWriter.ChunkWriter<T> writer) {
+        try {
+            return batchWriter.write(items, writer);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (DataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Batch rolled back: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private static Object idOf(Object entity) {
+        return new BeanWrapperImpl(entity).getPropertyValue("id");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<T> getEntityType() {
+        return (Class<T>) GenericTypeResolver.resolveTypeArguments(ClassUtils.getUserClass(getClass()),
+                BaseController.class)[0];
+    }
 }
@@ -1,10 +1,19 @@
 package com.hospital.dashboard.controller;
 
 import com.hospital.dashboard.service.ChatService;
+import com.hospital.dashboard.service.LlmBusyException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.security.Principal;
 import java.util.Map;
 
 @RestController
@@ -16,14 +25,53 @@ public class ChatController {
     private ChatService chatService;
 
     @PostMapping
-    public ResponseEntity<Map<String, String>> chat(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, String>> chat(@RequestBody Map<String, String> request,
+            HttpServletRequest httpRequest) {
         String userMessage = request.get("message");
 
         if (userMessage == null || userMessage.trim().isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("response", "Message vide."));
         }
 
-        String response = chatService.chat(userMessage);
+        String response = chatService.chat(userMessage, clientId(httpRequest), subKey(httpRequest));
         return ResponseEntity.ok(Map.of("response", response));
     }
+
+    // Same answer as POST /api/chat as Server-Sent Events: one "token" event per chunk, then "done" (or
+    // "error" if the LLM fails mid-answer). Chunks are written one at a time as the client reads them,
+    // and a closed connection cancels the generation upstream. The response is already committed when the
+    // LLM queue refuses the stream, so the refusal is a "busy" event carrying retryAfterSeconds.
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, String>>> stream(@RequestBody Map<String, String> request,
+            HttpServletRequest httpRequest) {
+        String userMessage = request.get("message");
+
+        if (userMessage == null || userMessage.trim().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Message vide.");
+        }
+
+        return chatService.chatStream(userMessage, clientId(httpRequest), subKey(httpRequest))
+                .map(token -> event("token", Map.of("content", token)))
+                .concatWith(Mono.fromSupplier(() -> event("done", Map.of())))
+                .onErrorResume(e -> Mono.just(e instanceof LlmBusyException busy
+                        ? event("busy", Map.of("content", "Assistant occupé, réessayez plus tard.",
+                                "retryAfterSeconds", String.valueOf(busy.getRetryAfterSeconds())))
+                        : event("error", Map.of("content", "Réponse interrompue."))));
+    }
+
+    // Fairness key of the LLM admission queue: the signed-in user, else the address. Never a header, as a
+    // client could pick a new value for every request to get a fresh share
+    static String clientId(HttpServletRequest httpRequest) {
+        Principal principal = httpRequest.getUserPrincipal();
+        return principal != null ? principal.getName() : httpRequest.getRemoteAddr();
+    }
+
+    // The X-Client-Id the web and mobile apps send only orders the requests within that key
+    static String subKey(HttpServletRequest httpRequest) {
+        return httpRequest.getHeader("X-Client-Id");
+    }
+
+    private static ServerSentEvent<Map<String, String>> event(String name, Map<String, String> data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
 }
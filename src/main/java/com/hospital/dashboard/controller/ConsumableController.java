@@ -1,12 +1,16 @@
 package com.hospital.dashboard.controller;
 
+import com.hospital.dashboard.dto.ConsumableSummary;
 import com.hospital.dashboard.model.Consumable;
 import com.hospital.dashboard.repository.ConsumableRepository;
+import com.hospital.dashboard.service.CostRollupService;
+import com.hospital.dashboard.service.SummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/consumables")
@@ -16,19 +20,54 @@ public class ConsumableController extends BaseController<Consumable, Long> {
     @Autowired
     private ConsumableRepository consumableRepository;
 
+    @Autowired
+    private CostRollupService costRollupService;
+
+    @Autowired
+    private SummaryService summaryService;
+
+    // Lightweight table rows; ?expand=patient,medication adds the nested objects
+    @GetMapping("/summaries")
+    public List<ConsumableSummary> getSummaries(@RequestParam(required = false) Set<String> expand) {
+        return summaryService.consumables(expansions(expand, SummaryService.PATIENT, SummaryService.MEDICATION));
+    }
+
     @Override
     protected JpaRepository<Consumable, Long> getRepository() {
         return consumableRepository;
     }
 
-    @PutMapping("/{id}")
-    public Consumable updateConsumable(@PathVariable Long id, @RequestBody Consumable consumableDetails) {
-        Consumable consumable = consumableRepository.findById(id).orElseThrow();
-        consumable.setMedication(consumableDetails.getMedication());
-        consumable.setQuantity(consumableDetails.getQuantity());
-        consumable.setDate(consumableDetails.getDate());
-        consumable.setPatient(consumableDetails.getPatient());
-        consumable.setTotalCost(consumableDetails.getTotalCost());
-        return consumableRepository.save(consumable);
+    @Override
+    protected String getDateAttribute() {
+        return "date";
+    }
+
+    @Override
+    protected void afterCreate(Consumable consumable) {
+        costRollupService.add(consumable);
+    }
+
+    @Override
+    protected void beforeDelete(Long id) {
+        consumableRepository.findById(id).ifPresent(costRollupService::remove);
+    }
+
+    @Override
+    protected void copyDetails(Consumable details, Consumable consumable) {
+        consumable.setMedication(details.getMedication());
+        consumable.setQuantity(details.getQuantity());
+        consumable.setDate(details.getDate());
+        consumable.setPatient(details.getPatient());
+        consumable.setTotalCost(details.getTotalCost());
+    }
+
+    @Override
+    protected void beforeUpdate(Consumable consumable) {
+        costRollupService.remove(consumable);
+    }
+
+    @Override
+    protected void afterUpdate(Consumable consumable) {
+        costRollupService.add(consumable);
     }
 }
@@ -1,8 +1,11 @@
 package com.hospital.dashboard.controller;
 
 import com.hospital.dashboard.service.CustomAIService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 
@@ -18,16 +21,20 @@ public class CustomAIController {
     private com.hospital.dashboard.service.CustomAIService customAIService;
 
     @PostMapping("/ask")
-    public Map<String, String> ask(@RequestBody Map<String, String> payload) {
+    public Map<String, String> ask(@RequestBody Map<String, String> payload, HttpServletRequest httpRequest) {
         // Restriction Check: Ensure Model is Trained (Legacy check, keeping it)
         if (!customAIService.isTrained()) {
             customAIService.trainModel();
         }
 
         String question = payload.get("question");
+        if (question == null || question.trim().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Question vide.");
+        }
 
         // Delegate to unified ChatService (same logic as Web, full context)
-        String answer = chatService.chat(question);
+        String answer = chatService.chat(question, ChatController.clientId(httpRequest),
+                ChatController.subKey(httpRequest));
         return Map.of("answer", answer);
     }
 }
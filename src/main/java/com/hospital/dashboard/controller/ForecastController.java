@@ -19,8 +19,9 @@ public class ForecastController {
 
         @GetMapping
         public Map<String, Object> getForecasts(
-                        @org.springframework.web.bind.annotation.RequestParam(defaultValue = "30") int days) {
-                return forecastService.getGlobalForecast(days);
+                        @org.springframework.web.bind.annotation.RequestParam(defaultValue = "30") int days,
+                        @org.springframework.web.bind.annotation.RequestParam(defaultValue = "false") boolean intervals) {
+                return forecastService.getGlobalForecast(days, intervals);
         }
 
         @GetMapping("/test")
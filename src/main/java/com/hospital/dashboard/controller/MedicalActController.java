@@ -1,12 +1,16 @@
 package com.hospital.dashboard.controller;
 
+import com.hospital.dashboard.dto.MedicalActSummary;
 import com.hospital.dashboard.model.MedicalAct;
 import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.service.CostRollupService;
+import com.hospital.dashboard.service.SummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/medical-acts")
@@ -16,19 +20,54 @@ public class MedicalActController extends BaseController<MedicalAct, Long> {
     @Autowired
     private MedicalActRepository medicalActRepository;
 
+    @Autowired
+    private CostRollupService costRollupService;
+
+    @Autowired
+    private SummaryService summaryService;
+
+    // Lightweight table rows; ?expand=patient adds the nested objects
+    @GetMapping("/summaries")
+    public List<MedicalActSummary> getSummaries(@RequestParam(required = false) Set<String> expand) {
+        return summaryService.medicalActs(expansions(expand, SummaryService.PATIENT));
+    }
+
     @Override
     protected JpaRepository<MedicalAct, Long> getRepository() {
         return medicalActRepository;
     }
 
-    @PutMapping("/{id}")
-    public MedicalAct updateMedicalAct(@PathVariable Long id, @RequestBody MedicalAct medicalActDetails) {
-        MedicalAct medicalAct = medicalActRepository.findById(id).orElseThrow();
-        medicalAct.setType(medicalActDetails.getType());
-        medicalAct.setDate(medicalActDetails.getDate());
-        medicalAct.setPatient(medicalActDetails.getPatient());
-        medicalAct.setPractitioner(medicalActDetails.getPractitioner());
-        medicalAct.setCost(medicalActDetails.getCost());
-        return medicalActRepository.save(medicalAct);
+    @Override
+    protected String getDateAttribute() {
+        return "date";
+    }
+
+    @Override
+    protected void afterCreate(MedicalAct medicalAct) {
+        costRollupService.add(medicalAct);
+    }
+
+    @Override
+    protected void beforeDelete(Long id) {
+        medicalActRepository.findById(id).ifPresent(costRollupService::remove);
+    }
+
+    @Override
+    protected void copyDetails(MedicalAct details, MedicalAct medicalAct) {
+        medicalAct.setType(details.getType());
+        medicalAct.setDate(details.getDate());
+        medicalAct.setPatient(details.getPatient());
+        medicalAct.setPractitioner(details.getPractitioner());
+        medicalAct.setCost(details.getCost());
+    }
+
+    @Override
+    protected void beforeUpdate(MedicalAct medicalAct) {
+        costRollupService.remove(medicalAct);
+    }
+
+    @Override
+    protected void afterUpdate(MedicalAct medicalAct) {
+        costRollupService.add(medicalAct);
     }
 }
@@ -21,14 +21,12 @@ public class MedicationController extends BaseController<Medication, Long> {
         return medicationRepository;
     }
 
-    @PutMapping("/{id}")
-    public Medication updateMedication(@PathVariable Long id, @RequestBody Medication medicationDetails) {
-        Medication medication = medicationRepository.findById(id).orElseThrow();
-        medication.setName(medicationDetails.getName());
-        medication.setCategory(medicationDetails.getCategory());
-        medication.setUnitCost(medicationDetails.getUnitCost());
-        medication.setStock(medicationDetails.getStock());
-        medication.setUnit(medicationDetails.getUnit());
-        return medicationRepository.save(medication);
+    @Override
+    protected void copyDetails(Medication details, Medication medication) {
+        medication.setName(details.getName());
+        medication.setCategory(details.getCategory());
+        medication.setUnitCost(details.getUnitCost());
+        medication.setStock(details.getStock());
+        medication.setUnit(details.getUnit());
     }
 }
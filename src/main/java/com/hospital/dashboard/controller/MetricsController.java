@@ -0,0 +1,36 @@
+package com.hospital.dashboard.controller;
+
+import com.hospital.dashboard.cache.ResultCache;
+import com.hospital.dashboard.service.LlmAdmissionQueue;
+import com.hospital.dashboard.service.LlmCircuitBreaker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+
+public class MetricsController {
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Autowired
+    private LlmCircuitBreaker llmCircuitBreaker;
+
+    @Autowired
+    private LlmAdmissionQueue llmAdmissionQueue;
+
+    @GetMapping
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("cache", resultCache.getStats());
+        metrics.put("llmCircuitBreaker", llmCircuitBreaker.getStats());
+        metrics.put("llmQueue", llmAdmissionQueue.getStats());
+        return metrics;
+    }
+}
@@ -2,6 +2,8 @@ package com.hospital.dashboard.controller;
 
 import com.hospital.dashboard.model.Patient;
 import com.hospital.dashboard.repository.PatientRepository;
+import com.hospital.dashboard.service.CostRollupService;
+import com.hospital.dashboard.service.StayIntervalIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.web.bind.annotation.*;
@@ -16,18 +18,36 @@ public class PatientController extends BaseController<Patient, Long> {
     @Autowired
     private PatientRepository patientRepository;
 
+    @Autowired
+    private CostRollupService costRollupService;
+
+    @Autowired
+    private StayIntervalIndex stayIntervalIndex;
+
     @Override
     protected JpaRepository<Patient, Long> getRepository() {
         return patientRepository;
     }
 
-    @PutMapping("/{id}")
-    public Patient updatePatient(@PathVariable Long id, @RequestBody Patient patientDetails) {
-        Patient patient = patientRepository.findById(id).orElseThrow();
-        patient.setFirstName(patientDetails.getFirstName());
-        patient.setLastName(patientDetails.getLastName());
-        patient.setSsn(patientDetails.getSsn());
-        patient.setBirthDate(patientDetails.getBirthDate());
-        return patientRepository.save(patient);
+    @Override
+    protected void beforeDelete(Long id) {
+        // Stays, acts and consumables are removed by cascade, take them out of the rollup (and stays out of the
+        // interval index) first
+        patientRepository.findById(id).ifPresent(patient -> {
+            patient.getStays().forEach(stay -> {
+                costRollupService.remove(stay);
+                stayIntervalIndex.remove(stay.getId());
+            });
+            patient.getMedicalActs().forEach(costRollupService::remove);
+            patient.getConsumables().forEach(costRollupService::remove);
+        });
+    }
+
+    @Override
+    protected void copyDetails(Patient details, Patient patient) {
+        patient.setFirstName(details.getFirstName());
+        patient.setLastName(details.getLastName());
+        patient.setSsn(details.getSsn());
+        patient.setBirthDate(details.getBirthDate());
     }
 }
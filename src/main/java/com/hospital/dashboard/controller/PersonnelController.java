@@ -21,16 +21,14 @@ public class PersonnelController extends BaseController<Personnel, Long> {
         return personnelRepository;
     }
 
-    @PutMapping("/{id}")
-    public Personnel updatePersonnel(@PathVariable Long id, @RequestBody Personnel personnelDetails) {
-        Personnel personnel = personnelRepository.findById(id).orElseThrow();
-        personnel.setName(personnelDetails.getName());
-        personnel.setRole(personnelDetails.getRole());
-        personnel.setService(personnelDetails.getService());
-        personnel.setCostPerDay(personnelDetails.getCostPerDay());
-        personnel.setEmail(personnelDetails.getEmail());
-        personnel.setPhone(personnelDetails.getPhone());
-        return personnelRepository.save(personnel);
+    @Override
+    protected void copyDetails(Personnel details, Personnel personnel) {
+        personnel.setName(details.getName());
+        personnel.setRole(details.getRole());
+        personnel.setService(details.getService());
+        personnel.setCostPerDay(details.getCostPerDay());
+        personnel.setEmail(details.getEmail());
+        personnel.setPhone(details.getPhone());
     }
 
     @GetMapping("/current")
@@ -0,0 +1,25 @@
+package com.hospital.dashboard.controller;
+
+import com.hospital.dashboard.service.CostRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rollup")
+
+public class RollupController {
+
+    @Autowired
+    private CostRollupService costRollupService;
+
+    // Backfill: recompute the daily cost rollup from the raw tables
+    @PostMapping("/rebuild")
+    public Map<String, String> rebuild() {
+        costRollupService.rebuild();
+        return Map.of("message", "Rollup rebuilt");
+    }
+}
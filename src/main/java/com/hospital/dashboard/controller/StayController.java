@@ -1,14 +1,26 @@
 package com.hospital.dashboard.controller;
 
+import com.hospital.dashboard.dto.StayInterval;
+import com.hospital.dashboard.dto.StaySummary;
 import com.hospital.dashboard.model.HospitalStay;
 import com.hospital.dashboard.repository.HospitalStayRepository;
+import com.hospital.dashboard.service.CostRollupService;
 import com.hospital.dashboard.service.RevenueService;
+import com.hospital.dashboard.service.StayIntervalIndex;
+import com.hospital.dashboard.service.SummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/stays")
@@ -21,20 +33,84 @@ public class StayController extends BaseController<HospitalStay, Long> {
     @Autowired
     private RevenueService revenueService;
 
+    @Autowired
+    private CostRollupService costRollupService;
+
+    @Autowired
+    private SummaryService summaryService;
+
+    @Autowired
+    private StayIntervalIndex stayIntervalIndex;
+
+    // Lightweight table rows; ?expand=patient adds the nested objects
+    @GetMapping("/summaries")
+    public List<StaySummary> getSummaries(@RequestParam(required = false) Set<String> expand) {
+        return summaryService.stays(expansions(expand, SummaryService.PATIENT));
+    }
+
     @Override
     protected JpaRepository<HospitalStay, Long> getRepository() {
         return stayRepository;
     }
 
-    @PutMapping("/{id}")
-    public HospitalStay updateStay(@PathVariable Long id, @RequestBody HospitalStay stayDetails) {
-        HospitalStay stay = stayRepository.findById(id).orElseThrow();
-        stay.setPatient(stayDetails.getPatient());
-        stay.setStartDate(stayDetails.getStartDate());
-        stay.setEndDate(stayDetails.getEndDate());
-        stay.setDailyRate(stayDetails.getDailyRate());
-        stay.setPathology(stayDetails.getPathology());
-        return stayRepository.save(stay);
+    @Override
+    protected String getDateAttribute() {
+        return "startDate";
+    }
+
+    @Override
+    protected void afterCreate(HospitalStay stay) {
+        costRollupService.add(stay);
+        stayIntervalIndex.add(stay);
+    }
+
+    @Override
+    protected void beforeDelete(Long id) {
+        stayRepository.findById(id).ifPresent(costRollupService::remove);
+        stayIntervalIndex.remove(id);
+    }
+
+    @Override
+    protected void copyDetails(HospitalStay details, HospitalStay stay) {
+        stay.setPatient(details.getPatient());
+        stay.setStartDate(details.getStartDate());
+        stay.setEndDate(details.getEndDate());
+        stay.setDailyRate(details.getDailyRate());
+        stay.setPathology(details.getPathology());
+    }
+
+    @Override
+    protected void beforeUpdate(HospitalStay stay) {
+        costRollupService.remove(stay);
+    }
+
+    @Override
+    protected void afterUpdate(HospitalStay stay) {
+        costRollupService.add(stay);
+        stayIntervalIndex.add(stay);
+    }
+
+    // Stays in progress on a day (today by default), or overlapping [from, to] when a range is given
+    @GetMapping("/occupancy")
+    public Map<String, Object> getOccupancy(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Map<String, Object> occupancy = new HashMap<>();
+        if (from != null || to != null) {
+            if (from == null || to == null || date != null || from.isAfter(to))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pass date, or both from and to");
+            occupancy.put("from", from);
+            occupancy.put("to", to);
+            occupancy.put("stays", stayIntervalIndex.countOverlapping(from, to));
+            return occupancy;
+        }
+        LocalDate day = date != null ? date : LocalDate.now();
+        List<Long> stayIds = stayIntervalIndex.occupiedOn(day).stream().map(StayInterval::id).sorted().toList();
+        occupancy.put("date", day);
+        occupancy.put("occupied", stayIds.size());
+        occupancy.put("stayIds", stayIds);
+        return occupancy;
     }
 
     @GetMapping("/revenue")
@@ -0,0 +1,34 @@
+package com.hospital.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Outcome of a bulk write, one item per element of the request in the same order
+public record BatchResult(int succeeded, int failed, List<Item> items) {
+
+    public static BatchResult of(List<Item> items) {
+        int failed = (int) items.stream().filter(item -> item.status() == Status.REJECTED).count();
+        return new BatchResult(items.size() - failed, failed, items);
+    }
+
+    public enum Status {
+        CREATED, UPDATED, REJECTED
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(int index, Status status, Object id, String error) {
+
+        public static Item created(int index, Object id) {
+            return new Item(index, Status.CREATED, id, null);
+        }
+
+        public static Item updated(int index, Object id) {
+            return new Item(index, Status.UPDATED, id, null);
+        }
+
+        public static Item rejected(int index, Object id, String error) {
+            return new Item(index, Status.REJECTED, id, error);
+        }
+    }
+}
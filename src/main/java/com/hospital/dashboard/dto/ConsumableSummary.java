@@ -0,0 +1,26 @@
+package com.hospital.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hospital.dashboard.model.Medication;
+import com.hospital.dashboard.model.Patient;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Row of the consumables table; medication and patient are only filled with ?expand=
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ConsumableSummary(Long id, LocalDate date, Integer quantity, BigDecimal totalCost,
+        Long medicationId, String medicationName, Long patientId, String patientFirstName, String patientLastName,
+        Medication medication, Patient patient) {
+
+    public ConsumableSummary(Long id, LocalDate date, Integer quantity, BigDecimal totalCost, Long medicationId,
+            String medicationName, Long patientId, String patientFirstName, String patientLastName) {
+        this(id, date, quantity, totalCost, medicationId, medicationName, patientId, patientFirstName,
+                patientLastName, null, null);
+    }
+
+    public ConsumableSummary expand(Medication medication, Patient patient) {
+        return new ConsumableSummary(id, date, quantity, totalCost, medicationId, medicationName, patientId,
+                patientFirstName, patientLastName, medication, patient);
+    }
+}
@@ -0,0 +1,15 @@
+package com.hospital.dashboard.dto;
+
+import com.hospital.dashboard.model.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Aggregated cost of one day, filled by constructor-expression queries
+public record DailyCost(LocalDate day, BigDecimal total, Long events) {
+
+    // Rollup rows hold Money
+    public DailyCost(LocalDate day, Money total, Long events) {
+        this(day, total != null ? total.toBigDecimal() : null, events);
+    }
+}
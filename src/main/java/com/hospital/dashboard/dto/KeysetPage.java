@@ -0,0 +1,10 @@
+package com.hospital.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// One page of a keyset-paginated list; nextCursor is null on the last page, total only when asked for
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record KeysetPage<T>(List<T> items, String nextCursor, int limit, Long total) {
+}
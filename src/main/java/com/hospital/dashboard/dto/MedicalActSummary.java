@@ -0,0 +1,23 @@
+package com.hospital.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hospital.dashboard.model.Patient;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Row of the medical acts table; patient is only filled with ?expand=
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MedicalActSummary(Long id, String type, LocalDate date, String practitioner, BigDecimal cost,
+        Long patientId, String patientFirstName, String patientLastName, Patient patient) {
+
+    public MedicalActSummary(Long id, String type, LocalDate date, String practitioner, BigDecimal cost,
+            Long patientId, String patientFirstName, String patientLastName) {
+        this(id, type, date, practitioner, cost, patientId, patientFirstName, patientLastName, null);
+    }
+
+    public MedicalActSummary expand(Patient patient) {
+        return new MedicalActSummary(id, type, date, practitioner, cost, patientId, patientFirstName,
+                patientLastName, patient);
+    }
+}
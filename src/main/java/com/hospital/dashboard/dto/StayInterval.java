@@ -0,0 +1,12 @@
+package com.hospital.dashboard.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// A stay as held by the StayIntervalIndex: its id and the columns of a StaySpan
+public record StayInterval(Long id, LocalDate startDate, LocalDate endDate, BigDecimal dailyRate) {
+
+    public StaySpan span() {
+        return new StaySpan(startDate, endDate, dailyRate);
+    }
+}
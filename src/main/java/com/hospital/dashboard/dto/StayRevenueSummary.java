@@ -0,0 +1,8 @@
+package com.hospital.dashboard.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// Revenue of a batch of stays: the total, the number of stays, and the sums per bucket when asked for
+public record StayRevenueSummary<K>(BigDecimal total, long stays, Map<K, BigDecimal> buckets) {
+}
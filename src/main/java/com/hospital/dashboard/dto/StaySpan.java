@@ -0,0 +1,8 @@
+package com.hospital.dashboard.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// The columns of a HospitalStay needed for revenue, without the patient graph
+public record StaySpan(LocalDate startDate, LocalDate endDate, BigDecimal dailyRate) {
+}
@@ -0,0 +1,23 @@
+package com.hospital.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hospital.dashboard.model.Patient;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Row of the stays table; patient is only filled with ?expand=
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StaySummary(Long id, LocalDate startDate, LocalDate endDate, BigDecimal dailyRate, String pathology,
+        Long patientId, String patientFirstName, String patientLastName, Patient patient) {
+
+    public StaySummary(Long id, LocalDate startDate, LocalDate endDate, BigDecimal dailyRate, String pathology,
+            Long patientId, String patientFirstName, String patientLastName) {
+        this(id, startDate, endDate, dailyRate, pathology, patientId, patientFirstName, patientLastName, null);
+    }
+
+    public StaySummary expand(Patient patient) {
+        return new StaySummary(id, startDate, endDate, dailyRate, pathology, patientId, patientFirstName,
+                patientLastName, patient);
+    }
+}
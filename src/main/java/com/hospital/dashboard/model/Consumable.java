@@ -1,5 +1,6 @@
 package com.hospital.dashboard.model;
 
+import com.hospital.dashboard.cache.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,22 +9,31 @@ import java.time.LocalDate;
 import java.math.BigDecimal;
 
 @Entity
+// Date ranges and keyset pages sorted by date, overall, per patient and per medication
+@Table(indexes = {
+        @Index(name = "idx_consumable_date_id", columnList = "date, id"),
+        @Index(name = "idx_consumable_patient_date", columnList = "patient_id, date"),
+        @Index(name = "idx_consumable_medication_date", columnList = "medication_id, date") })
+@NamedEntityGraph(name = "Consumable.withLinks",
+        attributeNodes = { @NamedAttributeNode("medication"), @NamedAttributeNode("patient") })
+@EntityListeners(DataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Consumable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "consumable_seq")
+    @SequenceGenerator(name = "consumable_seq", sequenceName = "consumable_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "medication_id")
     private Medication medication;
 
     private Integer quantity;
     private LocalDate date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id")
     private Patient patient;
 
@@ -0,0 +1,6 @@
+package com.hospital.dashboard.model;
+
+// Fact tables rolled up per day in DailyCostRollup
+public enum CostCategory {
+    ACTS, CONSUMABLES, STAYS
+}
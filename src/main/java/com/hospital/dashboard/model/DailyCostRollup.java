@@ -0,0 +1,38 @@
+package com.hospital.dashboard.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "daily_cost_rollup")
+@IdClass(DailyCostRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyCostRollup {
+    @Id
+    private LocalDate date;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private CostCategory category;
+
+    // Summed in cents; the column stays numeric(38,2)
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 38, scale = 2)
+    private Money total;
+    private long eventCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate date;
+        private CostCategory category;
+    }
+}
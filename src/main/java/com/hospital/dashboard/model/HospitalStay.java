@@ -1,5 +1,6 @@
 package com.hospital.dashboard.model;
 
+import com.hospital.dashboard.cache.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,15 +9,24 @@ import java.time.LocalDate;
 import java.math.BigDecimal;
 
 @Entity
+// Keyset pages sorted by start date, per patient too; overlap queries bound the start and filter the
+// end within the same index
+@Table(indexes = {
+        @Index(name = "idx_hospital_stay_start_date_id", columnList = "startDate, id"),
+        @Index(name = "idx_hospital_stay_patient_start_date", columnList = "patient_id, startDate"),
+        @Index(name = "idx_hospital_stay_start_end", columnList = "startDate, endDate") })
+@NamedEntityGraph(name = "HospitalStay.withPatient", attributeNodes = @NamedAttributeNode("patient"))
+@EntityListeners(DataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class HospitalStay {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hospital_stay_seq")
+    @SequenceGenerator(name = "hospital_stay_seq", sequenceName = "hospital_stay_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id")
     private Patient patient;
 
@@ -1,5 +1,6 @@
 package com.hospital.dashboard.model;
 
+import com.hospital.dashboard.cache.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,18 +9,27 @@ import java.time.LocalDate;
 import java.math.BigDecimal;
 
 @Entity
+// Date ranges and keyset pages sorted by date (BaseController ?sort=date), overall and per patient
+@Table(indexes = {
+        @Index(name = "idx_medical_act_date_id", columnList = "date, id"),
+        @Index(name = "idx_medical_act_patient_date", columnList = "patient_id, date") })
+// The links nested in API responses, fetched in the same query where a response needs them
+@NamedEntityGraph(name = "MedicalAct.withPatient", attributeNodes = @NamedAttributeNode("patient"))
+@EntityListeners(DataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class MedicalAct {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence: ids are handed out 50 at a time, so inserts can be sent as JDBC batches
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medical_act_seq")
+    @SequenceGenerator(name = "medical_act_seq", sequenceName = "medical_act_seq", allocationSize = 50)
     private Long id;
 
     private String type;
     private LocalDate date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id")
     private Patient patient;
 
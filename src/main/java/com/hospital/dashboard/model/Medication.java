@@ -1,5 +1,7 @@
 package com.hospital.dashboard.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.hospital.dashboard.cache.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -7,12 +9,15 @@ import lombok.AllArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@EntityListeners(DataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Medication {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medication_seq")
+    @SequenceGenerator(name = "medication_seq", sequenceName = "medication_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -0,0 +1,63 @@
+package com.hospital.dashboard.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount in euro cents. Costs are stored as numeric(38,2), so every stored amount is a whole
+ * number of cents and sums in cents are exact; arithmetic is overflow-checked and throws
+ * ArithmeticException rather than wrapping. Entities and the API keep BigDecimal: convert at the edges.
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return amount == null ? ZERO : ofCents(toCents(amount));
+    }
+
+    /** Cents of an amount, rounded half-up past the second decimal as the database columns do. */
+    public static long toCents(BigDecimal amount) {
+        if (amount.scale() == 0)
+            return Math.multiplyExact(amount.longValueExact(), 100);
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(long factor) {
+        return ofCents(Math.multiplyExact(cents, factor));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
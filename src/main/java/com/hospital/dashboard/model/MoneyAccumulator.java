@@ -0,0 +1,61 @@
+package com.hospital.dashboard.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Mutable running sum in cents for aggregation loops: adding allocates nothing, and the result is
+ * converted to Money or BigDecimal once at the end. Not thread-safe; use one per thread or per task.
+ */
+public final class MoneyAccumulator {
+
+    private long cents;
+    private long count;
+
+    public MoneyAccumulator add(BigDecimal amount) {
+        if (amount != null)
+            addCents(Money.toCents(amount));
+        return this;
+    }
+
+    public MoneyAccumulator add(Money amount) {
+        if (amount != null)
+            addCents(amount.cents());
+        return this;
+    }
+
+    /** Adds {@code rate x times}, e.g. a daily rate over a number of days. */
+    public MoneyAccumulator addTimes(BigDecimal rate, long times) {
+        if (rate != null)
+            addCents(Math.multiplyExact(Money.toCents(rate), times));
+        return this;
+    }
+
+    public MoneyAccumulator addCents(long amount) {
+        cents = Math.addExact(cents, amount);
+        count++;
+        return this;
+    }
+
+    public MoneyAccumulator add(MoneyAccumulator other) {
+        cents = Math.addExact(cents, other.cents);
+        count += other.count;
+        return this;
+    }
+
+    public long cents() {
+        return cents;
+    }
+
+    /** Number of amounts added. */
+    public long count() {
+        return count;
+    }
+
+    public Money total() {
+        return Money.ofCents(cents);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
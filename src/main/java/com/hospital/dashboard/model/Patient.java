@@ -1,18 +1,24 @@
 package com.hospital.dashboard.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.hospital.dashboard.cache.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import java.time.LocalDate;
 
+// Serializable as a lazy proxy too, should a response reach one that was not fetched
 @Entity
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@EntityListeners(DataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Patient {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_seq")
+    @SequenceGenerator(name = "patient_seq", sequenceName = "patient_seq", allocationSize = 50)
     private Long id;
 
     private String firstName;
@@ -1,5 +1,6 @@
 package com.hospital.dashboard.model;
 
+import com.hospital.dashboard.cache.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -7,12 +8,16 @@ import lombok.AllArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
+// findByEmail (seeding, account lookups)
+@Table(indexes = @Index(name = "idx_personnel_email", columnList = "email"))
+@EntityListeners(DataChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Personnel {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "personnel_seq")
+    @SequenceGenerator(name = "personnel_seq", sequenceName = "personnel_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -0,0 +1,55 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.dto.BatchResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a bulk write in one transaction, chunk by chunk: after each chunk the persistence context is
+ * flushed, which Hibernate sends as JDBC batches of the same size, and cleared, so memory does not grow
+ * with the request. Items the chunk writer rejects are reported; a database error rolls back the whole
+ * batch.
+ */
+@Repository
+public class BatchWriter {
+
+    public static final int MAX_ITEMS = 10_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int chunkSize;
+
+    public <T> BatchResult write(List<T> items, ChunkWriter<T> writer) {
+        if (items.size() > MAX_ITEMS)
+            throw new IllegalArgumentException("At most " + MAX_ITEMS + " items per batch");
+
+        List<BatchResult.Item> results = new ArrayList<>(items.size());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int from = 0; from < items.size(); from += chunkSize) {
+                writer.write(items.subList(from, Math.min(from + chunkSize, items.size())), from, results);
+                entityManager.flush();
+                entityManager.clear();
+            }
+        });
+        return BatchResult.of(results);
+    }
+
+    /** Writes one chunk, appending one result per item; {@code offset} is the index of its first item. */
+    @FunctionalInterface
+    public interface ChunkWriter<T> {
+        void write(List<T> chunk, int offset, List<BatchResult.Item> results);
+    }
+}
@@ -1,9 +1,34 @@
 package com.hospital.dashboard.repository;
 
+import com.hospital.dashboard.dto.ConsumableSummary;
+import com.hospital.dashboard.dto.DailyCost;
 import com.hospital.dashboard.model.Consumable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ConsumableRepository extends JpaRepository<Consumable, Long> {
+
+    @Override
+    @EntityGraph("Consumable.withLinks")
+    List<Consumable> findAll();
+
+    @Override
+    @EntityGraph("Consumable.withLinks")
+    Optional<Consumable> findById(Long id);
+
+    @Query("SELECT new com.hospital.dashboard.dto.DailyCost(c.date, SUM(c.totalCost), COUNT(c)) FROM Consumable c "
+            + "WHERE c.date IS NOT NULL AND c.totalCost IS NOT NULL GROUP BY c.date ORDER BY c.date")
+    List<DailyCost> sumCostByDay();
+
+    // Only the table columns: no Consumable, Medication or Patient is loaded
+    @Query("SELECT new com.hospital.dashboard.dto.ConsumableSummary(c.id, c.date, c.quantity, c.totalCost, "
+            + "m.id, m.name, p.id, p.firstName, p.lastName) "
+            + "FROM Consumable c LEFT JOIN c.medication m LEFT JOIN c.patient p ORDER BY c.id")
+    List<ConsumableSummary> findSummaries();
 }
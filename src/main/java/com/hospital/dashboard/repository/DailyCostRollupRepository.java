@@ -0,0 +1,43 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.model.CostCategory;
+import com.hospital.dashboard.model.DailyCostRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyCostRollupRepository extends JpaRepository<DailyCostRollup, DailyCostRollup.Key> {
+
+    @Query("SELECT new com.hospital.dashboard.dto.DailyCost(r.date, r.total, r.eventCount) FROM DailyCostRollup r "
+            + "WHERE r.category = :category AND r.eventCount > 0 ORDER BY r.date")
+    List<DailyCost> findDailyTotals(@Param("category") CostCategory category);
+
+    @Query("SELECT new com.hospital.dashboard.dto.DailyCost(r.date, r.total, r.eventCount) FROM DailyCostRollup r "
+            + "WHERE r.category = :category AND r.eventCount > 0 AND r.date BETWEEN :start AND :end ORDER BY r.date")
+    List<DailyCost> findDailyTotalsBetween(@Param("category") CostCategory category,
+            @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    // Native, so the sum is read as the column type rather than through the Money converter
+    @Query(value = "SELECT SUM(total) FROM daily_cost_rollup WHERE category = :#{#category.name()}",
+            nativeQuery = true)
+    BigDecimal sumTotal(@Param("category") CostCategory category);
+
+    // Atomic upsert, so concurrent writes on the same day never lose an increment
+    @Modifying
+    @Query(value = "MERGE INTO daily_cost_rollup r "
+            + "USING (SELECT CAST(:date AS DATE) AS d, CAST(:category AS VARCHAR(255)) AS c) v "
+            + "ON r.date = v.d AND r.category = v.c "
+            + "WHEN MATCHED THEN UPDATE SET total = r.total + :amount, event_count = r.event_count + :events "
+            + "WHEN NOT MATCHED THEN INSERT (date, category, total, event_count) VALUES (v.d, v.c, :amount, :events)",
+            nativeQuery = true)
+    void increment(@Param("date") LocalDate date, @Param("category") String category,
+            @Param("amount") BigDecimal amount, @Param("events") long events);
+}
@@ -0,0 +1,90 @@
+package com.hospital.dashboard.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a whole table as newline-delimited JSON, one entity per line in id order. Rows are read
+ * through a forward-only cursor and the persistence context is cleared after every batch, so memory
+ * stays flat whatever the size of the table.
+ */
+@Repository
+public class EntityExporter {
+
+    static final int BATCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Returns the number of rows written; the stream is flushed but left open. */
+    public <T> long writeNdjson(Class<T> type, OutputStream out) throws IOException {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        try {
+            return template.execute(status -> {
+                try {
+                    return write(type, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor is already closed
+            throw e.getCause();
+        }
+    }
+
+    private <T> long write(Class<T> type, OutputStream out) throws IOException {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        query.select(root).orderBy(cb.asc(root.get("id")));
+
+        // One generator for the whole export; lines are separated by hand and flushed per batch
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        long rows = 0;
+        try (Stream<T> stream = EntityGraphs.withResponseGraph(entityManager, entityManager.createQuery(query), type)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, BATCH_SIZE)
+                .getResultStream();
+                JsonGenerator generator = writer.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<T> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++rows % BATCH_SIZE == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+            generator.flush();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,20 @@
+package com.hospital.dashboard.repository;
+
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.SpecHints;
+
+import java.util.List;
+
+// Generic entity reads that end up as JSON load the links the entity declares in its named graph
+final class EntityGraphs {
+
+    private EntityGraphs() {
+    }
+
+    static <T> TypedQuery<T> withResponseGraph(EntityManager entityManager, TypedQuery<T> query, Class<T> type) {
+        List<EntityGraph<? super T>> graphs = entityManager.getEntityGraphs(type);
+        return graphs.isEmpty() ? query : query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, graphs.get(0));
+    }
+}
@@ -1,9 +1,56 @@
 package com.hospital.dashboard.repository;
 
+import com.hospital.dashboard.dto.StayInterval;
+import com.hospital.dashboard.dto.StaySpan;
+import com.hospital.dashboard.dto.StaySummary;
 import com.hospital.dashboard.model.HospitalStay;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface HospitalStayRepository extends JpaRepository<HospitalStay, Long> {
+
+    @Override
+    @EntityGraph("HospitalStay.withPatient")
+    List<HospitalStay> findAll();
+
+    @Override
+    @EntityGraph("HospitalStay.withPatient")
+    Optional<HospitalStay> findById(Long id);
+
+    @Query("SELECT new com.hospital.dashboard.dto.StaySpan(s.startDate, s.endDate, s.dailyRate) FROM HospitalStay s "
+            + "WHERE s.startDate IS NOT NULL AND s.endDate IS NOT NULL")
+    List<StaySpan> findAllSpans();
+
+    // Same population as findAllSpans, loaded into the StayIntervalIndex
+    @Query("SELECT new com.hospital.dashboard.dto.StayInterval(s.id, s.startDate, s.endDate, s.dailyRate) "
+            + "FROM HospitalStay s WHERE s.startDate IS NOT NULL AND s.endDate IS NOT NULL")
+    List<StayInterval> findAllIntervals();
+
+    @Query("SELECT new com.hospital.dashboard.dto.StaySpan(s.startDate, s.endDate, s.dailyRate) FROM HospitalStay s "
+            + "WHERE s.startDate <= :end AND s.endDate >= :start")
+    List<StaySpan> findSpansOverlapping(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    // Same rule as RevenueService.calculateStayRevenue: dailyRate x nights, a same-day stay is billed 1 day,
+    // one ending before it starts nothing
+    @Query(value = "SELECT SUM(daily_rate * CASE WHEN DATEDIFF('DAY', start_date, end_date) = 0 THEN 1 "
+            + "ELSE DATEDIFF('DAY', start_date, end_date) END) FROM hospital_stay "
+            + "WHERE start_date IS NOT NULL AND end_date >= start_date AND daily_rate IS NOT NULL", nativeQuery = true)
+    BigDecimal sumRevenue();
+
+    @EntityGraph("HospitalStay.withPatient")
+    List<HospitalStay> findTop5ByPatientIsNotNullAndStartDateIsNotNullAndEndDateIsNotNullOrderByStartDateDesc();
+
+    // Only the table columns: no HospitalStay or Patient is loaded
+    @Query("SELECT new com.hospital.dashboard.dto.StaySummary(s.id, s.startDate, s.endDate, s.dailyRate, s.pathology, "
+            + "p.id, p.firstName, p.lastName) FROM HospitalStay s LEFT JOIN s.patient p ORDER BY s.id")
+    List<StaySummary> findSummaries();
 }
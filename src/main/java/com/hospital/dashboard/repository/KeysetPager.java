@@ -0,0 +1,131 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.dto.KeysetPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination for any entity with a Long id: each page starts strictly after the sort key
+ * of the last row of the previous one, so reading page N costs the same as reading page 1 and rows
+ * inserted meanwhile are neither skipped nor repeated. Pages are ordered by id, or by a date attribute
+ * with the id as tie-breaker; both are backed by an index, as are the date range and patient filters.
+ */
+@Repository
+public class KeysetPager {
+
+    public static final int MAX_LIMIT = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param dateAttribute the date to sort by, or null to sort by id; rows without that date are left out
+     * @param cursor        the nextCursor of the previous page, or null for the first page
+     */
+    public <T> KeysetPage<T> page(Class<T> type, String dateAttribute, boolean descending, String cursor,
+            int limit, LocalDate from, LocalDate to, Long patientId, boolean includeTotal) {
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        if ((from != null || to != null) && dateAttribute == null)
+            throw new IllegalArgumentException("from/to need a date sort");
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        List<Predicate> where = filters(cb, root, dateAttribute, from, to, patientId);
+
+        Path<Long> id = root.get("id");
+        if (cursor != null)
+            where.add(after(cb, root, id, dateAttribute, descending, decode(cursor, dateAttribute)));
+
+        List<Order> order = new ArrayList<>();
+        if (dateAttribute != null)
+            order.add(descending ? cb.desc(root.get(dateAttribute)) : cb.asc(root.get(dateAttribute)));
+        order.add(descending ? cb.desc(id) : cb.asc(id));
+        query.select(root).where(where.toArray(new Predicate[0])).orderBy(order);
+
+        // One extra row tells whether there is a next page without counting
+        List<T> rows = EntityGraphs.withResponseGraph(entityManager, entityManager.createQuery(query), type)
+                .setMaxResults(limit + 1).getResultList();
+        boolean hasNext = rows.size() > limit;
+        List<T> items = hasNext ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = hasNext ? encode(items.get(items.size() - 1), dateAttribute) : null;
+
+        Long total = includeTotal ? count(type, dateAttribute, from, to, patientId) : null;
+        return new KeysetPage<>(items, nextCursor, limit, total);
+    }
+
+    private <T> long count(Class<T> type, String dateAttribute, LocalDate from, LocalDate to, Long patientId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        query.select(cb.count(root))
+                .where(filters(cb, root, dateAttribute, from, to, patientId).toArray(new Predicate[0]));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static List<Predicate> filters(CriteriaBuilder cb, Root<?> root, String dateAttribute,
+            LocalDate from, LocalDate to, Long patientId) {
+        List<Predicate> filters = new ArrayList<>();
+        if (dateAttribute != null) {
+            Path<LocalDate> date = root.get(dateAttribute);
+            filters.add(cb.isNotNull(date));
+            if (from != null)
+                filters.add(cb.greaterThanOrEqualTo(date, from));
+            if (to != null)
+                filters.add(cb.lessThanOrEqualTo(date, to));
+        }
+        if (patientId != null)
+            filters.add(cb.equal(root.get("patient").get("id"), patientId));
+        return filters;
+    }
+
+    private static Predicate after(CriteriaBuilder cb, Root<?> root, Path<Long> id, String dateAttribute,
+            boolean descending, Key key) {
+        Predicate idAfter = descending ? cb.lessThan(id, key.id()) : cb.greaterThan(id, key.id());
+        if (dateAttribute == null)
+            return idAfter;
+        // (date, id) after (key.date, key.id), spelled out so the (date, id) index can seek to it
+        Path<LocalDate> date = root.get(dateAttribute);
+        Predicate dateAfter = descending ? cb.lessThan(date, key.date()) : cb.greaterThan(date, key.date());
+        return cb.or(dateAfter, cb.and(cb.equal(date, key.date()), idAfter));
+    }
+
+    private String encode(Object entity, String dateAttribute) {
+        Object id = entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+        String key = dateAttribute == null ? "id:" + id
+                : "date:" + new BeanWrapperImpl(entity).getPropertyValue(dateAttribute) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Key decode(String cursor, String dateAttribute) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (dateAttribute == null && parts.length == 2 && parts[0].equals("id"))
+                return new Key(null, Long.parseLong(parts[1]));
+            if (dateAttribute != null && parts.length == 3 && parts[0].equals("date"))
+                return new Key(LocalDate.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor for this sort: " + cursor);
+    }
+
+    private record Key(LocalDate date, Long id) {
+    }
+}
@@ -1,9 +1,38 @@
 package com.hospital.dashboard.repository;
 
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.dto.MedicalActSummary;
 import com.hospital.dashboard.model.MedicalAct;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface MedicalActRepository extends JpaRepository<MedicalAct, Long> {
+
+    // Behind the API responses, which nest the patient: fetched in the same query
+    @Override
+    @EntityGraph("MedicalAct.withPatient")
+    List<MedicalAct> findAll();
+
+    @Override
+    @EntityGraph("MedicalAct.withPatient")
+    Optional<MedicalAct> findById(Long id);
+
+    @Query("SELECT new com.hospital.dashboard.dto.DailyCost(a.date, SUM(a.cost), COUNT(a)) FROM MedicalAct a "
+            + "WHERE a.date IS NOT NULL AND a.cost IS NOT NULL GROUP BY a.date ORDER BY a.date")
+    List<DailyCost> sumCostByDay();
+
+    @Query("SELECT SUM(a.cost) FROM MedicalAct a")
+    BigDecimal sumCost();
+
+    // Only the table columns: no MedicalAct or Patient is loaded
+    @Query("SELECT new com.hospital.dashboard.dto.MedicalActSummary(a.id, a.type, a.date, a.practitioner, a.cost, "
+            + "p.id, p.firstName, p.lastName) FROM MedicalAct a LEFT JOIN a.patient p ORDER BY a.id")
+    List<MedicalActSummary> findSummaries();
 }
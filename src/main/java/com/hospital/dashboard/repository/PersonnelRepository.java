@@ -2,9 +2,15 @@ package com.hospital.dashboard.repository;
 
 import com.hospital.dashboard.model.Personnel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+
 @Repository
 public interface PersonnelRepository extends JpaRepository<Personnel, Long> {
     Personnel findByEmail(String email);
+
+    @Query("SELECT SUM(p.costPerDay) FROM Personnel p")
+    BigDecimal sumCostPerDay();
 }
@@ -1,15 +1,25 @@
 package com.hospital.dashboard.service;
 
+import com.hospital.dashboard.cache.DataVersion;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.*;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class ChatService {
@@ -80,19 +90,135 @@ public class ChatService {
     private com.hospital.dashboard.repository.ConsumableRepository consumableRepository;
     @Autowired
     private com.hospital.dashboard.repository.PersonnelRepository personnelRepository;
+    @Autowired
+    private DataVersion dataVersion;
+    @Autowired
+    private LlmAdmissionQueue admissionQueue;
+
+    private static final String CONTEXT_UNAVAILABLE = "Données financières indisponibles pour le moment.";
+
+    // Context block sent with every message, built off the request path; version = -1 asks for a rebuild
+    private volatile FinancialContext context;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService contextExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-context-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    public String chat(String userMessage) {
+    private record FinancialContext(String text, long version) {
+    }
+
+    /**
+     * Answers a message once the LLM admission queue lets the client through. The sub-key only orders
+     * the client's own messages, see {@link LlmAdmissionQueue}.
+     *
+     * @throws LlmBusyException when the queue is full or the wait ran out
+     */
+    public String chat(String userMessage, String clientId, String subKey) {
+        LlmAdmissionQueue.Ticket ticket = admissionQueue.admit(clientId, subKey);
+        try {
+            ticket.await();
+            // Delegate to OpenAiService (which handles smart model detection and HTTP)
+            return openAiService.getChatResponse(userMessage, systemPrompt());
+        } finally {
+            ticket.release();
+        }
+    }
+
+    // Same as chat, the answer streamed token by token. The slot is taken on subscription, so a stream that is
+    // never subscribed holds none, and the wait for it does not hold a thread. A refusal is an LlmBusyException
+    // signal.
+    public Flux<String> chatStream(String userMessage, String clientId, String subKey) {
+        return Flux.defer(() -> {
+            LlmAdmissionQueue.Ticket ticket = admissionQueue.admit(clientId, subKey);
+            // The grant can complete inside another stream's release, on an event-loop thread: the prompt
+            // build and the model lookup may block, so they run off it
+            return ticket.whenGranted()
+                    .publishOn(Schedulers.boundedElastic())
+                    .thenMany(Flux.defer(() -> openAiService.streamChatResponse(userMessage, systemPrompt())))
+                    .doFinally(signal -> ticket.release());
+        });
+    }
+
+    private String systemPrompt() {
         // 1. Fetch Real-time Context
         String contextData = getFinancialContext();
 
         // 2. Build complete system prompt with context
-        String fullSystemPrompt = SYSTEM_PROMPT + "\n\n=== DONNÉES TEMPS RÉEL (CONTEXTE) ===\n" + contextData;
+        return SYSTEM_PROMPT + "\n\n=== DONNÉES TEMPS RÉEL (CONTEXTE) ===\n" + contextData;
+    }
+
+    /**
+     * The context block, from memory. Once the cost data changed (new {@link DataVersion}) the current
+     * block is still served while a rebuild runs in the background; only the very first message waits
+     * for one.
+     */
+    String getFinancialContext() {
+        FinancialContext current = context;
+        if (current == null) {
+            synchronized (this) {
+                current = context;
+                if (current == null)
+                    return rebuildContext();
+            }
+        }
+        if (current.version() != dataVersion.current())
+            rebuildInBackground();
+        return current.text();
+    }
+
+    // The forecast part moves with the date as well, not only with writes
+    @Scheduled(fixedDelayString = "${hospifin.chat.context-refresh-ms:300000}",
+            initialDelayString = "${hospifin.chat.context-refresh-ms:300000}")
+    public void refreshContext() {
+        rebuildInBackground();
+    }
 
-        // 3. Delegate to OpenAiService (which handles smart model detection and HTTP)
-        return openAiService.getChatResponse(userMessage, fullSystemPrompt);
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmContext() {
+        rebuildInBackground();
     }
 
-    private String getFinancialContext() {
+    @PreDestroy
+    public void shutdown() {
+        contextExecutor.shutdownNow();
+    }
+
+    private void rebuildInBackground() {
+        if (!rebuilding.compareAndSet(false, true))
+            return;
+        try {
+            contextExecutor.execute(() -> {
+                try {
+                    rebuildContext();
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            rebuilding.set(false);
+            throw e;
+        }
+    }
+
+    private String rebuildContext() {
+        // Read before the data: a write landing during the build leaves the block marked as outdated
+        long version = dataVersion.current();
+        String text = buildFinancialContext();
+        if (text != null) {
+            context = new FinancialContext(text, version);
+            return text;
+        }
+        // Keep serving the last good block and try again on the next message
+        FinancialContext previous = context;
+        if (previous == null)
+            return CONTEXT_UNAVAILABLE;
+        context = new FinancialContext(previous.text(), -1);
+        return previous.text();
+    }
+
+    private String buildFinancialContext() {
         try {
             // Predict for next 7 days to give context
             Map<String, Object> forecast = forecastService.getGlobalForecast(7);
@@ -132,6 +258,9 @@ public class ChatService {
 
                 sb.append("\n=== MÉTHODOLOGIE PRÉDICTIVE (Détails Techniques) ===\n");
                 sb.append(String.format("- Algorithme: Régression Linéaire Simple + Ajustement Saisonnier\n"));
+                if (method.get("model") != null) {
+                    sb.append(String.format("- Modèle retenu par backtesting: %s\n", method.get("model")));
+                }
                 sb.append(String.format("- Tendance détectée (Pente): %.2f € / jour\n", slope));
                 if (seasonality != null && !seasonality.isEmpty()) {
                     sb.append("- Saisonnalité (Facteurs multiplicateurs >1 = Coût élevé, <1 = Coût faible):\n");
@@ -158,7 +287,8 @@ public class ChatService {
             }
             return sb.toString();
         } catch (Exception e) {
-            return "Données financières indisponibles pour le moment.";
+            logger.warn("Failed to build the chat financial context: " + e.getMessage());
+            return null;
         }
     }
 }
@@ -0,0 +1,207 @@
+package com.hospital.dashboard.service;
+
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.dto.StaySpan;
+import com.hospital.dashboard.model.Consumable;
+import com.hospital.dashboard.model.CostCategory;
+import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.model.MedicalAct;
+import com.hospital.dashboard.model.MoneyAccumulator;
+import com.hospital.dashboard.repository.ConsumableRepository;
+import com.hospital.dashboard.repository.DailyCostRollupRepository;
+import com.hospital.dashboard.repository.HospitalStayRepository;
+import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.service.forecast.ForecastModels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the daily_cost_rollup table: one row per (date, category) holding the summed cost and
+ * the number of events of that day; a stay counts on every day it is billed for. Controllers apply a
+ * delta on every write, and rebuild() backfills the table from the raw facts. Inside a transaction the
+ * deltas are summed per (day, category) and written just before the commit, so a batch of writes costs
+ * one upsert per day touched rather than one per entity.
+ */
+@Service
+public class CostRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostRollupService.class);
+
+    @Autowired
+    private DailyCostRollupRepository rollupRepository;
+    @Autowired
+    private MedicalActRepository medicalActRepository;
+    @Autowired
+    private ConsumableRepository consumableRepository;
+    @Autowired
+    private HospitalStayRepository stayRepository;
+    @Autowired
+    private RevenueService revenueService;
+    @Autowired
+    private DataVersion dataVersion;
+    @Autowired
+    private ForecastModels forecastModels;
+
+    @Transactional
+    public void add(MedicalAct act) {
+        apply(CostCategory.ACTS, act.getDate(), act.getCost(), 1);
+    }
+
+    @Transactional
+    public void remove(MedicalAct act) {
+        apply(CostCategory.ACTS, act.getDate(), act.getCost(), -1);
+    }
+
+    @Transactional
+    public void add(Consumable consumable) {
+        apply(CostCategory.CONSUMABLES, consumable.getDate(), consumable.getTotalCost(), 1);
+    }
+
+    @Transactional
+    public void remove(Consumable consumable) {
+        apply(CostCategory.CONSUMABLES, consumable.getDate(), consumable.getTotalCost(), -1);
+    }
+
+    @Transactional
+    public void add(HospitalStay stay) {
+        applyStay(stay, 1);
+    }
+
+    @Transactional
+    public void remove(HospitalStay stay) {
+        applyStay(stay, -1);
+    }
+
+    public List<DailyCost> dailyTotals(CostCategory category) {
+        return rollupRepository.findDailyTotals(category);
+    }
+
+    public List<DailyCost> dailyTotals(CostCategory category, LocalDate start, LocalDate end) {
+        return rollupRepository.findDailyTotalsBetween(category, start, end);
+    }
+
+    public BigDecimal total(CostCategory category) {
+        BigDecimal total = rollupRepository.sumTotal(category);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    @Transactional
+    public void rebuild() {
+        rollupRepository.deleteAllInBatch();
+
+        int rows = 0;
+        for (DailyCost day : medicalActRepository.sumCostByDay()) {
+            rollupRepository.increment(day.day(), CostCategory.ACTS.name(), day.total(), day.events());
+            rows++;
+        }
+        for (DailyCost day : consumableRepository.sumCostByDay()) {
+            rollupRepository.increment(day.day(), CostCategory.CONSUMABLES.name(), day.total(), day.events());
+            rows++;
+        }
+
+        // Stay revenue is spread over the billed days; the event count is the number of stays that day
+        for (DailyCost day : revenueService.apportionByDay(stayRepository.findAllSpans())) {
+            rollupRepository.increment(day.day(), CostCategory.STAYS.name(), day.total(), day.events());
+            rows++;
+        }
+
+        dataVersion.bumpOnCommit();
+        afterCommit(forecastModels::recompute);
+        logger.info("Daily cost rollup rebuilt: " + rows + " rows");
+    }
+
+    private void applyStay(HospitalStay stay, int sign) {
+        // Same population as HospitalStayRepository.findAllSpans: both dates and a rate are required
+        if (stay.getStartDate() == null || stay.getEndDate() == null || stay.getDailyRate() == null)
+            return;
+        StaySpan span = new StaySpan(stay.getStartDate(), stay.getEndDate(), stay.getDailyRate());
+        for (DailyCost day : revenueService.apportionByDay(List.of(span))) {
+            apply(CostCategory.STAYS, day.day(), day.total(), sign);
+        }
+    }
+
+    private void apply(CostCategory category, LocalDate date, BigDecimal amount, int sign) {
+        if (date == null || amount == null)
+            return;
+        BigDecimal delta = sign < 0 ? amount.negate() : amount;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(category, date, delta, sign);
+            return;
+        }
+        pendingDeltas().computeIfAbsent(new PendingKey(category, date), key -> new PendingDelta()).add(delta, sign);
+    }
+
+    private void write(CostCategory category, LocalDate date, BigDecimal delta, long events) {
+        rollupRepository.increment(date, category.name(), delta, events);
+        // The rollup is written after the entity itself, so cached results must not outlive it either
+        dataVersion.bumpOnCommit();
+        // The online forecast models only see committed deltas
+        afterCommit(() -> forecastModels.apply(category, date, delta, events));
+    }
+
+    // Deltas of the current transaction, bound to it on first use and written before it commits
+    @SuppressWarnings("unchecked")
+    private Map<PendingKey, PendingDelta> pendingDeltas() {
+        Map<PendingKey, PendingDelta> pending = (Map<PendingKey, PendingDelta>) TransactionSynchronizationManager
+                .getResource(this);
+        if (pending != null)
+            return pending;
+        Map<PendingKey, PendingDelta> deltas = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(this, deltas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                deltas.forEach((key, delta) -> {
+                    // An update that moves nothing (same day, same amount) leaves the row alone
+                    if (delta.events != 0 || delta.amount.cents() != 0)
+                        write(key.category(), key.date(), delta.amount.toBigDecimal(), delta.events);
+                });
+                deltas.clear();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CostRollupService.this);
+            }
+        });
+        return deltas;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record PendingKey(CostCategory category, LocalDate date) {
+    }
+
+    private static final class PendingDelta {
+        private final MoneyAccumulator amount = new MoneyAccumulator();
+        private long events;
+
+        private void add(BigDecimal delta, int sign) {
+            amount.add(delta);
+            events += sign;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.hospital.dashboard.service;
 
+import com.hospital.dashboard.dto.StaySpan;
 import com.hospital.dashboard.model.*;
 import com.hospital.dashboard.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -106,28 +107,24 @@ public class CustomAIService {
     public Map<String, Object> trainModel() {
         // 1. Aggregate Real Data
         long patientCount = patientRepository.count();
-        List<HospitalStay> stays = stayRepository.findAll();
-        List<MedicalAct> acts = medicalActRepository.findAll();
+        // Aggregates and projections only: no stay or act entity is loaded
+        List<StaySpan> stays = stayRepository.findAllSpans();
+        long stayCount = stayRepository.count();
+        long actCount = medicalActRepository.count();
         long medicationCount = medicationRepository.count();
         long consumableCount = consumableRepository.count();
         long personnelCount = personnelRepository.count();
 
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        for (HospitalStay stay : stays) {
-            if (stay.getEndDate() != null && stay.getStartDate() != null && stay.getDailyRate() != null) {
-                long days = stay.getEndDate().toEpochDay() - stay.getStartDate().toEpochDay();
-                totalRevenue = totalRevenue.add(stay.getDailyRate().multiply(BigDecimal.valueOf(days)));
-            }
-        }
-        for (MedicalAct act : acts) {
-            if (act.getCost() != null) {
-                totalRevenue = totalRevenue.add(act.getCost());
-            }
+        MoneyAccumulator revenue = new MoneyAccumulator();
+        for (StaySpan stay : stays) {
+            long days = stay.endDate().toEpochDay() - stay.startDate().toEpochDay();
+            revenue.addTimes(stay.dailyRate(), days);
         }
+        revenue.add(medicalActRepository.sumCost());
+        BigDecimal totalRevenue = revenue.toBigDecimal();
 
         double avgStayDuration = stays.stream()
-                .filter(s -> s.getEndDate() != null && s.getStartDate() != null)
-                .mapToLong(s -> s.getEndDate().toEpochDay() - s.getStartDate().toEpochDay())
+                .mapToLong(s -> s.endDate().toEpochDay() - s.startDate().toEpochDay())
                 .average().orElse(0.0);
 
         // 2. Simulate/Calculate Trends (Heuristic for Demo)
@@ -144,8 +141,8 @@ public class CustomAIService {
         trainedModel.put("patientCount", patientCount);
         trainedModel.put("totalRevenue", totalRevenue);
         trainedModel.put("avgStayDuration", avgStayDuration);
-        trainedModel.put("stayCount", stays.size());
-        trainedModel.put("actCount", acts.size());
+        trainedModel.put("stayCount", stayCount);
+        trainedModel.put("actCount", actCount);
         trainedModel.put("medicationCount", medicationCount);
         trainedModel.put("consumableCount", consumableCount);
         trainedModel.put("personnelCount", personnelCount);
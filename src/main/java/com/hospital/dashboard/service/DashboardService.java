@@ -1,92 +1,213 @@
 package com.hospital.dashboard.service;
 
-import com.hospital.dashboard.model.*;
+import com.hospital.dashboard.cache.ResultCache;
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.dto.StayInterval;
+import com.hospital.dashboard.dto.StayRevenueSummary;
+import com.hospital.dashboard.dto.StaySpan;
+import com.hospital.dashboard.model.CostCategory;
+import com.hospital.dashboard.model.MoneyAccumulator;
 import com.hospital.dashboard.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class DashboardService {
 
+        private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+        private static final String CATEGORY_ACTS = "Actes Médicaux";
+        private static final String CATEGORY_CONSUMABLES = "Consommables";
+        private static final String CATEGORY_STAYS = "Séjours";
+        private static final String CATEGORY_PERSONNEL = "Personnel";
+
         @Autowired
         private HospitalStayRepository stayRepository;
         @Autowired
-        private MedicalActRepository medicalActRepository;
-        @Autowired
-        private ConsumableRepository consumableRepository;
-        @Autowired
         private PersonnelRepository personnelRepository;
         @Autowired
         private ForecastServiceV2 forecastService;
         @Autowired
         private RevenueService revenueService;
+        @Autowired
+        private CostRollupService costRollupService;
+        @Autowired
+        private ResultCache resultCache;
+        @Autowired
+        private StayIntervalIndex stayIntervalIndex;
+        @Autowired
+        @Qualifier("dashboardExecutor")
+        private Executor dashboardExecutor;
+
+        @Value("${hospifin.dashboard.section-timeout-ms:2000}")
+        private long sectionTimeoutMs;
 
         public Map<String, Object> getDashboardSummary() {
+                // Served from cache until the next write; the date is part of the key as windows are relative.
+                // A degraded summary is returned but not cached, so the next poll tries again.
+                LocalDate now = LocalDate.now();
+                return resultCache.get("dashboard:summary:" + now, () -> computeDashboardSummary(now),
+                                summary -> !summary.containsKey("degradedSections"));
+        }
+
+        private Map<String, Object> computeDashboardSummary(LocalDate now) {
                 Map<String, Object> summary = new HashMap<>();
+                List<String> degradedSections = new ArrayList<>();
 
-                // 1. Calculate Totals (Current Month vs Previous Month for Trends)
-                LocalDate now = LocalDate.now();
                 LocalDate startOfMonth = now.minusDays(30); // Rolling 30 days as per UI "30 jours"
                 LocalDate startOfPrevMonth = startOfMonth.minusDays(30);
                 LocalDate endOfPrevMonth = startOfMonth.minusDays(1);
 
-                // Real Cost
-                BigDecimal currentRealCost = calculateTotalRealCost(startOfMonth, now);
-                BigDecimal prevRealCost = calculateTotalRealCost(startOfPrevMonth, endOfPrevMonth);
-                summary.put("totalRealCost", currentRealCost);
-                summary.put("totalRealCostTrend", calculateTrend(currentRealCost, prevRealCost));
+                // The sections that read data are independent: run them concurrently, each with its own timeout.
+                // Everything else is derived from the totals in memory.
+                CompletableFuture<SummaryWindows> totalsSection = section(
+                                () -> aggregate(startOfMonth, now, startOfPrevMonth, endOfPrevMonth));
+                CompletableFuture<Map<String, Object>> forecastSection = section(
+                                () -> forecastService.getGlobalForecast(30));
+                CompletableFuture<List<Map<String, Object>>> recentStaysSection = section(
+                                () -> getRecentStays(now));
+
+                // 1. Calculate Totals (Current Month vs Previous Month for Trends)
+                SummaryWindows windows = await("totals", totalsSection, degradedSections);
+                BigDecimal currentRealCost = null;
+                if (windows != null) {
+                        // Real Cost
+                        currentRealCost = windows.total(windows.current);
+                        BigDecimal prevRealCost = windows.total(windows.previous);
+                        summary.put("totalRealCost", currentRealCost);
+                        summary.put("totalRealCostTrend", calculateTrend(currentRealCost, prevRealCost));
+
+                        // Avg Cost per Stay
+                        BigDecimal avgCost = average(windows.currentStays);
+                        BigDecimal prevAvgCost = average(windows.previousStays);
+                        summary.put("avgCostPerStay", avgCost);
+                        summary.put("avgCostPerStayTrend", calculateTrend(avgCost, prevAvgCost));
+
+                        // Personnel Ratio
+                        double ratio = calculatePersonnelRatio(windows.monthlyPersonnelCost, currentRealCost);
+                        double prevRatio = calculatePersonnelRatio(windows.monthlyPersonnelCost, prevRealCost);
+                        summary.put("personnelCostRatio", ratio);
+                        summary.put("personnelCostRatioTrend", ratio - prevRatio); // Absolute diff for %
+
+                        // 2. Cost by Service (Department)
+                        summary.put("costByService", convertBreakdownToList(windows.allTime));
+
+                        // 3. Cost by Category (New)
+                        summary.put("costByCategory", convertBreakdownToList(windows.allTime));
+
+                        // 5. Smart Alert
+                        summary.put("smartAlert", generateSmartAlert(windows.current, windows.previous,
+                                        currentRealCost, prevRealCost));
+                }
 
                 // Predicted Cost (Real Logic via ForecastServiceV2)
-                Map<String, Object> forecast = forecastService.getGlobalForecast(30);
-                BigDecimal predictedCostRaw = (BigDecimal) forecast.get("globalPrediction");
-                BigDecimal predictedCost = predictedCostRaw != null
-                                ? predictedCostRaw.setScale(2, java.math.RoundingMode.HALF_UP)
-                                : BigDecimal.ZERO;
-
-                // Comparing Predicted (Next 30d) vs Real (Last 30d) for trend
-                summary.put("totalPredictedCost", predictedCost);
-                summary.put("totalPredictedCostTrend", calculateTrend(predictedCost, currentRealCost));
-
-                // Avg Cost per Stay
-                BigDecimal avgCost = calculateAvgCostPerStay(startOfMonth, now);
-                BigDecimal prevAvgCost = calculateAvgCostPerStay(startOfPrevMonth, endOfPrevMonth);
-                summary.put("avgCostPerStay", avgCost);
-                summary.put("avgCostPerStayTrend", calculateTrend(avgCost, prevAvgCost));
-
-                // Personnel Ratio
-                double ratio = calculatePersonnelRatio(currentRealCost);
-                double prevRatio = calculatePersonnelRatio(prevRealCost);
-                summary.put("personnelCostRatio", ratio);
-                summary.put("personnelCostRatioTrend", ratio - prevRatio); // Absolute diff for %
-
-                // 2. Cost by Service (Department)
-                summary.put("costByService", calculateCostByService());
-
-                // 3. Cost by Category (New)
-                summary.put("costByCategory", calculateCostByCategory(currentRealCost));
+                Map<String, Object> forecast = await("forecast", forecastSection, degradedSections);
+                if (forecast != null) {
+                        BigDecimal predictedCostRaw = (BigDecimal) forecast.get("globalPrediction");
+                        BigDecimal predictedCost = predictedCostRaw != null
+                                        ? predictedCostRaw.setScale(2, java.math.RoundingMode.HALF_UP)
+                                        : BigDecimal.ZERO;
+                        summary.put("totalPredictedCost", predictedCost);
+
+                        // Comparing Predicted (Next 30d) vs Real (Last 30d) for trend
+                        if (currentRealCost != null)
+                                summary.put("totalPredictedCostTrend", calculateTrend(predictedCost, currentRealCost));
+                }
 
                 // 4. Recent Stays
-                summary.put("recentStays", getRecentStays());
-
-                // 5. Smart Alert
-                summary.put("smartAlert", generateSmartAlert(currentRealCost, prevRealCost));
+                List<Map<String, Object>> recentStays = await("recentStays", recentStaysSection, degradedSections);
+                if (recentStays != null)
+                        summary.put("recentStays", recentStays);
 
+                if (!degradedSections.isEmpty())
+                        summary.put("degradedSections", degradedSections);
                 return summary;
         }
 
-        private List<Map<String, Object>> calculateCostByCategory(BigDecimal totalCost) {
-                return convertBreakdownToList(getBreakdown(null, null));
+        // A section that times out is only abandoned: its work cannot be interrupted and finishes in the pool
+        private <T> CompletableFuture<T> section(Supplier<T> work) {
+                CompletableFuture<T> future;
+                try {
+                        future = CompletableFuture.supplyAsync(work, dashboardExecutor);
+                } catch (RejectedExecutionException e) {
+                        future = CompletableFuture.failedFuture(e);
+                }
+                return future.orTimeout(sectionTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        private <T> T await(String section, CompletableFuture<T> future, List<String> degradedSections) {
+                try {
+                        return future.join();
+                } catch (CompletionException e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof TimeoutException)
+                                logger.warn("Dashboard section '" + section + "' missed its " + sectionTimeoutMs + " ms timeout");
+                        else if (cause instanceof RejectedExecutionException)
+                                logger.warn("Dashboard section '" + section + "' rejected: the dashboard pool is saturated");
+                        else
+                                logger.warn("Dashboard section '" + section + "' failed: " + cause.getMessage());
+                }
+                degradedSections.add(section);
+                return null;
+        }
+
+        private SummaryWindows aggregate(LocalDate start, LocalDate end, LocalDate prevStart, LocalDate prevEnd) {
+                SummaryWindows windows = new SummaryWindows(start, end, prevStart, prevEnd);
+
+                // Daily rollup rows only cover the two windows; all-time totals are one SUM each
+                for (DailyCost day : costRollupService.dailyTotals(CostCategory.ACTS, prevStart, end)) {
+                        windows.addDaily(CATEGORY_ACTS, day.day(), day.total());
+                }
+                windows.setAllTime(CATEGORY_ACTS, costRollupService.total(CostCategory.ACTS));
+
+                for (DailyCost day : costRollupService.dailyTotals(CostCategory.CONSUMABLES, prevStart, end)) {
+                        windows.addDaily(CATEGORY_CONSUMABLES, day.day(), day.total());
+                }
+                windows.setAllTime(CATEGORY_CONSUMABLES, costRollupService.total(CostCategory.CONSUMABLES));
+
+                // Stay revenue is rolled up per billed day, so a window gets the nights it contains
+                for (DailyCost day : costRollupService.dailyTotals(CostCategory.STAYS, prevStart, end)) {
+                        windows.addDaily(CATEGORY_STAYS, day.day(), day.total());
+                }
+                windows.setAllTime(CATEGORY_STAYS, costRollupService.total(CostCategory.STAYS));
+
+                // The average cost per stay still takes whole stays: every stay overlapping the window
+                List<StaySpan> spans = stayIntervalIndex.overlapping(prevStart, end).stream()
+                                .map(StayInterval::span)
+                                .toList();
+                windows.setStays(
+                                revenueService.summarize(spans.stream().filter(span -> overlaps(span, start, end))),
+                                revenueService.summarize(spans.stream().filter(span -> overlaps(span, prevStart, prevEnd))));
+
+                BigDecimal dailyPersonnelCost = orZero(personnelRepository.sumCostPerDay());
+                windows.setMonthlyPersonnelCost(dailyPersonnelCost.multiply(BigDecimal.valueOf(30)));
+
+                return windows.finish();
+        }
+
+        private static boolean overlaps(StaySpan span, LocalDate start, LocalDate end) {
+                return !span.startDate().isAfter(end) && !span.endDate().isBefore(start);
         }
 
-        private List<Map<String, Object>> calculateCostByService() {
-                // Reuse the same breakdown logic, or refine if service-specific logic is needed
-                return convertBreakdownToList(getBreakdown(null, null));
+        private BigDecimal orZero(BigDecimal value) {
+                return value != null ? value : BigDecimal.ZERO;
         }
 
         private List<Map<String, Object>> convertBreakdownToList(Map<String, BigDecimal> breakdown) {
@@ -102,38 +223,16 @@ public class DashboardService {
                 return map;
         }
 
-        private BigDecimal calculateTotalRealCost(LocalDate start, LocalDate end) {
-                Map<String, BigDecimal> breakdown = getBreakdown(start, end);
-                return breakdown.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
-        }
-
-        private BigDecimal calculateAvgCostPerStay(LocalDate start, LocalDate end) {
-                // Optimisation: Reuse calculateTotal for stays
-                List<HospitalStay> stays = stayRepository.findAll();
-                BigDecimal totalCost = calculateTotal(stays,
-                                s -> s.getStartDate() != null && s.getEndDate() != null
-                                                && (start == null || !s.getStartDate().isAfter(end))
-                                                && (end == null || !s.getEndDate().isBefore(start)),
-                                revenueService::calculateStayRevenue);
-
-                long count = stays.stream()
-                                .filter(s -> s.getStartDate() != null && s.getEndDate() != null
-                                                && (start == null || !s.getStartDate().isAfter(end))
-                                                && (end == null || !s.getEndDate().isBefore(start)))
-                                .count();
-
-                if (count == 0)
+        private BigDecimal average(StayRevenueSummary<?> stays) {
+                if (stays == null || stays.stays() == 0)
                         return BigDecimal.ZERO;
-                return totalCost.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+                return stays.total().divide(BigDecimal.valueOf(stays.stays()), 2, RoundingMode.HALF_UP);
         }
 
-        private double calculatePersonnelRatio(BigDecimal totalCost) {
+        private double calculatePersonnelRatio(BigDecimal monthlyPersonnelCost, BigDecimal totalCost) {
                 if (totalCost.compareTo(BigDecimal.ZERO) == 0)
                         return 0;
-                BigDecimal personnel = calculateTotal(personnelRepository.findAll(), p -> true,
-                                Personnel::getCostPerDay)
-                                .multiply(BigDecimal.valueOf(30));
-                return personnel.divide(totalCost, 4, RoundingMode.HALF_UP).doubleValue() * 100;
+                return monthlyPersonnelCost.divide(totalCost, 4, RoundingMode.HALF_UP).doubleValue() * 100;
         }
 
         private double calculateTrend(BigDecimal current, BigDecimal previous) {
@@ -142,12 +241,9 @@ public class DashboardService {
                 return current.subtract(previous).divide(previous, 4, RoundingMode.HALF_UP).doubleValue() * 100;
         }
 
-        private List<Map<String, Object>> getRecentStays() {
-                return stayRepository.findAll().stream()
-                                .filter(s -> s.getStartDate() != null && s.getEndDate() != null
-                                                && s.getPatient() != null)
-                                .sorted((s1, s2) -> s2.getStartDate().compareTo(s1.getStartDate()))
-                                .limit(5)
+        private List<Map<String, Object>> getRecentStays(LocalDate now) {
+                return stayRepository.findTop5ByPatientIsNotNullAndStartDateIsNotNullAndEndDateIsNotNullOrderByStartDateDesc()
+                                .stream()
                                 .map(s -> {
                                         BigDecimal cost = revenueService.calculateStayRevenue(s);
                                         Map<String, Object> map = new HashMap<>();
@@ -159,7 +255,7 @@ public class DashboardService {
                                                         : "";
                                         map.put("patientName", firstName + " " + lastName);
                                         map.put("department", s.getPathology() != null ? s.getPathology() : "N/A");
-                                        map.put("status", s.getEndDate().isAfter(LocalDate.now()) ? "En cours"
+                                        map.put("status", s.getEndDate().isAfter(now) ? "En cours"
                                                         : "Terminé");
                                         map.put("cost", cost);
                                         return map;
@@ -167,18 +263,11 @@ public class DashboardService {
                                 .collect(Collectors.toList());
         }
 
-        private Map<String, Object> generateSmartAlert(BigDecimal current, BigDecimal prev) {
+        private Map<String, Object> generateSmartAlert(Map<String, BigDecimal> currentBreakdown,
+                        Map<String, BigDecimal> prevBreakdown, BigDecimal current, BigDecimal prev) {
                 Map<String, Object> alert = new HashMap<>();
                 double trend = calculateTrend(current, prev);
 
-                LocalDate now = LocalDate.now();
-                LocalDate startOfMonth = now.minusDays(30);
-                LocalDate startOfPrev = startOfMonth.minusDays(30);
-                LocalDate endOfPrev = startOfMonth.minusDays(1);
-
-                Map<String, BigDecimal> currentBreakdown = getBreakdown(startOfMonth, now);
-                Map<String, BigDecimal> prevBreakdown = getBreakdown(startOfPrev, endOfPrev);
-
                 String maxDriver = "Général";
                 BigDecimal maxDelta = BigDecimal.ZERO;
 
@@ -221,48 +310,94 @@ public class DashboardService {
                 return alert;
         }
 
-        private Map<String, BigDecimal> getBreakdown(LocalDate start, LocalDate end) {
-                Map<String, BigDecimal> map = new HashMap<>();
+        private static boolean isWithinDateRange(LocalDate date, LocalDate start, LocalDate end) {
+                return date != null && !date.isAfter(end) && !date.isBefore(start);
+        }
 
-                BigDecimal acts = calculateTotal(medicalActRepository.findAll(),
-                                a -> isWithinDateRange(a.getDate(), start, end),
-                                MedicalAct::getCost);
+        /**
+         * Accumulates the current window, the previous window and the all-time totals in one pass over
+         * the aggregated facts, so each source is queried once per summary instead of once per KPI.
+         */
+        private static final class SummaryWindows {
+                private final LocalDate start;
+                private final LocalDate end;
+                private final LocalDate prevStart;
+                private final LocalDate prevEnd;
+
+                // Window sums stay in cents until every row is in, then become BigDecimal once
+                private final Map<String, MoneyAccumulator> currentSums = emptySums();
+                private final Map<String, MoneyAccumulator> previousSums = emptySums();
+                private Map<String, BigDecimal> current;
+                private Map<String, BigDecimal> previous;
+                private final Map<String, BigDecimal> allTime = emptyBreakdown();
+
+                private StayRevenueSummary<Void> currentStays;
+                private StayRevenueSummary<Void> previousStays;
+                private BigDecimal monthlyPersonnelCost = BigDecimal.ZERO;
+
+                private SummaryWindows(LocalDate start, LocalDate end, LocalDate prevStart, LocalDate prevEnd) {
+                        this.start = start;
+                        this.end = end;
+                        this.prevStart = prevStart;
+                        this.prevEnd = prevEnd;
+                }
 
-                BigDecimal cons = calculateTotal(consumableRepository.findAll(),
-                                c -> isWithinDateRange(c.getDate(), start, end),
-                                Consumable::getTotalCost);
+                private static Map<String, BigDecimal> emptyBreakdown() {
+                        Map<String, BigDecimal> map = new HashMap<>();
+                        map.put(CATEGORY_ACTS, BigDecimal.ZERO);
+                        map.put(CATEGORY_CONSUMABLES, BigDecimal.ZERO);
+                        map.put(CATEGORY_STAYS, BigDecimal.ZERO);
+                        map.put(CATEGORY_PERSONNEL, BigDecimal.ZERO);
+                        return map;
+                }
 
-                BigDecimal stays = calculateTotal(stayRepository.findAll(),
-                                s -> isWithinDateRange(s.getStartDate(), start, end)
-                                                && isWithinDateRange(s.getEndDate(), start, end),
-                                revenueService::calculateStayRevenue);
+                private static Map<String, MoneyAccumulator> emptySums() {
+                        Map<String, MoneyAccumulator> map = new HashMap<>();
+                        for (String category : emptyBreakdown().keySet()) {
+                                map.put(category, new MoneyAccumulator());
+                        }
+                        return map;
+                }
 
-                BigDecimal pers = calculateTotal(personnelRepository.findAll(),
-                                p -> true,
-                                Personnel::getCostPerDay).multiply(BigDecimal.valueOf(30));
+                private void addDaily(String category, LocalDate date, BigDecimal amount) {
+                        if (date == null || amount == null)
+                                return;
+                        if (isWithinDateRange(date, start, end))
+                                currentSums.get(category).add(amount);
+                        if (isWithinDateRange(date, prevStart, prevEnd))
+                                previousSums.get(category).add(amount);
+                }
 
-                map.put("Actes Médicaux", acts);
-                map.put("Consommables", cons);
-                map.put("Séjours", stays);
-                map.put("Personnel", pers);
+                private void setStays(StayRevenueSummary<Void> currentStays, StayRevenueSummary<Void> previousStays) {
+                        this.currentStays = currentStays;
+                        this.previousStays = previousStays;
+                }
 
-                return map;
-        }
+                private void setAllTime(String category, BigDecimal amount) {
+                        allTime.put(category, amount);
+                }
 
-        private boolean isWithinDateRange(LocalDate date, LocalDate start, LocalDate end) {
-                if (date == null)
-                        return false;
-                if (start == null && end == null)
-                        return true;
-                return !date.isAfter(end) && !date.isBefore(start);
-        }
+                private void setMonthlyPersonnelCost(BigDecimal monthlyPersonnelCost) {
+                        this.monthlyPersonnelCost = monthlyPersonnelCost;
+                        currentSums.put(CATEGORY_PERSONNEL, new MoneyAccumulator().add(monthlyPersonnelCost));
+                        previousSums.put(CATEGORY_PERSONNEL, new MoneyAccumulator().add(monthlyPersonnelCost));
+                        allTime.put(CATEGORY_PERSONNEL, monthlyPersonnelCost);
+                }
+
+                private SummaryWindows finish() {
+                        current = toBreakdown(currentSums);
+                        previous = toBreakdown(previousSums);
+                        return this;
+                }
 
-        private <T> BigDecimal calculateTotal(List<T> items, java.util.function.Predicate<T> filter,
-                        java.util.function.Function<T, BigDecimal> mapper) {
-                return items.stream()
-                                .filter(filter)
-                                .map(mapper)
-                                .filter(java.util.Objects::nonNull)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                private static Map<String, BigDecimal> toBreakdown(Map<String, MoneyAccumulator> sums) {
+                        Map<String, BigDecimal> map = new HashMap<>();
+                        sums.forEach((category, sum) -> map.put(category, sum.toBigDecimal()));
+                        return map;
+                }
+
+                private BigDecimal total(Map<String, BigDecimal> breakdown) {
+                        return breakdown.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+                }
         }
 }
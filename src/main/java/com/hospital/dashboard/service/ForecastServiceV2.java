@@ -1,69 +1,91 @@
 package com.hospital.dashboard.service;
 
-import com.hospital.dashboard.model.Consumable;
-import com.hospital.dashboard.model.HospitalStay;
-import com.hospital.dashboard.model.MedicalAct;
-import com.hospital.dashboard.repository.ConsumableRepository;
-import com.hospital.dashboard.repository.HospitalStayRepository;
-import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.cache.ResultCache;
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.model.CostCategory;
+import com.hospital.dashboard.model.MoneyAccumulator;
 import com.hospital.dashboard.repository.PersonnelRepository;
-import com.hospital.dashboard.model.Personnel;
+import com.hospital.dashboard.service.forecast.Backtester;
+import com.hospital.dashboard.service.forecast.BootstrapIntervals;
+import com.hospital.dashboard.service.forecast.ForecastModels;
+import com.hospital.dashboard.service.forecast.Forecaster;
+import com.hospital.dashboard.service.forecast.LinearSeasonalModel;
+import com.hospital.dashboard.service.forecast.ModelSelection;
+import com.hospital.dashboard.service.forecast.OnlineRegressionModel;
+import com.hospital.dashboard.service.forecast.TimeSeries;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @Service
 public class ForecastServiceV2 {
 
     @Autowired
-    private MedicalActRepository medicalActRepository;
+    private PersonnelRepository personnelRepository;
     @Autowired
-    private ConsumableRepository consumableRepository;
+    private CostRollupService costRollupService;
     @Autowired
-    private HospitalStayRepository stayRepository;
+    private ResultCache resultCache;
     @Autowired
-    private PersonnelRepository personnelRepository;
+    private ForecastModels forecastModels;
+    @Autowired
+    private Backtester backtester;
     @Autowired
-    private RevenueService revenueService;
+    private BootstrapIntervals bootstrapIntervals;
 
     public Map<String, Object> getGlobalForecast(int days) {
+        return getGlobalForecast(days, false);
+    }
+
+    public Map<String, Object> getGlobalForecast(int days, boolean intervals) {
+        // Predictions are relative to today, so the date is part of the key
+        String key = "forecast:global:" + days + (intervals ? ":intervals:" : ":") + LocalDate.now();
+        // Intervals cut short by the time budget are served once, then recomputed in full
+        return resultCache.get(key, () -> computeGlobalForecast(days, intervals), response -> !isDegraded(response));
+    }
+
+    private static boolean isDegraded(Map<String, Object> response) {
+        Object intervals = response.get("intervals");
+        return intervals instanceof Map<?, ?> meta && Boolean.TRUE.equals(meta.get("degraded"));
+    }
+
+    private Map<String, Object> computeGlobalForecast(int days, boolean intervals) {
         // Increase daily resolution threshold to cover 90 days
         boolean isDaily = days <= 120;
         Map<String, Object> response = new HashMap<>();
 
         // 1. Predictions per category
-        Map<String, Object> medicalActsData = predictMedicalActsCosts(days, isDaily);
-        response.put("medicalActs", medicalActsData);
+        CategoryForecast medicalActs = predict(CostCategory.ACTS, days, isDaily);
+        response.put("medicalActs", medicalActs.toResponse());
 
-        Map<String, Object> consumablesData = predictConsumablesCosts(days, isDaily);
-        response.put("consumables", consumablesData);
+        CategoryForecast consumables = predict(CostCategory.CONSUMABLES, days, isDaily);
+        response.put("consumables", consumables.toResponse());
 
-        Map<String, Object> staysData = predictStaysCosts(days, isDaily);
-        response.put("stays", staysData);
+        CategoryForecast stays = predict(CostCategory.STAYS, days, isDaily);
+        response.put("stays", stays.toResponse());
 
         // 2. Global Totals
-        BigDecimal totalCurrent = ((BigDecimal) medicalActsData.get("currentTotal"))
-                .add((BigDecimal) consumablesData.get("currentTotal"))
-                .add((BigDecimal) staysData.get("currentTotal"));
+        BigDecimal totalCurrent = medicalActs.currentTotal
+                .add(consumables.currentTotal)
+                .add(stays.currentTotal);
 
         // Add Personnel Cost (Base Load)
-        BigDecimal dailyPersonnelCost = personnelRepository.findAll().stream()
-                .map(Personnel::getCostPerDay)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal dailyPersonnelCost = personnelRepository.sumCostPerDay();
+        if (dailyPersonnelCost == null)
+            dailyPersonnelCost = BigDecimal.ZERO;
 
         // Add 30 days of personnel cost to current total (to match DashboardService
         // logic)
         totalCurrent = totalCurrent.add(dailyPersonnelCost.multiply(BigDecimal.valueOf(30)));
 
-        BigDecimal totalPredicted = ((BigDecimal) medicalActsData.get("predictedTotal"))
-                .add((BigDecimal) consumablesData.get("predictedTotal"))
-                .add((BigDecimal) staysData.get("predictedTotal"));
+        BigDecimal totalPredicted = BigDecimal.valueOf(medicalActs.predictedTotal)
+                .add(BigDecimal.valueOf(consumables.predictedTotal))
+                .add(BigDecimal.valueOf(stays.predictedTotal));
 
         // Add 30 days of personnel cost to predicted total
         totalPredicted = totalPredicted.add(dailyPersonnelCost.multiply(BigDecimal.valueOf(30)));
@@ -71,294 +93,304 @@ public class ForecastServiceV2 {
         response.put("globalTotal", totalCurrent);
         response.put("globalPrediction", totalPredicted);
 
-        // 3. Aggregate Global History (Real + Predicted)
-        Object actsHistoryRaw = medicalActsData.get("history");
-        Object consHistoryRaw = consumablesData.get("history");
-        Object staysHistoryRaw = staysData.get("history");
-
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> actsHistory = actsHistoryRaw instanceof List
-                ? (List<Map<String, Object>>) actsHistoryRaw
-                : new ArrayList<>();
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> consHistory = consHistoryRaw instanceof List
-                ? (List<Map<String, Object>>) consHistoryRaw
-                : new ArrayList<>();
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> staysHistory = staysHistoryRaw instanceof List
-                ? (List<Map<String, Object>>) staysHistoryRaw
-                : new ArrayList<>();
-
-        // Merge all histories by date/month
-        Map<String, Map<String, BigDecimal>> mergedMap = new TreeMap<>();
-        mergeHistory(mergedMap, actsHistory);
-        mergeHistory(mergedMap, consHistory);
-        mergeHistory(mergedMap, staysHistory);
+        // Optional p10/p90 ranges by residual bootstrap over the three categories
+        BootstrapIntervals.Result bands = null;
+        if (intervals) {
+            bands = bootstrapIntervals.compute(List.of(medicalActs.path(), consumables.path(), stays.path()));
+            if (bands.available()) {
+                BigDecimal personnelTotal = dailyPersonnelCost.multiply(BigDecimal.valueOf(30));
+                response.put("globalPredictionP10", amount(bands.totalLow()).add(personnelTotal));
+                response.put("globalPredictionP90", amount(bands.totalHigh()).add(personnelTotal));
+            }
+            Map<String, Object> meta = new HashMap<>();
+            meta.put("low", "p10");
+            meta.put("high", "p90");
+            meta.put("resamples", bands.resamples());
+            meta.put("requested", bands.requested());
+            meta.put("degraded", bands.degraded());
+            response.put("intervals", meta);
+        }
+
+        // 3. Aggregate Global History (Real + Predicted), merged by period on primitive arrays
+        BigDecimal personnelAdder = isDaily ? dailyPersonnelCost
+                : dailyPersonnelCost.multiply(BigDecimal.valueOf(30));
+        response.put("globalHistory",
+                mergeHistories(isDaily, personnelAdder, bands, medicalActs, consumables, stays));
+
+        return response;
+    }
 
+    private List<Map<String, Object>> mergeHistories(boolean isDaily, BigDecimal personnelAdder,
+            BootstrapIntervals.Result bands, CategoryForecast... forecasts) {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (CategoryForecast forecast : forecasts) {
+            if (forecast.lastPeriod == -1)
+                continue;
+            first = Math.min(first, forecast.firstShownPeriod());
+            last = Math.max(last, forecast.lastPeriod + forecast.future.length);
+        }
         List<Map<String, Object>> globalHistory = new ArrayList<>();
-        for (Map.Entry<String, Map<String, BigDecimal>> entry : mergedMap.entrySet()) {
+        if (first > last)
+            return globalHistory;
+
+        int length = (int) (last - first + 1);
+        double[] real = new double[length];
+        double[] predicted = new double[length];
+        double[] predictedFuture = new double[length];
+        boolean[] hasReal = new boolean[length];
+        boolean[] hasPoint = new boolean[length];
+
+        for (CategoryForecast forecast : forecasts) {
+            TimeSeries series = forecast.series;
+            for (int i = forecast.firstShown; i < series.length(); i++) {
+                if (!series.isPresent(i))
+                    continue;
+                int slot = (int) (series.period(i) - first);
+                real[slot] += series.value(i);
+                predicted[slot] += Math.max(0, forecast.fitted[i]);
+                hasReal[slot] = true;
+                hasPoint[slot] = true;
+            }
+            for (int step = 0; step < forecast.future.length; step++) {
+                int slot = (int) (forecast.lastPeriod + step + 1 - first);
+                predicted[slot] += Math.max(0, forecast.future[step]);
+                predictedFuture[slot] += Math.max(0, forecast.future[step]);
+                hasPoint[slot] = true;
+            }
+        }
+
+        // Boxing happens here, at the JSON boundary
+        for (int slot = 0; slot < length; slot++) {
+            if (!hasPoint[slot])
+                continue;
             Map<String, Object> point = new HashMap<>();
-            point.put("month", entry.getKey()); // "month" key kept for compatibility, but contains date if daily
+            point.put("month", TimeSeries.labelOf(first + slot, isDaily)); // "month" key kept for compatibility, but contains date if daily
             // Only put "real" if it exists, otherwise leave entirely out (undefined in JS)
-            BigDecimal realVal = entry.getValue().get("real");
-            BigDecimal predVal = entry.getValue().get("predicted");
-            BigDecimal basePred = predVal != null ? predVal : BigDecimal.ZERO;
-
-            // Add personnel baseline
-            // If isDaily, add 1 day cost. If monthly, add ~30 days cost.
-            BigDecimal personnelAdder = isDaily ? dailyPersonnelCost
-                    : dailyPersonnelCost.multiply(BigDecimal.valueOf(30));
-
-            if (realVal != null) {
+            if (hasReal[slot]) {
                 // Add personnel cost to Real
-                realVal = realVal.add(personnelAdder);
+                BigDecimal realVal = amount(real[slot]).add(personnelAdder);
                 point.put("real", realVal);
                 point.put("cost", realVal);
             }
-
             // Add personnel cost to Predicted
-            basePred = basePred.add(personnelAdder);
-            point.put("predicted", basePred);
-
+            point.put("predicted", BigDecimal.valueOf(predicted[slot]).add(personnelAdder));
+            // The bootstrap covers the predicted part; fitted values of other categories are added as is
+            int band = bands != null && bands.available() ? (int) (first + slot - bands.firstPeriod()) : -1;
+            if (band >= 0 && band < bands.low().length) {
+                double known = predicted[slot] - predictedFuture[slot];
+                point.put("p10", amount(known + bands.low()[band]).add(personnelAdder));
+                point.put("p90", amount(known + bands.high()[band]).add(personnelAdder));
+            }
             globalHistory.add(point);
         }
-        response.put("globalHistory", globalHistory);
-
-        return response;
+        return globalHistory;
     }
 
-    private void mergeHistory(Map<String, Map<String, BigDecimal>> target, List<Map<String, Object>> source) {
-        if (source == null)
-            return;
-        for (Map<String, Object> item : source) {
-            String key = (String) item.get("month"); // Date key
-            BigDecimal real = (BigDecimal) item.get("real");
-            BigDecimal predicted = (BigDecimal) item.get("predicted");
-
-            target.putIfAbsent(key, new HashMap<>());
-            Map<String, BigDecimal> prices = target.get(key);
-
-            if (real != null) {
-                prices.merge("real", real, BigDecimal::add);
-            }
-            if (predicted != null) {
-                prices.merge("predicted", predicted, BigDecimal::add);
-            }
+    private CategoryForecast predict(CostCategory category, int days, boolean isDaily) {
+        if (isDaily) {
+            // The online model already holds the fit; only the days shown are read
+            OnlineRegressionModel.Fit fit = forecastModels.fit(category, LocalDate.now().minusDays(days));
+            // Best model by backtesting, kept until the data changes
+            ModelSelection selection = resultCache.get("forecast:model:" + category,
+                    () -> backtester.select(forecastModels.history(category)));
+            return calculateDailyPrediction(fit, selection, days);
         }
+        // Monthly horizons regroup the daily rollup into months: one row per day instead of one entity per act
+        return calculateMonthlyPrediction(costRollupService.dailyTotals(category), days);
     }
 
-    private Map<String, Object> predictMedicalActsCosts(int days, boolean isDaily) {
-        List<MedicalAct> acts = medicalActRepository.findAll();
-        return calculatePrediction(acts, MedicalAct::getDate, MedicalAct::getCost, days, isDaily);
-    }
-
-    private Map<String, Object> predictConsumablesCosts(int days, boolean isDaily) {
-        List<Consumable> consumables = consumableRepository.findAll();
-        return calculatePrediction(consumables, Consumable::getDate, Consumable::getTotalCost, days, isDaily);
-    }
-
-    private Map<String, Object> predictStaysCosts(int days, boolean isDaily) {
-        List<HospitalStay> stays = stayRepository.findAll();
-        return calculatePrediction(stays, HospitalStay::getStartDate,
-                stay -> revenueService.calculateStayRevenue(stay), days, isDaily);
-    }
-
-    private <T> Map<String, Object> calculatePrediction(List<T> items,
-            java.util.function.Function<T, LocalDate> dateExtractor,
-            java.util.function.Function<T, BigDecimal> costExtractor,
-            int daysToPredict, boolean isDaily) {
-
-        Map<String, Object> result = new HashMap<>();
-
-        // 1. Group Data & Calculate Seasonality
-        Map<String, BigDecimal> groupedCosts = new TreeMap<>();
-        BigDecimal currentTotal = BigDecimal.ZERO;
-
-        // Seasonality Helpers
-        Map<java.time.DayOfWeek, List<BigDecimal>> dayOfWeekValues = new EnumMap<>(java.time.DayOfWeek.class);
-        for (java.time.DayOfWeek day : java.time.DayOfWeek.values()) {
-            dayOfWeekValues.put(day, new ArrayList<>());
+    private CategoryForecast calculateDailyPrediction(OnlineRegressionModel.Fit fit, ModelSelection selection,
+            int daysToPredict) {
+        // The linear-seasonal model is served by the online fit, the others by the fitted selection
+        double[] seasonality = fit.weekdayIndices();
+        Forecaster forecaster = selection.forecaster() != null && !LinearSeasonalModel.NAME.equals(selection.model())
+                ? selection.forecaster()
+                : period -> seasonal(fit.predict(period), seasonality, period);
+
+        // Back-test on the history shown, then predict the next daysToPredict days: O(horizon)
+        TimeSeries window = fit.window();
+        double[] fitted = new double[window.length()];
+        for (int i = 0; i < window.length(); i++) {
+            if (window.isPresent(i))
+                fitted[i] = forecaster.predict(window.period(i));
         }
 
-        DateTimeFormatter formatter = isDaily ? DateTimeFormatter.ISO_LOCAL_DATE
-                : DateTimeFormatter.ofPattern("yyyy-MM");
-
-        for (T item : items) {
-            LocalDate date = dateExtractor.apply(item);
-            BigDecimal cost = costExtractor.apply(item);
-
-            if (date != null && cost != null) {
-                String key = date.format(formatter);
-                groupedCosts.merge(key, cost, BigDecimal::add);
-                currentTotal = currentTotal.add(cost);
-
-                // Collect for seasonality (only makes sense for Daily)
-                if (isDaily) {
-                    dayOfWeekValues.get(date.getDayOfWeek()).add(cost);
-                }
-            }
+        long lastPeriod = fit.lastDay();
+        double[] future = new double[lastPeriod != -1 ? daysToPredict : 0];
+        double totalFuturePredicted = 0.0;
+        for (int step = 0; step < future.length; step++) {
+            long period = lastPeriod + step + 1;
+            future[step] = forecaster.predict(period);
+            totalFuturePredicted += Math.max(0, future[step]);
         }
 
-        // Calculate Seasonality Indices
-        Map<java.time.DayOfWeek, Double> seasonalityIndices = new EnumMap<>(java.time.DayOfWeek.class);
-        if (isDaily && !groupedCosts.isEmpty()) {
-            BigDecimal globalSum = BigDecimal.ZERO;
-            long globalCount = 0;
+        return new CategoryForecast(window, fit.total(), 0, fitted, lastPeriod, future, totalFuturePredicted,
+                fit.slope(), seasonality, selection);
+    }
 
-            // Calculate Global Average
-            for (BigDecimal val : groupedCosts.values()) {
-                globalSum = globalSum.add(val);
-                globalCount++;
-            }
-            double globalAvg = globalCount > 0 ? globalSum.doubleValue() / globalCount : 0;
-
-            // Calculate Index per Day
-            for (java.time.DayOfWeek day : java.time.DayOfWeek.values()) {
-                List<BigDecimal> values = dayOfWeekValues.get(day);
-                if (values.isEmpty()) {
-                    seasonalityIndices.put(day, 1.0); // Neutral
-                } else {
-                    double daySum = values.stream().mapToDouble(BigDecimal::doubleValue).sum();
-                    double dayAvg = daySum / values.size();
-                    double index = (globalAvg != 0) ? (dayAvg / globalAvg) : 1.0;
-                    // Dampen the index specifically for the graph to not go to 0 completely (e.g.
-                    // min 0.2)
-                    // If index is < 0.2, likely missing data, boost it a bit for smoothing or keep
-                    // raw.
-                    // Let's keep raw but safeguard against extreme 0s if broad history suggests
-                    // otherwise.
-                    seasonalityIndices.put(day, index);
-                }
-            }
+    private CategoryForecast calculateMonthlyPrediction(List<DailyCost> items, int daysToPredict) {
+        // 1. Group Data into a dense series (one bucket per month)
+        TimeSeries series = group(items, false);
+        MoneyAccumulator currentTotal = new MoneyAccumulator();
+        for (DailyCost item : items) {
+            if (item.day() != null)
+                currentTotal.add(item.total());
         }
 
-        // 2. Regression
+        // 2. Regression (no weekday seasonality at month resolution)
         SimpleRegression regression = new SimpleRegression();
-        List<Map<String, Object>> history = new ArrayList<>();
-
-        long firstTime = -1;
-
-        for (Map.Entry<String, BigDecimal> entry : groupedCosts.entrySet()) {
-            double xVal;
-            if (isDaily) {
-                xVal = LocalDate.parse(entry.getKey(), formatter).toEpochDay();
-            } else {
-                String[] parts = entry.getKey().split("-");
-                xVal = (double) Integer.parseInt(parts[0]) * 12 + Integer.parseInt(parts[1]);
-            }
-
-            if (firstTime == -1)
-                firstTime = (long) xVal;
+        for (int i = 0; i < series.length(); i++) {
+            if (series.isPresent(i))
+                regression.addData(series.period(i), series.value(i));
+        }
 
-            regression.addData(xVal, entry.getValue().doubleValue());
+        // 3. Back-test on the history shown: only the last daysToPredict / 30 months
+        LocalDate limitDate = LocalDate.now().minusMonths(daysToPredict / 30);
+        long limitPeriod = TimeSeries.periodOf(limitDate, false);
+        if (limitDate.getDayOfMonth() != 1)
+            limitPeriod++; // A month is shown when its first day is not before the limit
+        int firstShown = (int) Math.max(0, Math.min(series.length(), limitPeriod - series.origin()));
+
+        double[] fitted = new double[series.length()];
+        for (int i = firstShown; i < series.length(); i++) {
+            if (series.isPresent(i))
+                fitted[i] = regression.predict(series.period(i));
         }
 
-        // 3. Build History
-        // Filter Logic
-        LocalDate limitDate = LocalDate.now().minusDays(daysToPredict);
-        if (!isDaily) {
-            limitDate = LocalDate.now().minusMonths(daysToPredict / 30);
+        // 4. Future Predictions
+        long lastPeriod = series.lastPeriod();
+        int steps = (int) Math.ceil(daysToPredict / 30.0);
+        double[] future = new double[lastPeriod != -1 ? steps : 0];
+        double totalFuturePredicted = 0.0;
+        for (int step = 0; step < future.length; step++) {
+            future[step] = regression.predict(lastPeriod + step + 1);
+            totalFuturePredicted += Math.max(0, future[step]);
         }
 
-        for (Map.Entry<String, BigDecimal> entry : groupedCosts.entrySet()) {
-            double xVal;
-            LocalDate entryDate;
-            if (isDaily) {
-                entryDate = LocalDate.parse(entry.getKey(), formatter);
-                xVal = entryDate.toEpochDay();
-            } else {
-                String[] parts = entry.getKey().split("-");
-                entryDate = LocalDate.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), 1);
-                xVal = (double) Integer.parseInt(parts[0]) * 12 + Integer.parseInt(parts[1]);
-            }
+        return new CategoryForecast(series, currentTotal.toBigDecimal(), firstShown, fitted, lastPeriod, future,
+                totalFuturePredicted, regression.getSlope(), null, null);
+    }
 
-            // FILTER APPLIED HERE
-            if (entryDate.isBefore(limitDate)) {
+    private TimeSeries group(List<DailyCost> items, boolean isDaily) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (DailyCost item : items) {
+            if (item.day() == null || item.total() == null)
                 continue;
-            }
+            long period = TimeSeries.periodOf(item.day(), isDaily);
+            min = Math.min(min, period);
+            max = Math.max(max, period);
+        }
+        if (min > max)
+            return TimeSeries.empty(isDaily);
 
-            // Raw Regression Prediction
-            double trend = regression.predict(xVal);
+        TimeSeries series = new TimeSeries(isDaily, min, (int) (max - min + 1));
+        for (DailyCost item : items) {
+            if (item.day() != null && item.total() != null)
+                series.add(TimeSeries.periodOf(item.day(), isDaily), item.total().doubleValue());
+        }
+        return series;
+    }
 
-            // Apply Seasonality (Back-test on history to see fit)
-            double predicted = trend;
-            if (isDaily && seasonalityIndices.containsKey(entryDate.getDayOfWeek())) {
-                predicted *= seasonalityIndices.get(entryDate.getDayOfWeek());
-            }
+    private static double seasonal(double trend, double[] seasonality, long period) {
+        return seasonality != null ? trend * seasonality[TimeSeries.dayOfWeekIndex(period)] : trend;
+    }
 
-            Map<String, Object> point = new HashMap<>();
-            point.put("month", entry.getKey());
-            point.put("real", entry.getValue());
-            point.put("predicted", BigDecimal.valueOf(Math.max(0, predicted)));
+    private static BigDecimal amount(double value) {
+        // Amounts are grouped as doubles; round back to cents for the response
+        return BigDecimal.valueOf(Math.round(value * 100), 2);
+    }
 
-            history.add(point);
+    /** Primitive result of one category forecast; converted to maps only for the response. */
+    private static final class CategoryForecast {
+        private final TimeSeries series;
+        private final BigDecimal currentTotal;
+        private final int firstShown;
+        private final double[] fitted;
+        private final long lastPeriod;
+        private final double[] future;
+        private final double predictedTotal;
+        private final double slope;
+        private final double[] seasonality;
+        private final ModelSelection selection;
+
+        private CategoryForecast(TimeSeries series, BigDecimal currentTotal, int firstShown, double[] fitted,
+                long lastPeriod, double[] future, double predictedTotal, double slope, double[] seasonality,
+                ModelSelection selection) {
+            this.series = series;
+            this.currentTotal = currentTotal;
+            this.firstShown = firstShown;
+            this.fitted = fitted;
+            this.lastPeriod = lastPeriod;
+            this.future = future;
+            this.predictedTotal = predictedTotal;
+            this.slope = slope;
+            this.seasonality = seasonality;
+            this.selection = selection;
         }
 
-        // 4. Future Predictions
-        double totalFuturePredicted = 0.0;
-        long lastX = -1;
-        if (!groupedCosts.isEmpty()) {
-            String lastKey = ((TreeMap<String, BigDecimal>) groupedCosts).lastKey();
-            if (isDaily) {
-                lastX = LocalDate.parse(lastKey, formatter).toEpochDay();
-            } else {
-                String[] parts = lastKey.split("-");
-                lastX = (long) Integer.parseInt(parts[0]) * 12 + Integer.parseInt(parts[1]);
+        /** First period of the history shown, or the first predicted period when none is shown. */
+        private long firstShownPeriod() {
+            for (int i = firstShown; i < series.length(); i++) {
+                if (series.isPresent(i))
+                    return series.period(i);
             }
+            return lastPeriod + 1;
         }
 
-        int steps = isDaily ? daysToPredict : (int) Math.ceil(daysToPredict / 30.0);
-
-        if (lastX != -1) {
-            for (int i = 1; i <= steps; i++) {
-                double trend = regression.predict((double) lastX + i);
-                double val = trend;
-
-                // Smart Seasonality for Future
-                if (isDaily) {
-                    LocalDate futureDate = LocalDate.ofEpochDay(lastX + i);
-                    if (seasonalityIndices.containsKey(futureDate.getDayOfWeek())) {
-                        val *= seasonalityIndices.get(futureDate.getDayOfWeek());
-                    }
-                }
-
-                totalFuturePredicted += Math.max(0, val);
+        /** Future predictions with the in-sample residuals of the history shown, for the bootstrap. */
+        private BootstrapIntervals.Path path() {
+            double[] residuals = new double[series.length()];
+            int n = 0;
+            for (int i = firstShown; i < series.length(); i++) {
+                if (series.isPresent(i))
+                    residuals[n++] = series.value(i) - fitted[i];
+            }
+            return new BootstrapIntervals.Path(lastPeriod + 1, future, Arrays.copyOf(residuals, n));
+        }
 
-                // Add Future Points to History
+        private Map<String, Object> toResponse() {
+            boolean isDaily = series.isDaily();
+            List<Map<String, Object>> history = new ArrayList<>();
+            for (int i = firstShown; i < series.length(); i++) {
+                if (!series.isPresent(i))
+                    continue;
+                Map<String, Object> point = new HashMap<>();
+                point.put("month", TimeSeries.labelOf(series.period(i), isDaily));
+                point.put("real", amount(series.value(i)));
+                point.put("predicted", BigDecimal.valueOf(Math.max(0, fitted[i])));
+                history.add(point);
+            }
+            for (int step = 0; step < future.length; step++) {
                 Map<String, Object> futurePoint = new HashMap<>();
-                String label;
-                if (isDaily) {
-                    label = LocalDate.ofEpochDay(lastX + i).format(formatter);
-                } else {
-                    long futureMonthIndex = lastX + i;
-                    long year = futureMonthIndex / 12;
-                    long month = futureMonthIndex % 12;
-                    if (month == 0) {
-                        month = 12;
-                        year--;
-                    }
-                    label = String.format("%d-%02d", year, month);
-                }
-
-                futurePoint.put("month", label);
-                // "real" key allows visualized continuity on frontend graph
-                futurePoint.put("predicted", BigDecimal.valueOf(Math.max(0, val)));
+                futurePoint.put("month", TimeSeries.labelOf(lastPeriod + step + 1, isDaily));
+                futurePoint.put("predicted", BigDecimal.valueOf(Math.max(0, future[step])));
                 futurePoint.put("isPrediction", true);
-
                 history.add(futurePoint);
             }
-        }
 
-        result.put("currentTotal", currentTotal);
-        result.put("predictedTotal", BigDecimal.valueOf(totalFuturePredicted));
-        result.put("history", history);
+            Map<String, Object> result = new HashMap<>();
+            result.put("currentTotal", currentTotal);
+            result.put("predictedTotal", BigDecimal.valueOf(predictedTotal));
+            result.put("history", history);
 
-        // Explainability Metrics
-        Map<String, Object> methodology = new HashMap<>();
-        methodology.put("slope", regression.getSlope());
-        methodology.put("seasonality", seasonalityIndices);
-        result.put("methodology", methodology);
-
-        return result;
+            // Explainability Metrics
+            Map<DayOfWeek, Double> seasonalityIndices = new EnumMap<>(DayOfWeek.class);
+            if (seasonality != null) {
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    seasonalityIndices.put(day, seasonality[day.ordinal()]);
+                }
+            }
+            Map<String, Object> methodology = new HashMap<>();
+            methodology.put("slope", slope);
+            methodology.put("seasonality", seasonalityIndices);
+            if (selection != null) {
+                methodology.put("model", selection.model());
+                methodology.put("backtestMae", selection.scores());
+            }
+            result.put("methodology", methodology);
+            return result;
+        }
     }
 }
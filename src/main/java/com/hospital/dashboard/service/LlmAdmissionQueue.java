@@ -0,0 +1,304 @@
+package com.hospital.dashboard.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Admission control in front of the LLM: at most {@code hospifin.llm.queue.max-concurrent} chats run
+ * at once, the others wait in a bounded queue. Waiting requests are served round-robin per client, so
+ * a client sending a burst only gets its turn like everyone else. The sub-keys of a client (the app
+ * instances of a user, say) share its turn round-robin, and its share of the queue. A request that finds the queue (or its client's share of it) full, or that waited longer than
+ * {@code hospifin.llm.queue.max-wait-ms}, is refused with a {@link LlmBusyException} carrying a retry
+ * hint based on the recent chat durations.
+ */
+@Component
+public class LlmAdmissionQueue {
+
+    private static final String ANONYMOUS = "anonymous";
+    private static final int WAIT_SAMPLES = 1024;
+
+    private final int maxConcurrent;
+    private final int capacity;
+    private final int perClientCapacity;
+    private final long maxWaitMs;
+
+    private int running;
+    private int queued;
+    // Waiting tickets per client, and the order in which the clients get their next turn
+    private final Map<String, Waiting> waiting = new HashMap<>();
+    private final ArrayDeque<String> turns = new ArrayDeque<>();
+
+    private long admitted;
+    private long rejected;
+    private long timedOut;
+    private long maxQueued;
+    // Recent waits (ring buffer) for the percentiles, and a moving average of the time a slot is held
+    private final long[] waitSamples = new long[WAIT_SAMPLES];
+    private long waitSampleCount;
+    private double avgServiceMs;
+
+    @Autowired
+    public LlmAdmissionQueue(@Value("${hospifin.llm.queue.max-concurrent:2}") int maxConcurrent,
+            @Value("${hospifin.llm.queue.capacity:50}") int capacity,
+            @Value("${hospifin.llm.queue.per-client-capacity:5}") int perClientCapacity,
+            @Value("${hospifin.llm.queue.max-wait-ms:30000}") long maxWaitMs) {
+        this.maxConcurrent = maxConcurrent;
+        this.capacity = capacity;
+        this.perClientCapacity = perClientCapacity;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public Ticket admit(String clientId) {
+        return admit(clientId, null);
+    }
+
+    /**
+     * Takes a place for a chat of that client, granted at once when a slot is free. The ticket must be
+     * released once the chat is over, or abandoned.
+     *
+     * @throws LlmBusyException when the queue or the client's share of it is full
+     */
+    public synchronized Ticket admit(String clientId, String subKey) {
+        String client = clientId != null && !clientId.isBlank() ? clientId : ANONYMOUS;
+        Ticket ticket = new Ticket(client, subKey != null ? subKey : "");
+        if (running < maxConcurrent && queued == 0) {
+            running++;
+            admitted++;
+            ticket.markGranted();
+            recordWait(0);
+            ticket.granted.complete(null);
+            return ticket;
+        }
+        Waiting own = waiting.get(client);
+        if (queued >= capacity || (own != null && own.size >= perClientCapacity)) {
+            rejected++;
+            throw new LlmBusyException(retryAfterSeconds());
+        }
+        if (own == null) {
+            own = new Waiting();
+            waiting.put(client, own);
+            turns.add(client);
+        }
+        own.add(ticket);
+        queued++;
+        maxQueued = Math.max(maxQueued, queued);
+        return ticket;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long[] waits = Arrays.copyOf(waitSamples, (int) Math.min(waitSampleCount, WAIT_SAMPLES));
+        Arrays.sort(waits);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("capacity", capacity);
+        stats.put("running", running);
+        stats.put("queueDepth", queued);
+        stats.put("maxQueueDepth", maxQueued);
+        stats.put("waitingClients", waiting.size());
+        stats.put("admitted", admitted);
+        stats.put("rejected", rejected);
+        stats.put("timedOut", timedOut);
+        stats.put("waitMsP50", percentile(waits, 0.50));
+        stats.put("waitMsP95", percentile(waits, 0.95));
+        stats.put("waitMsMax", waits.length == 0 ? 0 : waits[waits.length - 1]);
+        stats.put("avgServiceMs", Math.round(avgServiceMs));
+        return stats;
+    }
+
+    private void release(Ticket ticket) {
+        List<Ticket> granted;
+        synchronized (this) {
+            if (ticket.released)
+                return;
+            ticket.released = true;
+            if (ticket.grantedAt == 0) {
+                withdraw(ticket);
+                return;
+            }
+            running--;
+            double serviceMs = (System.nanoTime() - ticket.grantedAt) / 1_000_000.0;
+            avgServiceMs = avgServiceMs == 0 ? serviceMs : 0.8 * avgServiceMs + 0.2 * serviceMs;
+            granted = dispatch();
+        }
+        // Outside the lock: whatever waits on the ticket starts running here
+        granted.forEach(next -> next.granted.complete(null));
+    }
+
+    // Gives the free slots to the waiting clients in turn
+    private List<Ticket> dispatch() {
+        List<Ticket> granted = new ArrayList<>();
+        while (running < maxConcurrent && queued > 0) {
+            String client = turns.poll();
+            Waiting own = waiting.get(client);
+            Ticket next = own.poll();
+            if (own.isEmpty())
+                waiting.remove(client);
+            else
+                turns.add(client);
+            queued--;
+            running++;
+            admitted++;
+            next.markGranted();
+            recordWait((next.grantedAt - next.enqueuedAt) / 1_000_000);
+            granted.add(next);
+        }
+        return granted;
+    }
+
+    // Takes a ticket that was never granted out of the queue; false if it was granted in the meantime
+    private synchronized boolean expire(Ticket ticket) {
+        if (ticket.grantedAt != 0)
+            return false;
+        if (!ticket.released) {
+            ticket.released = true;
+            withdraw(ticket);
+            timedOut++;
+        }
+        return true;
+    }
+
+    private void withdraw(Ticket ticket) {
+        Waiting own = waiting.get(ticket.client);
+        if (own == null || !own.remove(ticket))
+            return;
+        queued--;
+        if (own.isEmpty()) {
+            waiting.remove(ticket.client);
+            turns.remove(ticket.client);
+        }
+    }
+
+    private void recordWait(long waitMs) {
+        waitSamples[(int) (waitSampleCount % WAIT_SAMPLES)] = waitMs;
+        waitSampleCount++;
+    }
+
+    // Time for the queue ahead to drain at the current pace, at least one second
+    private long retryAfterSeconds() {
+        double drainMs = (queued + 1) * Math.max(avgServiceMs, 1000) / maxConcurrent;
+        return Math.max(1, (long) Math.ceil(drainMs / 1000));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    // One client's waiting tickets, and the order in which its sub-keys get their next turn
+    private static final class Waiting {
+
+        private final Map<String, ArrayDeque<Ticket>> bySubKey = new HashMap<>();
+        private final ArrayDeque<String> turns = new ArrayDeque<>();
+        private int size;
+
+        void add(Ticket ticket) {
+            ArrayDeque<Ticket> own = bySubKey.get(ticket.subKey);
+            if (own == null) {
+                own = new ArrayDeque<>();
+                bySubKey.put(ticket.subKey, own);
+                turns.add(ticket.subKey);
+            }
+            own.add(ticket);
+            size++;
+        }
+
+        Ticket poll() {
+            String subKey = turns.poll();
+            ArrayDeque<Ticket> own = bySubKey.get(subKey);
+            Ticket next = own.poll();
+            if (own.isEmpty())
+                bySubKey.remove(subKey);
+            else
+                turns.add(subKey);
+            size--;
+            return next;
+        }
+
+        boolean remove(Ticket ticket) {
+            ArrayDeque<Ticket> own = bySubKey.get(ticket.subKey);
+            if (own == null || !own.remove(ticket))
+                return false;
+            size--;
+            if (own.isEmpty()) {
+                bySubKey.remove(ticket.subKey);
+                turns.remove(ticket.subKey);
+            }
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    public final class Ticket {
+
+        private final String client;
+        private final String subKey;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+        // Guarded by the queue
+        private long grantedAt;
+        private boolean released;
+
+        private Ticket(String client, String subKey) {
+            this.client = client;
+            this.subKey = subKey;
+        }
+
+        private void markGranted() {
+            grantedAt = Math.max(System.nanoTime(), 1);
+        }
+
+        /** Blocks until the ticket is granted. */
+        public void await() {
+            try {
+                granted.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (expire(this))
+                    throw new LlmBusyException(retryAfter());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                release();
+                throw new LlmBusyException(retryAfter());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** Completes once the ticket is granted, without holding a thread while it waits. */
+        public Mono<Void> whenGranted() {
+            return Mono.fromFuture(granted, true)
+                    .timeout(Duration.ofMillis(maxWaitMs))
+                    .onErrorResume(TimeoutException.class,
+                            e -> expire(this) ? Mono.<Void>error(new LlmBusyException(retryAfter()))
+                                    : Mono.<Void>empty());
+        }
+
+        public void release() {
+            LlmAdmissionQueue.this.release(this);
+        }
+
+        private long retryAfter() {
+            synchronized (LlmAdmissionQueue.this) {
+                return retryAfterSeconds();
+            }
+        }
+    }
+}
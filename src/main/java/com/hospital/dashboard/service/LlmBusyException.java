@@ -0,0 +1,27 @@
+package com.hospital.dashboard.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// The LLM admission queue is full (or the wait ran out): 429 with a Retry-After hint in seconds
+public class LlmBusyException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public LlmBusyException(long retryAfterSeconds) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Assistant IA saturé, réessayez dans " + retryAfterSeconds + " s.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return headers;
+    }
+}
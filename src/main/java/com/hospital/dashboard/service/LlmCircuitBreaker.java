@@ -0,0 +1,112 @@
+package com.hospital.dashboard.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around the LLM endpoint. After {@code hospifin.llm.breaker.failure-threshold}
+ * consecutive failures it opens and calls are refused, so chat falls back at once instead of waiting on
+ * a dead server. Once {@code hospifin.llm.breaker.open-ms} has passed, a single probe call is let
+ * through (half-open): its success closes the breaker, its failure opens it for another period.
+ */
+@Component
+public class LlmCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMs;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long opened;
+    private long rejected;
+
+    @Autowired
+    public LlmCircuitBreaker(@Value("${hospifin.llm.breaker.failure-threshold:3}") int failureThreshold,
+            @Value("${hospifin.llm.breaker.open-ms:30000}") long openMs) {
+        this(failureThreshold, openMs, System::currentTimeMillis);
+    }
+
+    LlmCircuitBreaker(int failureThreshold, long openMs, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether a call may go out now. A caller that got true must report {@link #onSuccess()},
+     * {@link #onFailure()} or, if it gave up without an outcome, {@link #release()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED)
+            return true;
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            logger.info("LLM circuit half-open: probing the endpoint");
+            return true;
+        }
+        // Open, or half-open with the probe still out
+        rejected++;
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED)
+            logger.info("LLM circuit closed: the endpoint answered");
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            opened++;
+            logger.warn("LLM circuit open after " + consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    // A probe cancelled before any outcome: the next call probes again
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong() - openMs;
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", state.name());
+        // 0 = closed, 1 = half-open, 2 = open, for charting
+        stats.put("stateLevel", state == State.CLOSED ? 0 : state == State.HALF_OPEN ? 1 : 2);
+        stats.put("consecutiveFailures", consecutiveFailures);
+        stats.put("failureThreshold", failureThreshold);
+        stats.put("openMs", openMs);
+        stats.put("opened", opened);
+        stats.put("rejected", rejected);
+        return stats;
+    }
+}
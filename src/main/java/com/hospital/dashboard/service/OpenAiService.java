@@ -1,90 +1,89 @@
 package com.hospital.dashboard.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class OpenAiService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAiService.class);
 
+    private static final String DEFAULT_MODEL = "local-model";
+    private static final String STREAM_END = "[DONE]";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> STREAM_EVENT =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ObjectMapper JSON = new ObjectMapper();
+
     @Value("${openai.api.key}")
     private String apiKey;
 
-    private RestTemplate restTemplate = new RestTemplate();
-    // LM Studio Local Endpoint
-    private static final String OPENAI_URL = "http://localhost:1234/v1/chat/completions";
+    // LM Studio local endpoint, see LlmClientConfig
+    @Autowired
+    @Qualifier("llmWebClient")
+    private WebClient webClient;
 
-    public String getChatResponse(String userMessage) {
-        return getChatResponse(userMessage, null);
-    }
+    @Autowired
+    private LlmCircuitBreaker circuitBreaker;
 
-    public String getChatResponse(String userMessage, String systemContext) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey != null ? apiKey : "lm-studio");
+    @Value("${hospifin.llm.model-ttl-ms:300000}")
+    private long modelTtlMs;
 
-        String systemPrompt = (systemContext != null && !systemContext.isEmpty())
-                ? systemContext
-                : "You are a helpful medical assistant for a hospital financial dashboard. Keep answers short and professional.";
+    @Value("${hospifin.llm.discovery-timeout-ms:3000}")
+    private long discoveryTimeoutMs;
 
-        String modelId = "local-model";
-        try {
-            // Attempt to auto-detect model for JIT loading
-            ResponseEntity<Map> modelResponse = restTemplate.getForEntity("http://localhost:1234/v1/models", Map.class);
-            Map<String, Object> modelBody = modelResponse.getBody();
-            if (modelBody != null && modelBody.containsKey("data")) {
-                List<Map<String, Object>> data = (List<Map<String, Object>>) modelBody.get("data");
-                if (!data.isEmpty()) {
-                    // Smart Selection: Find first model that is NOT an embedding model
-                    for (Map<String, Object> modelNode : data) {
-                        String id = (String) modelNode.get("id");
-                        if (id != null) {
-                            String lowerId = id.toLowerCase();
-                            // Skip embedding, audio, or vision specific if needed (mostly embedding is the
-                            // issue)
-                            if (lowerId.contains("embed")) {
-                                continue;
-                            }
-                            // Prefer instruct or chat models
-                            modelId = id;
-                            break;
-                        }
-                    }
-                    // If we didn't find a non-embedding model, revert to first or specific fallback
-                    if (modelId.equals("local-model")) {
-                        modelId = (String) data.get(0).get("id");
-                    }
+    @Value("${hospifin.llm.response-timeout-ms:60000}")
+    private long responseTimeoutMs;
 
-                    logger.info("Auto-detected model: " + modelId);
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to auto-detect model: " + e.getMessage());
-        }
+    // Detected model id; once it is older than the TTL it is still used while a refresh runs
+    private volatile CachedModel model;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", modelId);
-        requestBody.put("messages", List.of(
-                Map.of("role", "system", "content", systemPrompt),
-                Map.of("role", "user", "content", userMessage)));
+    private record CachedModel(String id, long fetchedAt) {
+    }
+
+    public String getChatResponse(String userMessage) {
+        return getChatResponse(userMessage, null);
+    }
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+    public String getChatResponse(String userMessage, String systemContext) {
+        if (!circuitBreaker.tryAcquire()) {
+            logger.debug("LM Studio circuit open. Switching to Fallback Mode.");
+            return getFallbackResponse(userMessage);
+        }
+        Map<String, Object> requestBody = permittedRequest(userMessage, systemContext);
 
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(OPENAI_URL, entity, Map.class);
-            Map<String, Object> body = response.getBody();
+            Map<String, Object> body = webClient.post()
+                    .uri("/chat/completions")
+                    .headers(this::authorize)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToMono(Map.class)
+                    .block(Duration.ofMillis(responseTimeoutMs));
+            circuitBreaker.onSuccess();
             if (body != null && body.containsKey("choices")) {
                 Object choicesRaw = body.get("choices");
                 if (choicesRaw instanceof List) {
@@ -104,11 +103,16 @@ public class OpenAiService {
                 }
             }
         } catch (Exception e) {
-            String errorMsg = e.getMessage();
+            record(e);
+            String errorMsg = e instanceof WebClientResponseException responseException
+                    ? responseException.getMessage() + " " + responseException.getResponseBodyAsString()
+                    : e.getMessage();
             logger.error("Error communicating with LM Studio: " + errorMsg);
 
             if (errorMsg != null && errorMsg.contains("Model is not llm")) {
                 logger.warn("Embedding model detected instead of Chat model. Switching to Fallback Mode.");
+                // The loaded models changed: detect again on the next request
+                expireModel();
                 return getFallbackResponse(userMessage);
             }
 
@@ -119,6 +123,169 @@ public class OpenAiService {
         return getFallbackResponse(userMessage);
     }
 
+    /**
+     * The completion as it is generated, one chunk per {@code "stream": true} delta. Cancelling the
+     * subscription (the client went away) closes the upstream connection, which stops the generation.
+     * A failure before the first chunk yields the fallback answer as a single chunk; the response
+     * timeout bounds the wait for each chunk.
+     */
+    public Flux<String> streamChatResponse(String userMessage, String systemContext) {
+        return Flux.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                logger.debug("LM Studio circuit open. Switching to Fallback Mode.");
+                return Flux.just(getFallbackResponse(userMessage));
+            }
+            Map<String, Object> requestBody = permittedRequest(userMessage, systemContext);
+            requestBody.put("stream", true);
+
+            AtomicBoolean started = new AtomicBoolean();
+            return webClient.post()
+                    .uri("/chat/completions")
+                    .headers(this::authorize)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(STREAM_EVENT)
+                    .timeout(Duration.ofMillis(responseTimeoutMs))
+                    .mapNotNull(ServerSentEvent::data)
+                    .takeWhile(data -> !STREAM_END.equals(data.trim()))
+                    .mapNotNull(OpenAiService::deltaContent)
+                    .filter(content -> !content.isEmpty())
+                    .doOnNext(content -> {
+                        if (started.compareAndSet(false, true))
+                            circuitBreaker.onSuccess();
+                    })
+                    .doOnComplete(() -> {
+                        if (!started.get())
+                            circuitBreaker.onSuccess();
+                    })
+                    // Cancelled before the first token: no verdict on the endpoint
+                    .doOnCancel(() -> {
+                        if (!started.get())
+                            circuitBreaker.release();
+                    })
+                    .onErrorResume(e -> {
+                        record(e);
+                        logger.error("Error streaming from LM Studio: " + e.getMessage());
+                        if (started.get())
+                            return Flux.error(e);
+                        logger.warn("LM Studio unreachable. Switching to Fallback Mode.");
+                        return Flux.just(getFallbackResponse(userMessage));
+                    });
+        });
+    }
+
+    // Refused requests (4xx) mean the endpoint is up; connection errors, timeouts, 5xx and 429 count against it
+    private void record(Throwable e) {
+        if (e instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is4xxClientError()
+                && responseException.getStatusCode().value() != 429) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    // Built once the breaker let the call through: if building fails, no call goes out and the permit is returned
+    private Map<String, Object> permittedRequest(String userMessage, String systemContext) {
+        try {
+            return completionRequest(userMessage, systemContext);
+        } catch (RuntimeException e) {
+            circuitBreaker.release();
+            throw e;
+        }
+    }
+
+    private Map<String, Object> completionRequest(String userMessage, String systemContext) {
+        String systemPrompt = (systemContext != null && !systemContext.isEmpty())
+                ? systemContext
+                : "You are a helpful medical assistant for a hospital financial dashboard. Keep answers short and professional.";
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", currentModel());
+        requestBody.put("messages", List.of(
+                Map.of("role", "system", "content", systemPrompt),
+                Map.of("role", "user", "content", userMessage)));
+        return requestBody;
+    }
+
+    // choices[0].delta.content of a streamed chunk; the role-only first chunk and malformed ones have none
+    private static String deltaContent(String data) {
+        try {
+            JsonNode content = JSON.readTree(data).path("choices").path(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    // Model to send with a completion. Only the very first request waits for /models; after that the
+    // cached id is returned at once and an expired one is refreshed in the background.
+    String currentModel() {
+        CachedModel cached = model;
+        if (cached == null) {
+            synchronized (this) {
+                if (model == null)
+                    refreshModel().block();
+                return model.id();
+            }
+        }
+        // No background detection against an endpoint the breaker holds as down
+        if (System.currentTimeMillis() - cached.fetchedAt() >= modelTtlMs && circuitBreaker.isClosed()
+                && refreshing.compareAndSet(false, true)) {
+            refreshModel().subscribe();
+        }
+        return cached.id();
+    }
+
+    private void expireModel() {
+        CachedModel cached = model;
+        if (cached != null)
+            model = new CachedModel(cached.id(), 0);
+    }
+
+    // A failed detection keeps the last known id (or the default) for another TTL
+    private Mono<String> refreshModel() {
+        return webClient.get()
+                .uri("/models")
+                .headers(this::authorize)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .timeout(Duration.ofMillis(discoveryTimeoutMs))
+                .flatMap(body -> Mono.justOrEmpty(selectModel(body)))
+                .doOnNext(id -> logger.info("Auto-detected model: " + id))
+                .onErrorResume(e -> {
+                    logger.warn("Failed to auto-detect model: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> model != null ? model.id() : DEFAULT_MODEL))
+                .doOnNext(id -> model = new CachedModel(id, System.currentTimeMillis()))
+                .doFinally(signal -> refreshing.set(false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String selectModel(Map<String, Object> modelBody) {
+        if (modelBody == null || !(modelBody.get("data") instanceof List))
+            return null;
+        List<Map<String, Object>> data = (List<Map<String, Object>>) modelBody.get("data");
+        if (data.isEmpty())
+            return null;
+        // Smart Selection: Find first model that is NOT an embedding model
+        for (Map<String, Object> modelNode : data) {
+            String id = (String) modelNode.get("id");
+            if (id != null && !id.toLowerCase().contains("embed")) {
+                return id;
+            }
+        }
+        // If we didn't find a non-embedding model, revert to first
+        return (String) data.get(0).get("id");
+    }
+
+    private void authorize(HttpHeaders headers) {
+        headers.setBearerAuth(apiKey != null ? apiKey : "lm-studio");
+    }
+
     private String getFallbackResponse(String userMessage) {
         String msg = userMessage.toLowerCase();
 
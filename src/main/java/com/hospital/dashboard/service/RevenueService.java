@@ -1,13 +1,25 @@
 package com.hospital.dashboard.service;
 
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.dto.StaySpan;
+import com.hospital.dashboard.dto.StayRevenueSummary;
 import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.model.Money;
+import com.hospital.dashboard.model.MoneyAccumulator;
 import com.hospital.dashboard.repository.HospitalStayRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class RevenueService {
@@ -16,19 +28,141 @@ public class RevenueService {
     private HospitalStayRepository stayRepository;
 
     public BigDecimal calculateTotalRevenue() {
-        List<HospitalStay> stays = stayRepository.findAll();
-        return stays.stream()
-                .map(this::calculateStayRevenue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Summed by the database, no stay is loaded
+        BigDecimal total = stayRepository.sumRevenue();
+        return total != null ? total : BigDecimal.ZERO;
     }
 
     public BigDecimal calculateStayRevenue(HospitalStay stay) {
-        if (stay.getStartDate() == null || stay.getEndDate() == null || stay.getDailyRate() == null) {
+        return calculateStayRevenue(stay.getStartDate(), stay.getEndDate(), stay.getDailyRate());
+    }
+
+    public BigDecimal calculateStayRevenue(StaySpan span) {
+        return calculateStayRevenue(span.startDate(), span.endDate(), span.dailyRate());
+    }
+
+    /** Total revenue of a batch of stays, same rule as {@link #calculateStayRevenue(StaySpan)}. */
+    public StayRevenueSummary<Void> summarize(Iterable<StaySpan> spans) {
+        return summarize(spans, null);
+    }
+
+    public StayRevenueSummary<Void> summarize(Stream<StaySpan> spans) {
+        return summarize(spans, null);
+    }
+
+    public <K> StayRevenueSummary<K> summarize(Stream<StaySpan> spans, Function<StaySpan, K> bucketOf) {
+        return summarize(spans::iterator, bucketOf);
+    }
+
+    /**
+     * Revenue of a batch of stays, in total and per bucket ({@code bucketOf} may be null, and may
+     * return null to leave a stay out of the buckets). Sums are kept in long cents and converted to
+     * BigDecimal once per result, so a batch allocates per bucket rather than per stay.
+     */
+    public <K> StayRevenueSummary<K> summarize(Iterable<StaySpan> spans, Function<StaySpan, K> bucketOf) {
+        MoneyAccumulator total = new MoneyAccumulator();
+        Map<K, MoneyAccumulator> buckets = new HashMap<>();
+        for (StaySpan span : spans) {
+            long cents = revenueCents(span.startDate(), span.endDate(), span.dailyRate());
+            total.addCents(cents); // Stays without revenue still count
+            K bucket = bucketOf != null ? bucketOf.apply(span) : null;
+            if (bucket != null)
+                buckets.computeIfAbsent(bucket, k -> new MoneyAccumulator()).addCents(cents);
+        }
+
+        Map<K, BigDecimal> bucketTotals = new HashMap<>();
+        buckets.forEach((bucket, sum) -> bucketTotals.put(bucket, sum.toBigDecimal()));
+        return new StayRevenueSummary<>(total.toBigDecimal(), total.count(), bucketTotals);
+    }
+
+    /**
+     * Spreads the revenue of the stays over the days they are billed for: the daily rate on each night
+     * from the start date to the day before the end date, or on the start date for a same-day stay.
+     * Each day carries the revenue and the number of stays billed that day. One pass over the stays
+     * into difference arrays, one prefix sum over the days: O(stays + days).
+     */
+    public List<DailyCost> apportionByDay(Collection<StaySpan> spans) {
+        LocalDate from = null;
+        LocalDate to = null;
+        for (StaySpan span : spans) {
+            if (!isBillable(span))
+                continue;
+            LocalDate last = lastBilledDay(span);
+            if (from == null || span.startDate().isBefore(from))
+                from = span.startDate();
+            if (to == null || last.isAfter(to))
+                to = last;
+        }
+        if (from == null)
+            return new ArrayList<>();
+        return apportionByDay(spans, from, to);
+    }
+
+    /** Same as {@link #apportionByDay(Collection)}, restricted to the days in [from, to]. */
+    public List<DailyCost> apportionByDay(Collection<StaySpan> spans, LocalDate from, LocalDate to) {
+        int length = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        List<DailyCost> days = new ArrayList<>();
+        if (length <= 0)
+            return days;
+
+        // A stay adds its rate where its billed range starts and removes it the day after it ends
+        long[] rateDelta = new long[length + 1];
+        long[] stayDelta = new long[length + 1];
+        for (StaySpan span : spans) {
+            if (!isBillable(span))
+                continue;
+            long first = Math.max(0, ChronoUnit.DAYS.between(from, span.startDate()));
+            long last = Math.min(length - 1, ChronoUnit.DAYS.between(from, lastBilledDay(span)));
+            if (first > last)
+                continue;
+            long rate = Money.toCents(span.dailyRate());
+            rateDelta[(int) first] = Math.addExact(rateDelta[(int) first], rate);
+            rateDelta[(int) last + 1] = Math.subtractExact(rateDelta[(int) last + 1], rate);
+            stayDelta[(int) first]++;
+            stayDelta[(int) last + 1]--;
+        }
+
+        long rate = 0;
+        long stays = 0;
+        for (int i = 0; i < length; i++) {
+            rate = Math.addExact(rate, rateDelta[i]);
+            stays += stayDelta[i];
+            if (stays > 0)
+                days.add(new DailyCost(from.plusDays(i), BigDecimal.valueOf(rate, 2), stays));
+        }
+        return days;
+    }
+
+    private static boolean isBillable(StaySpan span) {
+        return isBillable(span.startDate(), span.endDate(), span.dailyRate());
+    }
+
+    // The one billing rule, also in HospitalStayRepository.sumRevenue: a stay needs both dates and a rate,
+    // and one ending before it starts bills nothing
+    private static boolean isBillable(LocalDate startDate, LocalDate endDate, BigDecimal dailyRate) {
+        return startDate != null && endDate != null && dailyRate != null && !endDate.isBefore(startDate);
+    }
+
+    private static LocalDate lastBilledDay(StaySpan span) {
+        // Minimum 1 day charge, as in calculateStayRevenue
+        return span.endDate().isAfter(span.startDate()) ? span.endDate().minusDays(1) : span.startDate();
+    }
+
+    private BigDecimal calculateStayRevenue(LocalDate startDate, LocalDate endDate, BigDecimal dailyRate) {
+        if (!isBillable(startDate, endDate, dailyRate)) {
             return BigDecimal.ZERO;
         }
-        long days = ChronoUnit.DAYS.between(stay.getStartDate(), stay.getEndDate());
-        if (days == 0)
-            days = 1; // Minimum 1 day charge
-        return stay.getDailyRate().multiply(BigDecimal.valueOf(days));
+        return dailyRate.multiply(BigDecimal.valueOf(billedDays(startDate, endDate)));
+    }
+
+    private static long revenueCents(LocalDate startDate, LocalDate endDate, BigDecimal dailyRate) {
+        if (!isBillable(startDate, endDate, dailyRate))
+            return 0;
+        return Math.multiplyExact(Money.toCents(dailyRate), billedDays(startDate, endDate));
+    }
+
+    private static long billedDays(LocalDate startDate, LocalDate endDate) {
+        long days = ChronoUnit.DAYS.between(startDate, endDate);
+        return days == 0 ? 1 : days; // Minimum 1 day charge
     }
 }
@@ -0,0 +1,282 @@
+package com.hospital.dashboard.service;
+
+import com.hospital.dashboard.dto.StayInterval;
+import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.repository.HospitalStayRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * In-memory interval index over the stays, answering "which stays overlap [from, to]" and "who is in
+ * a bed on day D" without reading the table. Bounds are inclusive, as in
+ * {@link HospitalStayRepository#findSpansOverlapping}.
+ *
+ * <p>The stays sit in an array sorted by start date, read as a balanced binary tree where each node
+ * holds the latest end date below it: a query only descends into subtrees that can hold a match, so
+ * it costs O(log n) plus the stays it returns. Counts are two binary searches over the sorted starts
+ * and ends. Committed writes are kept beside the array, which is rebuilt once
+ * {@link #PENDING_LIMIT} of them piled up; readers never take a lock.
+ *
+ * <p>The index is loaded on first use and reloaded from the table every
+ * {@code hospifin.stays.index-reload-ms}, which also picks up rows written around the controllers
+ * (seeding, bulk SQL). A stay without both dates, or ending before it starts, is left out.
+ */
+@Component
+public class StayIntervalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StayIntervalIndex.class);
+
+    static final int PENDING_LIMIT = 1024;
+
+    @Autowired
+    private HospitalStayRepository stayRepository;
+
+    private final Object loadLock = new Object();
+    private final Object writeLock = new Object();
+
+    // Null until the first load
+    private volatile View view;
+    // Writes seen while a reload reads the table, applied again on top of what it read
+    private List<Write> replay;
+
+    public void add(HospitalStay stay) {
+        if (stay.getId() == null)
+            return;
+        StayInterval interval = indexable(stay.getStartDate(), stay.getEndDate())
+                ? new StayInterval(stay.getId(), stay.getStartDate(), stay.getEndDate(), stay.getDailyRate())
+                : null;
+        afterCommit(() -> apply(new Write(stay.getId(), interval)));
+    }
+
+    public void remove(Long id) {
+        if (id != null)
+            afterCommit(() -> apply(new Write(id, null)));
+    }
+
+    public List<StayInterval> overlapping(LocalDate from, LocalDate to) {
+        View current = current();
+        List<StayInterval> result = new ArrayList<>();
+        current.base().overlapping(from.toEpochDay(), to.toEpochDay(), interval -> {
+            if (!current.removed().containsKey(interval.id()))
+                result.add(interval);
+        });
+        for (StayInterval interval : current.added().values()) {
+            if (overlaps(interval, from, to))
+                result.add(interval);
+        }
+        return result;
+    }
+
+    // Stays in progress on that day, the start and end days included
+    public List<StayInterval> occupiedOn(LocalDate day) {
+        return overlapping(day, day);
+    }
+
+    public long countOverlapping(LocalDate from, LocalDate to) {
+        View current = current();
+        long count = current.base().count(from.toEpochDay(), to.toEpochDay());
+        count -= current.removed().values().stream().filter(interval -> overlaps(interval, from, to)).count();
+        count += current.added().values().stream().filter(interval -> overlaps(interval, from, to)).count();
+        return count;
+    }
+
+    public int size() {
+        View current = current();
+        return current.base().size() - current.removed().size() + current.added().size();
+    }
+
+    @Scheduled(fixedDelayString = "${hospifin.stays.index-reload-ms:3600000}",
+            initialDelayString = "${hospifin.stays.index-reload-ms:3600000}")
+    public void reload() {
+        synchronized (loadLock) {
+            synchronized (writeLock) {
+                replay = new ArrayList<>();
+            }
+            List<StayInterval> rows;
+            try {
+                rows = stayRepository.findAllIntervals();
+            } catch (RuntimeException e) {
+                synchronized (writeLock) {
+                    replay = null;
+                }
+                throw e;
+            }
+            List<StayInterval> indexed = rows.stream()
+                    .filter(row -> indexable(row.startDate(), row.endDate()))
+                    .toList();
+            synchronized (writeLock) {
+                View reloaded = new View(new Snapshot(indexed), Map.of(), Map.of());
+                for (Write write : replay) {
+                    reloaded = reloaded.with(write);
+                }
+                view = reloaded;
+                replay = null;
+            }
+            logger.info("Stay interval index loaded: " + indexed.size() + " stays");
+        }
+    }
+
+    private View current() {
+        View current = view;
+        if (current != null)
+            return current;
+        synchronized (loadLock) {
+            if (view == null)
+                reload();
+            return view;
+        }
+    }
+
+    private void apply(Write write) {
+        synchronized (writeLock) {
+            if (replay != null)
+                replay.add(write);
+            if (view != null)
+                view = view.with(write);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static boolean indexable(LocalDate start, LocalDate end) {
+        return start != null && end != null && !start.isAfter(end);
+    }
+
+    private static boolean overlaps(StayInterval interval, LocalDate from, LocalDate to) {
+        return !interval.startDate().isAfter(to) && !interval.endDate().isBefore(from);
+    }
+
+    // A committed write: the new interval of the stay, or null once it is gone from the index
+    private record Write(Long id, StayInterval interval) {
+    }
+
+    // Immutable state read by the queries: the sorted snapshot and the writes since it was built
+    private record View(Snapshot base, Map<Long, StayInterval> added, Map<Long, StayInterval> removed) {
+
+        View with(Write write) {
+            Map<Long, StayInterval> added = new HashMap<>(this.added);
+            Map<Long, StayInterval> removed = new HashMap<>(this.removed);
+            StayInterval indexed = base.get(write.id());
+            if (indexed != null)
+                removed.put(write.id(), indexed);
+            if (write.interval() != null)
+                added.put(write.id(), write.interval());
+            else
+                added.remove(write.id());
+
+            if (added.size() + removed.size() <= PENDING_LIMIT)
+                return new View(base, added, removed);
+            Map<Long, StayInterval> merged = new HashMap<>(base.byId);
+            merged.keySet().removeAll(removed.keySet());
+            merged.putAll(added);
+            return new View(new Snapshot(merged.values()), Map.of(), Map.of());
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final Map<Long, StayInterval> byId = new HashMap<>();
+        private final StayInterval[] byStart;
+        private final long[] starts;
+        private final long[] ends;
+        // Latest end in the subtree rooted at each index, the tree being the binary search over [0, n)
+        private final long[] maxEnd;
+        private final long[] sortedEnds;
+
+        Snapshot(Collection<StayInterval> intervals) {
+            byStart = intervals.toArray(new StayInterval[0]);
+            Arrays.sort(byStart, Comparator.comparing(StayInterval::startDate).thenComparing(StayInterval::id));
+            int n = byStart.length;
+            starts = new long[n];
+            ends = new long[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = byStart[i].startDate().toEpochDay();
+                ends[i] = byStart[i].endDate().toEpochDay();
+                byId.put(byStart[i].id(), byStart[i]);
+            }
+            maxEnd = new long[n];
+            buildMaxEnd(0, n);
+            sortedEnds = ends.clone();
+            Arrays.sort(sortedEnds);
+        }
+
+        int size() {
+            return byStart.length;
+        }
+
+        StayInterval get(Long id) {
+            return byId.get(id);
+        }
+
+        void overlapping(long from, long to, Consumer<StayInterval> out) {
+            collect(0, byStart.length, from, to, out);
+        }
+
+        // Overlapping = started by `to` and not ended before `from`; those ended before started before too
+        long count(long from, long to) {
+            return countAtMost(starts, to) - countAtMost(sortedEnds, from - 1);
+        }
+
+        private long buildMaxEnd(int lo, int hi) {
+            if (lo >= hi)
+                return Long.MIN_VALUE;
+            int mid = (lo + hi) >>> 1;
+            maxEnd[mid] = Math.max(ends[mid], Math.max(buildMaxEnd(lo, mid), buildMaxEnd(mid + 1, hi)));
+            return maxEnd[mid];
+        }
+
+        private void collect(int lo, int hi, long from, long to, Consumer<StayInterval> out) {
+            if (lo >= hi)
+                return;
+            int mid = (lo + hi) >>> 1;
+            if (maxEnd[mid] < from)
+                return;
+            collect(lo, mid, from, to, out);
+            // Everything from mid on starts too late
+            if (starts[mid] > to)
+                return;
+            if (ends[mid] >= from)
+                out.accept(byStart[mid]);
+            collect(mid + 1, hi, from, to, out);
+        }
+
+        private static int countAtMost(long[] sorted, long value) {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] <= value)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.hospital.dashboard.service;
+
+import com.hospital.dashboard.dto.ConsumableSummary;
+import com.hospital.dashboard.dto.MedicalActSummary;
+import com.hospital.dashboard.dto.StaySummary;
+import com.hospital.dashboard.model.Medication;
+import com.hospital.dashboard.model.Patient;
+import com.hospital.dashboard.repository.ConsumableRepository;
+import com.hospital.dashboard.repository.HospitalStayRepository;
+import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.repository.MedicationRepository;
+import com.hospital.dashboard.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Table rows read as constructor-expression projections, without loading the entities behind them.
+ * The nested patient or medication is only added on request, with one query per kind of object for
+ * the whole list.
+ */
+@Service
+public class SummaryService {
+
+    public static final String PATIENT = "patient";
+    public static final String MEDICATION = "medication";
+
+    @Autowired
+    private ConsumableRepository consumableRepository;
+    @Autowired
+    private MedicalActRepository medicalActRepository;
+    @Autowired
+    private HospitalStayRepository stayRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Transactional(readOnly = true)
+    public List<ConsumableSummary> consumables(Set<String> expand) {
+        List<ConsumableSummary> rows = consumableRepository.findSummaries();
+        if (expand.isEmpty())
+            return rows;
+        Map<Long, Medication> medications = expand.contains(MEDICATION)
+                ? byId(medicationRepository.findAllById(ids(rows, ConsumableSummary::medicationId)), Medication::getId)
+                : new HashMap<>();
+        Map<Long, Patient> patients = expand.contains(PATIENT) ? patients(rows, ConsumableSummary::patientId)
+                : new HashMap<>();
+        return rows.stream()
+                .map(row -> row.expand(medications.get(row.medicationId()), patients.get(row.patientId())))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<MedicalActSummary> medicalActs(Set<String> expand) {
+        List<MedicalActSummary> rows = medicalActRepository.findSummaries();
+        if (!expand.contains(PATIENT))
+            return rows;
+        Map<Long, Patient> patients = patients(rows, MedicalActSummary::patientId);
+        return rows.stream().map(row -> row.expand(patients.get(row.patientId()))).toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<StaySummary> stays(Set<String> expand) {
+        List<StaySummary> rows = stayRepository.findSummaries();
+        if (!expand.contains(PATIENT))
+            return rows;
+        Map<Long, Patient> patients = patients(rows, StaySummary::patientId);
+        return rows.stream().map(row -> row.expand(patients.get(row.patientId()))).toList();
+    }
+
+    private <R> Map<Long, Patient> patients(List<R> rows, Function<R, Long> patientId) {
+        return byId(patientRepository.findAllById(ids(rows, patientId)), Patient::getId);
+    }
+
+    private static <R> Set<Long> ids(List<R> rows, Function<R, Long> id) {
+        return rows.stream().map(id).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    private static <T> Map<Long, T> byId(Iterable<T> entities, Function<T, Long> id) {
+        Map<Long, T> byId = new HashMap<>();
+        entities.forEach(entity -> byId.put(id.apply(entity), entity));
+        return byId;
+    }
+}
@@ -0,0 +1,120 @@
+package com.hospital.dashboard.service.forecast;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores every {@link ForecastModel} on rolling-origin splits of a daily series and picks the one with
+ * the lowest mean absolute error. The last {@code folds} windows of {@code horizon-days} days are each
+ * predicted from the days before them; every (model, fold) pair is an independent fork-join task, so
+ * adding a candidate model adds work but not latency while cores are free.
+ */
+@Component
+public class Backtester {
+
+    private final List<ForecastModel> models;
+    private final int horizon;
+    private final int folds;
+    private final ForkJoinPool pool;
+
+    public Backtester(List<ForecastModel> models,
+            @Value("${hospifin.forecast.backtest.horizon-days:14}") int horizon,
+            @Value("${hospifin.forecast.backtest.folds:4}") int folds,
+            @Value("${hospifin.forecast.backtest.parallelism:0}") int parallelism) {
+        this.models = models;
+        this.horizon = horizon;
+        this.folds = folds;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public ModelSelection select(TimeSeries history) {
+        int minTrain = models.stream().mapToInt(ForecastModel::minHistory).max().orElse(0);
+
+        // Only folds every model can be trained on, so all candidates are compared on the same data
+        int[] origins = new int[folds];
+        int usable = 0;
+        for (int k = folds; k >= 1; k--) {
+            int origin = history.length() - k * horizon;
+            if (origin >= minTrain)
+                origins[usable++] = origin;
+        }
+        // Sparse histories (a few days with costs) keep the default model rather than scoring noise
+        if (models.isEmpty() || usable == 0 || history.presentCount() < minTrain)
+            return new ModelSelection(LinearSeasonalModel.NAME, null, Map.of());
+
+        double[][] errors = new double[models.size()][usable];
+        pool.invoke(new ScoreTask(history, Arrays.copyOf(origins, usable), errors, 0, models.size() * usable));
+
+        Map<String, Double> scores = new LinkedHashMap<>();
+        ForecastModel best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int m = 0; m < models.size(); m++) {
+            double score = Arrays.stream(errors[m]).average().orElse(Double.NaN);
+            if (Double.isFinite(score))
+                scores.put(models.get(m).name(), score);
+            if (score < bestScore) {
+                bestScore = score;
+                best = models.get(m);
+            }
+        }
+        if (best == null)
+            return new ModelSelection(LinearSeasonalModel.NAME, null, scores);
+        return new ModelSelection(best.name(), best.fit(history), scores);
+    }
+
+    /** Mean absolute error of a model predicting [origin, origin + horizon) from the days before. */
+    private double score(ForecastModel model, TimeSeries history, int origin) {
+        Forecaster forecaster = model.fit(history.slice(0, origin));
+        int end = Math.min(origin + horizon, history.length());
+        double error = 0;
+        for (int i = origin; i < end; i++) {
+            double predicted = Math.max(0, forecaster.predict(history.period(i)));
+            error += Math.abs(predicted - history.value(i));
+        }
+        // A model that cannot produce a number is never chosen
+        return Double.isNaN(error) ? Double.POSITIVE_INFINITY : error / (end - origin);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /** Splits the (model, fold) jobs in halves down to single jobs. */
+    private final class ScoreTask extends RecursiveAction {
+        private final TimeSeries history;
+        private final int[] origins;
+        private final double[][] errors;
+        private final int from;
+        private final int to;
+
+        private ScoreTask(TimeSeries history, int[] origins, double[][] errors, int from, int to) {
+            this.history = history;
+            this.origins = origins;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int m = from / origins.length;
+                int k = from % origins.length;
+                errors[m][k] = score(models.get(m), history, origins[k]);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(history, origins, errors, from, middle),
+                    new ScoreTask(history, origins, errors, middle, to));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.hospital.dashboard.service.forecast;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prediction intervals by residual bootstrap: every resample adds, to each predicted period of each
+ * path, an in-sample residual of the same path drawn at random. The p10 and p90 of the resampled sums
+ * bound each period and the whole horizon. Resamples are spread over a fork-join pool and stop at the
+ * time budget; the intervals are then built from the resamples that finished.
+ */
+@Component
+public class BootstrapIntervals {
+
+    public static final double LOW = 0.1;
+    public static final double HIGH = 0.9;
+
+    /** Below this many finished resamples the quantiles are noise, so no interval is given. */
+    static final int MIN_RESAMPLES = 20;
+
+    /** Sums are kept per resample and period, so the count is capped to bound memory. */
+    static final int MAX_RESAMPLES = 10_000;
+
+    private static final int LEAF_SIZE = 32;
+
+    private final int resamples;
+    private final long budgetNanos;
+    private final ForkJoinPool pool;
+
+    public BootstrapIntervals(@Value("${hospifin.forecast.intervals.resamples:1000}") int resamples,
+            @Value("${hospifin.forecast.intervals.budget-ms:250}") long budgetMs,
+            @Value("${hospifin.forecast.intervals.parallelism:0}") int parallelism) {
+        this.resamples = Math.max(1, Math.min(resamples, MAX_RESAMPLES));
+        this.budgetNanos = budgetMs * 1_000_000;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public Result compute(List<Path> paths) {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (Path path : paths) {
+            if (path.forecast().length == 0)
+                continue;
+            first = Math.min(first, path.firstPeriod());
+            last = Math.max(last, path.firstPeriod() + path.forecast().length - 1);
+        }
+        // Nothing to resample: no interval either, though the budget was not the reason
+        if (first > last)
+            return new Result(0, null, null, 0, 0, resamples, resamples);
+
+        int length = (int) (last - first + 1);
+        // One column per resample, so tasks never write to the same slot
+        double[][] sums = new double[length][resamples];
+        double[] totals = new double[resamples];
+        boolean[] done = new boolean[resamples];
+        long deadline = System.nanoTime() + budgetNanos;
+        pool.invoke(new ResampleTask(paths, first, sums, totals, done, deadline, 0, resamples, new SplittableRandom()));
+
+        int finished = 0;
+        for (boolean d : done) {
+            if (d)
+                finished++;
+        }
+        if (finished < MIN_RESAMPLES)
+            return new Result(first, null, null, 0, 0, finished, resamples);
+
+        double[] low = new double[length];
+        double[] high = new double[length];
+        double[] column = new double[finished];
+        for (int slot = 0; slot < length; slot++) {
+            collect(sums[slot], done, column);
+            low[slot] = quantile(column, LOW);
+            high[slot] = quantile(column, HIGH);
+        }
+        collect(totals, done, column);
+        return new Result(first, low, high, quantile(column, LOW), quantile(column, HIGH), finished, resamples);
+    }
+
+    private static void collect(double[] values, boolean[] done, double[] into) {
+        int n = 0;
+        for (int b = 0; b < values.length; b++) {
+            if (done[b])
+                into[n++] = values[b];
+        }
+        Arrays.sort(into);
+    }
+
+    private static double quantile(double[] sorted, double q) {
+        // Linear interpolation between closest ranks
+        double rank = q * (sorted.length - 1);
+        int below = (int) Math.floor(rank);
+        int above = Math.min(below + 1, sorted.length - 1);
+        return sorted[below] + (rank - below) * (sorted[above] - sorted[below]);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Point forecasts of one series starting at {@code firstPeriod}, with the in-sample residuals
+     * (actual minus fitted) they are perturbed by. No residuals means the path is taken as certain.
+     */
+    public record Path(long firstPeriod, double[] forecast, double[] residuals) {
+    }
+
+    /**
+     * Quantiles of the resampled sums over all paths, per period from {@code firstPeriod} and for the
+     * whole horizon. {@code low} and {@code high} are null when there is no forecast to resample or too
+     * few resamples finished in time.
+     */
+    public record Result(long firstPeriod, double[] low, double[] high, double totalLow, double totalHigh,
+            int resamples, int requested) {
+
+        public boolean available() {
+            return low != null;
+        }
+
+        public boolean degraded() {
+            return resamples < requested;
+        }
+    }
+
+    /** Splits the resample range in halves, each half with its own random stream. */
+    private static final class ResampleTask extends RecursiveAction {
+        private final List<Path> paths;
+        private final long first;
+        private final double[][] sums;
+        private final double[] totals;
+        private final boolean[] done;
+        private final long deadline;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        private ResampleTask(List<Path> paths, long first, double[][] sums, double[] totals, boolean[] done,
+                long deadline, int from, int to, SplittableRandom random) {
+            this.paths = paths;
+            this.first = first;
+            this.sums = sums;
+            this.totals = totals;
+            this.done = done;
+            this.deadline = deadline;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ResampleTask(paths, first, sums, totals, done, deadline, from, middle, random.split()),
+                        new ResampleTask(paths, first, sums, totals, done, deadline, middle, to, random));
+                return;
+            }
+            for (int b = from; b < to; b++) {
+                if (System.nanoTime() > deadline)
+                    return;
+                double total = 0;
+                for (Path path : paths) {
+                    double[] residuals = path.residuals();
+                    int offset = (int) (path.firstPeriod() - first);
+                    for (int step = 0; step < path.forecast().length; step++) {
+                        double noise = residuals.length > 0 ? residuals[random.nextInt(residuals.length)] : 0;
+                        // Costs are never negative, as for the point forecast
+                        double value = Math.max(0, path.forecast()[step] + noise);
+                        sums[offset + step][b] += value;
+                        total += value;
+                    }
+                }
+                totals[b] = total;
+                done[b] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.hospital.dashboard.service.forecast;
+
+/**
+ * A forecasting method that can be fitted on a daily cost series. Implementations are Spring beans and
+ * are all scored by the {@link Backtester}; adding a model is adding a bean. They must be stateless, as
+ * they are fitted concurrently.
+ */
+public interface ForecastModel {
+
+    String name();
+
+    /** Minimum number of days of history the model needs. */
+    int minHistory();
+
+    /** Fits the model on a daily series; absent days are days without costs, i.e. zero. */
+    Forecaster fit(TimeSeries history);
+}
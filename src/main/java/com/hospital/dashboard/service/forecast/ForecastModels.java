@@ -0,0 +1,108 @@
+package com.hospital.dashboard.service.forecast;
+
+import com.hospital.dashboard.model.CostCategory;
+import com.hospital.dashboard.repository.DailyCostRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One {@link OnlineRegressionModel} per cost category. CostRollupService feeds every committed rollup
+ * delta, so a daily forecast reads the current fit instead of refitting the whole history. The models
+ * are fitted from the rollup at startup, then recomputed exactly after a rollup rebuild and every
+ * {@code hospifin.forecast.model-recompute-ms}, which clears floating point drift.
+ */
+@Component
+public class ForecastModels {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForecastModels.class);
+
+    @Autowired
+    private DailyCostRollupRepository rollupRepository;
+
+    private final Map<CostCategory, OnlineRegressionModel> models = new EnumMap<>(CostCategory.class);
+
+    private final Object recomputeLock = new Object();
+    private final Object writeLock = new Object();
+    // Deltas seen while a recompute reads the rollup, applied again on top of what it read
+    private List<Delta> replay;
+
+    public ForecastModels() {
+        for (CostCategory category : CostCategory.values()) {
+            models.put(category, new OnlineRegressionModel());
+        }
+    }
+
+    public void apply(CostCategory category, LocalDate date, BigDecimal amount, long events) {
+        synchronized (writeLock) {
+            if (replay != null)
+                replay.add(new Delta(category, date, amount, events));
+            models.get(category).apply(date, amount, events);
+        }
+    }
+
+    public OnlineRegressionModel.Fit fit(CostCategory category, LocalDate fromDay) {
+        return models.get(category).fit(fromDay);
+    }
+
+    public TimeSeries history(CostCategory category) {
+        return models.get(category).history();
+    }
+
+    public OnlineRegressionModel get(CostCategory category) {
+        return models.get(category);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void fitOnStartup() {
+        recompute();
+    }
+
+    @Scheduled(fixedDelayString = "${hospifin.forecast.model-recompute-ms:3600000}",
+            initialDelayString = "${hospifin.forecast.model-recompute-ms:3600000}")
+    public void recompute() {
+        synchronized (recomputeLock) {
+            synchronized (writeLock) {
+                replay = new ArrayList<>();
+            }
+            // Refit off to the side, so forecasts are not blocked while the rollup is read
+            Map<CostCategory, OnlineRegressionModel> refitted = new EnumMap<>(CostCategory.class);
+            try {
+                for (CostCategory category : CostCategory.values()) {
+                    OnlineRegressionModel model = new OnlineRegressionModel();
+                    model.reset(rollupRepository.findDailyTotals(category));
+                    refitted.put(category, model);
+                }
+            } catch (RuntimeException e) {
+                synchronized (writeLock) {
+                    replay = null;
+                }
+                throw e;
+            }
+            synchronized (writeLock) {
+                for (Delta delta : replay) {
+                    refitted.get(delta.category()).apply(delta.date(), delta.amount(), delta.events());
+                }
+                for (CostCategory category : CostCategory.values()) {
+                    models.get(category).restore(refitted.get(category).snapshot());
+                }
+                replay = null;
+            }
+        }
+        logger.info("Forecast models recomputed from the daily rollup");
+    }
+
+    private record Delta(CostCategory category, LocalDate date, BigDecimal amount, long events) {
+    }
+}
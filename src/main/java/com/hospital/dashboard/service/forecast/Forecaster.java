@@ -0,0 +1,9 @@
+package com.hospital.dashboard.service.forecast;
+
+/** A fitted {@link ForecastModel}. */
+@FunctionalInterface
+public interface Forecaster {
+
+    /** Fitted value for a period inside the history, forecast for a period after it. */
+    double predict(long period);
+}
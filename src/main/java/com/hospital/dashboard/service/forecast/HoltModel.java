@@ -0,0 +1,84 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Double exponential smoothing (Holt): a level and a trend, each smoothed. The smoothing factors are
+ * picked from a small grid by one-step-ahead squared error.
+ */
+@Component
+public class HoltModel implements ForecastModel {
+
+    private static final double[] ALPHAS = { 0.1, 0.2, 0.4, 0.6 };
+    private static final double[] BETAS = { 0.05, 0.1, 0.2 };
+
+    @Override
+    public String name() {
+        return "holt";
+    }
+
+    @Override
+    public int minHistory() {
+        return 3;
+    }
+
+    @Override
+    public Forecaster fit(TimeSeries history) {
+        double[] y = history.toArray();
+
+        double bestAlpha = ALPHAS[0];
+        double bestBeta = BETAS[0];
+        double bestError = Double.POSITIVE_INFINITY;
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                double error = smooth(y, alpha, beta, null);
+                if (error < bestError) {
+                    bestError = error;
+                    bestAlpha = alpha;
+                    bestBeta = beta;
+                }
+            }
+        }
+
+        // Final pass keeps the one-step fitted values; the last two slots hold the final level and trend
+        double[] state = new double[y.length + 2];
+        smooth(y, bestAlpha, bestBeta, state);
+        double level = state[y.length];
+        double trend = state[y.length + 1];
+        long origin = history.origin();
+        int last = y.length - 1;
+
+        return period -> {
+            long i = period - origin;
+            if (i >= 0 && i <= last)
+                return state[(int) i];
+            return level + (i - last) * trend;
+        };
+    }
+
+    /** Runs the smoothing and returns the one-step squared error; fills {@code state} when given. */
+    private static double smooth(double[] y, double alpha, double beta, double[] state) {
+        double level = y[0];
+        double trend = y[1] - y[0];
+        double error = 0;
+        if (state != null)
+            state[0] = y[0];
+
+        for (int t = 1; t < y.length; t++) {
+            double forecast = level + trend;
+            error += (y[t] - forecast) * (y[t] - forecast);
+            if (state != null)
+                state[t] = forecast;
+
+            double previousLevel = level;
+            level = alpha * y[t] + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+        }
+
+        if (state != null) {
+            state[y.length] = level;
+            state[y.length + 1] = trend;
+        }
+        return error;
+    }
+}
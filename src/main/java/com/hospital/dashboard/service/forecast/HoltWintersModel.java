@@ -0,0 +1,107 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Triple exponential smoothing (additive Holt-Winters) with a weekly season. Additive, as days without
+ * costs are zeros. Initialised from the first two weeks; smoothing factors picked from a small grid by
+ * one-step-ahead squared error.
+ */
+@Component
+public class HoltWintersModel implements ForecastModel {
+
+    private static final int SEASON = 7;
+    private static final double[] ALPHAS = { 0.1, 0.3, 0.5 };
+    private static final double[] BETAS = { 0.01, 0.1 };
+    private static final double[] GAMMAS = { 0.1, 0.3 };
+
+    @Override
+    public String name() {
+        return "holt-winters";
+    }
+
+    @Override
+    public int minHistory() {
+        return 2 * SEASON;
+    }
+
+    @Override
+    public Forecaster fit(TimeSeries history) {
+        double[] y = history.toArray();
+        double[] seasonal = new double[SEASON];
+
+        double bestAlpha = ALPHAS[0];
+        double bestBeta = BETAS[0];
+        double bestGamma = GAMMAS[0];
+        double bestError = Double.POSITIVE_INFINITY;
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : GAMMAS) {
+                    double error = smooth(y, alpha, beta, gamma, seasonal, null);
+                    if (error < bestError) {
+                        bestError = error;
+                        bestAlpha = alpha;
+                        bestBeta = beta;
+                        bestGamma = gamma;
+                    }
+                }
+            }
+        }
+
+        // Final pass keeps the one-step fitted values; the last two slots hold the final level and trend
+        double[] state = new double[y.length + 2];
+        smooth(y, bestAlpha, bestBeta, bestGamma, seasonal, state);
+        double level = state[y.length];
+        double trend = state[y.length + 1];
+        long origin = history.origin();
+        int last = y.length - 1;
+
+        return period -> {
+            long i = period - origin;
+            if (i >= 0 && i <= last)
+                return state[(int) i];
+            return level + (i - last) * trend + seasonal[(int) Math.floorMod(i, SEASON)];
+        };
+    }
+
+    /**
+     * Runs the smoothing and returns the one-step squared error. {@code seasonal} ends up holding the
+     * latest seasonal component of each phase (index t % 7); {@code state} gets the fitted values.
+     */
+    private static double smooth(double[] y, double alpha, double beta, double gamma, double[] seasonal,
+            double[] state) {
+        double firstWeek = 0;
+        double secondWeek = 0;
+        for (int t = 0; t < SEASON; t++) {
+            firstWeek += y[t];
+            secondWeek += y[t + SEASON];
+        }
+        double level = firstWeek / SEASON;
+        double trend = (secondWeek - firstWeek) / (SEASON * SEASON);
+        for (int t = 0; t < SEASON; t++) {
+            seasonal[t] = y[t] - level;
+            if (state != null)
+                state[t] = level + seasonal[t];
+        }
+
+        double error = 0;
+        for (int t = SEASON; t < y.length; t++) {
+            int phase = t % SEASON;
+            double forecast = level + trend + seasonal[phase];
+            error += (y[t] - forecast) * (y[t] - forecast);
+            if (state != null)
+                state[t] = forecast;
+
+            double previousLevel = level;
+            level = alpha * (y[t] - seasonal[phase]) + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+            seasonal[phase] = gamma * (y[t] - level) + (1 - gamma) * seasonal[phase];
+        }
+
+        if (state != null) {
+            state[y.length] = level;
+            state[y.length + 1] = trend;
+        }
+        return error;
+    }
+}
@@ -0,0 +1,35 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.springframework.stereotype.Component;
+
+/**
+ * The original model: least-squares line through the days with costs, times a multiplicative
+ * day-of-week index. Its incremental twin is {@link OnlineRegressionModel}.
+ */
+@Component
+public class LinearSeasonalModel implements ForecastModel {
+
+    public static final String NAME = "linear-seasonal";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int minHistory() {
+        return 2;
+    }
+
+    @Override
+    public Forecaster fit(TimeSeries history) {
+        SimpleRegression regression = new SimpleRegression();
+        for (int i = 0; i < history.length(); i++) {
+            if (history.isPresent(i))
+                regression.addData(history.period(i), history.value(i));
+        }
+        double[] indices = history.weekdayIndices();
+        return period -> regression.predict(period) * indices[TimeSeries.dayOfWeekIndex(period)];
+    }
+}
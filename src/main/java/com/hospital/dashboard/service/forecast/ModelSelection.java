@@ -0,0 +1,11 @@
+package com.hospital.dashboard.service.forecast;
+
+import java.util.Map;
+
+/**
+ * Model chosen for a category by the {@link Backtester}, fitted on the whole history, with the mean
+ * absolute error of every candidate. The forecaster is null when the default model was kept without
+ * backtesting (history too short).
+ */
+public record ModelSelection(String model, Forecaster forecaster, Map<String, Double> scores) {
+}
@@ -0,0 +1,225 @@
+package com.hospital.dashboard.service.forecast;
+
+import com.hospital.dashboard.dto.DailyCost;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Daily cost model of one category, kept up to date event by event. It holds the day totals in a dense
+ * array and the running sums of a least-squares line through the days that have costs (count and sums
+ * of x, y, xy and x squared) plus per-weekday sums. A change to a day removes its old point and adds the new one, so
+ * backdated edits and deletes are exact. Every update is additive, hence the order in which concurrent
+ * transactions report their deltas does not matter. Floating point drift is cleared by {@link #reset}.
+ */
+public class OnlineRegressionModel {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long NONE = -1;
+
+    // Day store: slot i is epoch day origin + i
+    private long origin;
+    private double[] totals = new double[0];
+    private long[] events = new long[0];
+    private BigDecimal total = BigDecimal.ZERO;
+    private long lastDay = NONE;
+
+    // Running sums over the days that have costs; x is counted from the anchor to keep the sums small
+    private long anchor;
+    private long n;
+    private double sumX;
+    private double sumY;
+    private double sumXY;
+    private double sumXX;
+    private final double[] weekdaySums = new double[7];
+    private final long[] weekdayCounts = new long[7];
+
+    /** Applies one change of a day: amount and number of events added (negative when removed). */
+    public synchronized void apply(LocalDate date, BigDecimal amount, long eventsDelta) {
+        long day = date.toEpochDay();
+        int slot = slotOf(day);
+
+        if (events[slot] > 0)
+            removePoint(day, totals[slot]);
+        totals[slot] += amount.doubleValue();
+        events[slot] += eventsDelta;
+        total = total.add(amount);
+
+        if (events[slot] > 0) {
+            addPoint(day, totals[slot]);
+            lastDay = Math.max(lastDay, day);
+        } else if (day == lastDay) {
+            lastDay = previousDay(slot);
+        }
+    }
+
+    /** Exact recompute from the daily rollup (ordered or not). */
+    public synchronized void reset(List<DailyCost> days) {
+        origin = 0;
+        totals = new double[0];
+        events = new long[0];
+        total = BigDecimal.ZERO;
+        lastDay = NONE;
+        anchor = days.isEmpty() || days.get(0).day() == null ? 0 : days.get(0).day().toEpochDay();
+        n = 0;
+        sumX = sumY = sumXY = sumXX = 0;
+        Arrays.fill(weekdaySums, 0);
+        Arrays.fill(weekdayCounts, 0);
+
+        for (DailyCost day : days) {
+            if (day.day() != null && day.total() != null)
+                apply(day.day(), day.total(), day.events() != null ? day.events() : 1);
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(origin, totals.clone(), events.clone(), total, lastDay, anchor, n, sumX, sumY,
+                sumXY, sumXX, weekdaySums.clone(), weekdayCounts.clone());
+    }
+
+    public synchronized void restore(Snapshot snapshot) {
+        origin = snapshot.origin();
+        totals = snapshot.totals().clone();
+        events = snapshot.events().clone();
+        total = snapshot.total();
+        lastDay = snapshot.lastDay();
+        anchor = snapshot.anchor();
+        n = snapshot.n();
+        sumX = snapshot.sumX();
+        sumY = snapshot.sumY();
+        sumXY = snapshot.sumXY();
+        sumXX = snapshot.sumXX();
+        System.arraycopy(snapshot.weekdaySums(), 0, weekdaySums, 0, 7);
+        System.arraycopy(snapshot.weekdayCounts(), 0, weekdayCounts, 0, 7);
+    }
+
+    /**
+     * Current fit plus the days from {@code fromDay} onwards. Costs O(days shown), whatever the length
+     * of the history.
+     */
+    public synchronized Fit fit(LocalDate fromDay) {
+        long from = Math.max(fromDay.toEpochDay(), origin);
+        TimeSeries window = lastDay == NONE || from > lastDay ? TimeSeries.empty(true)
+                : new TimeSeries(true, from, (int) (lastDay - from + 1));
+        for (long day = from; day <= lastDay; day++) {
+            int slot = (int) (day - origin);
+            if (events[slot] > 0)
+                window.add(day, totals[slot]);
+        }
+
+        // Same results as SimpleRegression: NaN below two distinct points
+        double slope = Double.NaN;
+        double intercept = Double.NaN;
+        double sxx = n > 0 ? sumXX - sumX * sumX / n : 0;
+        if (n >= 2 && sxx != 0) {
+            slope = (sumXY - sumX * sumY / n) / sxx;
+            intercept = (sumY - slope * sumX) / n;
+        }
+
+        double[] weekdayIndices = null;
+        if (n > 0) {
+            double mean = sumY / n;
+            weekdayIndices = new double[7];
+            for (int d = 0; d < 7; d++) {
+                weekdayIndices[d] = weekdayCounts[d] > 0 && mean != 0 ? (weekdaySums[d] / weekdayCounts[d]) / mean
+                        : 1.0;
+            }
+        }
+        return new Fit(window, anchor, slope, intercept, weekdayIndices, lastDay, total);
+    }
+
+    /** Whole history, from the first to the last day with costs. Costs O(history). */
+    public synchronized TimeSeries history() {
+        if (lastDay == NONE)
+            return TimeSeries.empty(true);
+        int first = 0;
+        while (events[first] <= 0)
+            first++;
+        TimeSeries history = new TimeSeries(true, origin + first, (int) (lastDay - origin - first + 1));
+        for (int slot = first; slot <= lastDay - origin; slot++) {
+            if (events[slot] > 0)
+                history.add(origin + slot, totals[slot]);
+        }
+        return history;
+    }
+
+    private void addPoint(long day, double y) {
+        double x = day - anchor;
+        n++;
+        sumX += x;
+        sumY += y;
+        sumXY += x * y;
+        sumXX += x * x;
+        int weekday = TimeSeries.dayOfWeekIndex(day);
+        weekdaySums[weekday] += y;
+        weekdayCounts[weekday]++;
+    }
+
+    private void removePoint(long day, double y) {
+        double x = day - anchor;
+        n--;
+        sumX -= x;
+        sumY -= y;
+        sumXY -= x * y;
+        sumXX -= x * x;
+        int weekday = TimeSeries.dayOfWeekIndex(day);
+        weekdaySums[weekday] -= y;
+        weekdayCounts[weekday]--;
+    }
+
+    private long previousDay(int fromSlot) {
+        for (int slot = fromSlot - 1; slot >= 0; slot--) {
+            if (events[slot] > 0)
+                return origin + slot;
+        }
+        return NONE;
+    }
+
+    private int slotOf(long day) {
+        if (totals.length == 0) {
+            origin = day;
+            totals = new double[INITIAL_CAPACITY];
+            events = new long[INITIAL_CAPACITY];
+        } else if (day < origin) {
+            // Backdated event: grow to the left
+            int shift = (int) Math.max(origin - day, totals.length);
+            totals = shiftRight(totals, shift);
+            events = shiftRight(events, shift);
+            origin -= shift;
+        } else if (day - origin >= totals.length) {
+            int capacity = (int) Math.max(day - origin + 1, 2L * totals.length);
+            totals = Arrays.copyOf(totals, capacity);
+            events = Arrays.copyOf(events, capacity);
+        }
+        return (int) (day - origin);
+    }
+
+    private static double[] shiftRight(double[] values, int shift) {
+        double[] shifted = new double[values.length + shift];
+        System.arraycopy(values, 0, shifted, shift, values.length);
+        return shifted;
+    }
+
+    private static long[] shiftRight(long[] values, int shift) {
+        long[] shifted = new long[values.length + shift];
+        System.arraycopy(values, 0, shifted, shift, values.length);
+        return shifted;
+    }
+
+    /** Fitted line, weekday indices and the days to show; immutable, read without the model lock. */
+    public record Fit(TimeSeries window, long anchor, double slope, double intercept, double[] weekdayIndices,
+            long lastDay, BigDecimal total) {
+
+        public double predict(long day) {
+            return intercept + slope * (day - anchor);
+        }
+    }
+
+    /** Full copy of the model state. */
+    public record Snapshot(long origin, double[] totals, long[] events, BigDecimal total, long lastDay, long anchor,
+            long n, double sumX, double sumY, double sumXY, double sumXX, double[] weekdaySums,
+            long[] weekdayCounts) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.springframework.stereotype.Component;
+
+/** Baseline: every day costs what the same weekday cost in the last week observed. */
+@Component
+public class SeasonalNaiveModel implements ForecastModel {
+
+    private static final int SEASON = 7;
+
+    @Override
+    public String name() {
+        return "seasonal-naive";
+    }
+
+    @Override
+    public int minHistory() {
+        return SEASON;
+    }
+
+    @Override
+    public Forecaster fit(TimeSeries history) {
+        double[] y = history.toArray();
+        long origin = history.origin();
+        int length = y.length;
+
+        return period -> {
+            long i = period - origin;
+            if (i < 0)
+                return 0;
+            if (i < length)
+                return i >= SEASON ? y[(int) i - SEASON] : y[(int) i];
+            return y[length - SEASON + (int) Math.floorMod(i - length, SEASON)];
+        };
+    }
+}
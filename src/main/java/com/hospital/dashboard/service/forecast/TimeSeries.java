@@ -0,0 +1,156 @@
+package com.hospital.dashboard.service.forecast;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Dense time series of amounts: bucket i holds the value of period {@code origin + i}, where a period
+ * is an epoch day (daily series) or a month index {@code year * 12 + month - 1} (monthly series).
+ * Values live in a primitive array and absent periods are flagged, so grouping, fitting and
+ * back-testing never allocate per point.
+ */
+public final class TimeSeries {
+
+    private final boolean daily;
+    private final long origin;
+    private final double[] values;
+    private final boolean[] present;
+    private int presentCount;
+
+    public TimeSeries(boolean daily, long origin, int length) {
+        this.daily = daily;
+        this.origin = origin;
+        this.values = new double[length];
+        this.present = new boolean[length];
+    }
+
+    public static TimeSeries empty(boolean daily) {
+        return new TimeSeries(daily, 0, 0);
+    }
+
+    /** Period index of a date: its epoch day, or its month index for a monthly series. */
+    public static long periodOf(LocalDate date, boolean daily) {
+        return daily ? date.toEpochDay() : date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    /** First day of a period. */
+    public static LocalDate dateOf(long period, boolean daily) {
+        return daily ? LocalDate.ofEpochDay(period)
+                : LocalDate.of((int) Math.floorDiv(period, 12), (int) Math.floorMod(period, 12) + 1, 1);
+    }
+
+    /** Label used in the JSON responses: "yyyy-MM-dd" for days, "yyyy-MM" for months. */
+    public static String labelOf(long period, boolean daily) {
+        if (daily)
+            return LocalDate.ofEpochDay(period).toString();
+        return String.format("%d-%02d", Math.floorDiv(period, 12), Math.floorMod(period, 12) + 1);
+    }
+
+    /** Day of week of an epoch day without building a LocalDate (epoch day 0 was a Thursday). */
+    public static int dayOfWeekIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay + DayOfWeek.THURSDAY.ordinal(), 7);
+    }
+
+    public void add(long period, double value) {
+        int i = (int) (period - origin);
+        if (!present[i]) {
+            present[i] = true;
+            presentCount++;
+        }
+        values[i] += value;
+    }
+
+    public boolean isDaily() {
+        return daily;
+    }
+
+    public long origin() {
+        return origin;
+    }
+
+    public int length() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return presentCount == 0;
+    }
+
+    public int presentCount() {
+        return presentCount;
+    }
+
+    public boolean isPresent(int i) {
+        return present[i];
+    }
+
+    public double value(int i) {
+        return values[i];
+    }
+
+    public long period(int i) {
+        return origin + i;
+    }
+
+    /** Dense copy of the values, 0 for absent periods. */
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    /** Copy of buckets [from, to), as a series starting at period(from). */
+    public TimeSeries slice(int from, int to) {
+        TimeSeries slice = new TimeSeries(daily, origin + from, to - from);
+        for (int i = from; i < to; i++) {
+            if (present[i])
+                slice.add(origin + i, values[i]);
+        }
+        return slice;
+    }
+
+    /** Last period holding a value, or -1 when empty. */
+    public long lastPeriod() {
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (present[i])
+                return origin + i;
+        }
+        return -1;
+    }
+
+    /** Mean over the periods holding a value. */
+    public double mean() {
+        if (presentCount == 0)
+            return 0;
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (present[i])
+                sum += values[i];
+        }
+        return sum / presentCount;
+    }
+
+    /**
+     * Day-of-week indices (Monday first) of a daily series: mean of each weekday over the overall mean.
+     * Weekdays without data, or a zero overall mean, get a neutral 1.0.
+     */
+    public double[] weekdayIndices() {
+        double[] sums = new double[7];
+        int[] counts = new int[7];
+        for (int i = 0; i < values.length; i++) {
+            if (present[i]) {
+                int day = dayOfWeekIndex(origin + i);
+                sums[day] += values[i];
+                counts[day]++;
+            }
+        }
+
+        double mean = mean();
+        double[] indices = new double[7];
+        Arrays.fill(indices, 1.0);
+        for (int day = 0; day < 7; day++) {
+            if (counts[day] > 0 && mean != 0)
+                indices[day] = (sums[day] / counts[day]) / mean;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,150 @@
+package com.hospital.dashboard.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    private final DataVersion dataVersion = new DataVersion();
+
+    @Test
+    void testHitUntilDataVersionChanges() {
+        ResultCache cache = new ResultCache(dataVersion, 10, false);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, load(cache, "k", loads));
+        assertEquals(1, load(cache, "k", loads));
+
+        dataVersion.bump();
+        assertEquals(2, load(cache, "k", loads));
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(1, stats.get("size"));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(dataVersion, 2, false);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", loads::incrementAndGet);
+        cache.get("b", loads::incrementAndGet);
+        cache.get("a", loads::incrementAndGet); // "a" becomes the most recently used
+        cache.get("c", loads::incrementAndGet); // evicts "b"
+
+        assertEquals(3, loads.get());
+        cache.get("a", loads::incrementAndGet);
+        assertEquals(3, loads.get());
+        cache.get("b", loads::incrementAndGet);
+        assertEquals(4, loads.get());
+
+        assertEquals(2L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void testServeStaleRefreshesInBackground() throws InterruptedException {
+        ResultCache cache = new ResultCache(dataVersion, 10, true);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, load(cache, "k", loads));
+        dataVersion.bump();
+
+        // The stale value comes back at once while the refresh runs
+        assertEquals(1, load(cache, "k", loads));
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (loads.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, loads.get());
+        Thread.sleep(50);
+        assertEquals(2, load(cache, "k", loads));
+        assertEquals(1L, cache.getStats().get("staleHits"));
+
+        cache.shutdown();
+    }
+
+    @Test
+    void testInvalidate() {
+        ResultCache cache = new ResultCache(dataVersion, 10, false);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("k", loads::incrementAndGet);
+        cache.invalidate("k");
+        cache.get("k", loads::incrementAndGet);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testResultsAreReadOnly() {
+        ResultCache cache = new ResultCache(dataVersion, 10, false);
+        Map<String, Object> point = new HashMap<>();
+        point.put("real", 10);
+        point.put("predicted", null);
+        Map<String, Object> computed = new HashMap<>();
+        computed.put("globalHistory", new ArrayList<>(List.of(point)));
+
+        Map<String, Object> first = cache.get("k", () -> computed);
+        Map<String, Object> second = cache.get("k", () -> computed);
+        assertSame(first, second);
+
+        assertThrows(UnsupportedOperationException.class, () -> first.put("globalTotal", 1));
+        List<Map<String, Object>> history = (List<Map<String, Object>>) first.get("globalHistory");
+        assertThrows(UnsupportedOperationException.class, () -> history.add(Map.of()));
+        assertThrows(UnsupportedOperationException.class, () -> history.get(0).put("real", 20));
+        assertTrue(history.get(0).containsKey("predicted"));
+
+        // Later changes to what the loader built do not reach the cached copy
+        point.put("real", 30);
+        assertEquals(10, history.get(0).get("real"));
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws InterruptedException {
+        ResultCache cache = new ResultCache(dataVersion, 10, false);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            executor.execute(() -> {
+                cache.get("forecast:global:30", () -> {
+                    loads.incrementAndGet();
+                    sleep(100);
+                    return "forecast";
+                });
+                done.countDown();
+            });
+        }
+        done.await();
+
+        assertEquals(1, loads.get());
+        executor.shutdown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int load(ResultCache cache, String key, AtomicInteger loads) {
+        return cache.get(key, loads::incrementAndGet);
+    }
+}
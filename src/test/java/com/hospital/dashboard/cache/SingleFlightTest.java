@@ -0,0 +1,73 @@
+package com.hospital.dashboard.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("forecast:30", () -> {
+                computations.incrementAndGet();
+                await(release);
+                return 42;
+            })));
+        }
+        // Let every caller reach the in-flight computation before it completes
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertEquals(42, result.get());
+        }
+        assertEquals(1, computations.get());
+        assertEquals(9, singleFlight.getSharedCount());
+        executor.shutdown();
+    }
+
+    @Test
+    void testSequentialCallsComputeAgain() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+
+        singleFlight.execute("k", computations::incrementAndGet);
+        singleFlight.execute("k", computations::incrementAndGet);
+
+        // Nothing is retained once a computation is over
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    void testFailureIsPropagatedAndNotRetained() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("k", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(7, singleFlight.execute("k", () -> 7));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.hospital.dashboard.config;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.mock;
 
@@ -20,4 +25,18 @@ class ConfigTest {
         CorsConfig config = new CorsConfig();
         assertNotNull(config.corsFilter());
     }
+
+    @Test
+    void testDashboardExecutorIsBounded() {
+        ThreadPoolTaskExecutor executor = new AsyncConfig().dashboardExecutor(3, 10);
+        executor.initialize();
+
+        assertEquals(3, executor.getCorePoolSize());
+        assertEquals(3, executor.getMaxPoolSize());
+        assertEquals(10, executor.getQueueCapacity());
+        // A saturated pool rejects instead of running sections on the request thread
+        assertInstanceOf(ThreadPoolExecutor.AbortPolicy.class,
+                executor.getThreadPoolExecutor().getRejectedExecutionHandler());
+        executor.shutdown();
+    }
 }
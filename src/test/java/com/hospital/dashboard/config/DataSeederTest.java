@@ -3,6 +3,7 @@ package com.hospital.dashboard.config;
 import com.hospital.dashboard.model.Patient;
 import com.hospital.dashboard.model.Personnel;
 import com.hospital.dashboard.repository.*;
+import com.hospital.dashboard.service.CostRollupService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -32,6 +33,8 @@ class DataSeederTest {
     private ConsumableRepository consumableRepository;
     @Mock
     private PersonnelRepository personnelRepository;
+    @Mock
+    private CostRollupService costRollupService;
 
     @InjectMocks
     private DataSeeder dataSeeder;
@@ -60,6 +63,7 @@ class DataSeederTest {
         verify(patientRepository, times(1)).saveAll(anyList());
         verify(personnelRepository, times(1)).saveAll(anyList());
         verify(medicationRepository, times(2)).saveAll(anyList());
+        verify(costRollupService).rebuild();
     }
 
     @Test
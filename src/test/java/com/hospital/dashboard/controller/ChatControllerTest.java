@@ -1,15 +1,25 @@
 package com.hospital.dashboard.controller;
 
 import com.hospital.dashboard.service.ChatService;
+import com.hospital.dashboard.service.LlmBusyException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -24,7 +34,7 @@ class ChatControllerTest {
 
     @Test
     void testChat_Success() throws Exception {
-        given(chatService.chat(anyString())).willReturn("AI Response");
+        given(chatService.chat(anyString(), anyString(), any())).willReturn("AI Response");
 
         mockMvc.perform(post("/api/chat")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -33,6 +43,66 @@ class ChatControllerTest {
                 .andExpect(jsonPath("$.response").value("AI Response"));
     }
 
+    @Test
+    void testChat_ClientIdentifiedForTheAdmissionQueue() throws Exception {
+        given(chatService.chat(anyString(), anyString(), any())).willReturn("AI Response");
+
+        mockMvc.perform(post("/api/chat")
+                .header("X-Client-Id", "mobile-42")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \"Hello\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/chat")
+                .with(request -> {
+                    request.setRemoteAddr("10.0.0.7");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \"Hello\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/chat")
+                .principal(() -> "alice")
+                .header("X-Client-Id", "web-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \"Hello\"}"))
+                .andExpect(status().isOk());
+
+        // The header is only a sub-key, within the user or the address
+        verify(chatService).chat("Hello", "127.0.0.1", "mobile-42");
+        verify(chatService).chat("Hello", "10.0.0.7", null);
+        verify(chatService).chat("Hello", "alice", "web-1");
+    }
+
+    @Test
+    void testChat_QueueFull() throws Exception {
+        given(chatService.chat(anyString(), anyString(), any())).willThrow(new LlmBusyException(7));
+
+        mockMvc.perform(post("/api/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \"Hello\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "7"));
+    }
+
+    @Test
+    void testStream_QueueFull() throws Exception {
+        given(chatService.chatStream(anyString(), anyString(), any())).willReturn(Flux.error(new LlmBusyException(3)));
+
+        MvcResult result = mockMvc.perform(post("/api/chat/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \"Hello\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        // Refused once the stream started: the retry hint comes as an event
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:busy"), body);
+        assertTrue(body.contains("\"retryAfterSeconds\":\"3\""), body);
+        assertFalse(body.contains("event:error"), body);
+        assertFalse(body.contains("event:done"), body);
+    }
+
     @Test
     void testChat_EmptyMessage() throws Exception {
         mockMvc.perform(post("/api/chat")
@@ -41,4 +111,50 @@ class ChatControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.response").value("Message vide."));
     }
+
+    @Test
+    void testStream() throws Exception {
+        given(chatService.chatStream(eq("Hello"), anyString(), any())).willReturn(Flux.just("Bon", "jour"));
+
+        MvcResult result = mockMvc.perform(post("/api/chat/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \"Hello\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(result.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+        assertTrue(body.indexOf("event:token\ndata:{\"content\":\"Bon\"}") < body.indexOf(
+                "event:token\ndata:{\"content\":\"jour\"}"), body);
+        assertTrue(body.contains("event:done"), body);
+    }
+
+    @Test
+    void testStream_FailureMidAnswer() throws Exception {
+        given(chatService.chatStream(eq("Hello"), anyString(), any()))
+                .willReturn(Flux.concat(Flux.just("Bon"), Flux.error(new IllegalStateException("Connection reset"))));
+
+        MvcResult result = mockMvc.perform(post("/api/chat/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \"Hello\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:error"), body);
+        assertFalse(body.contains("event:done"), body);
+    }
+
+    @Test
+    void testStream_EmptyMessage() throws Exception {
+        // The mock also gets the ApplicationReadyEvent that warms the chat context
+        clearInvocations(chatService);
+        mockMvc.perform(post("/api/chat/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\": \" \"}"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(chatService);
+    }
 }
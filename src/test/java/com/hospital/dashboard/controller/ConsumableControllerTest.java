@@ -1,7 +1,13 @@
 package com.hospital.dashboard.controller;
 
+import com.hospital.dashboard.dto.ConsumableSummary;
 import com.hospital.dashboard.model.Consumable;
+import com.hospital.dashboard.repository.BatchWriter;
 import com.hospital.dashboard.repository.ConsumableRepository;
+import com.hospital.dashboard.repository.EntityExporter;
+import com.hospital.dashboard.repository.KeysetPager;
+import com.hospital.dashboard.service.CostRollupService;
+import com.hospital.dashboard.service.SummaryService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -9,12 +15,17 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -27,6 +38,21 @@ class ConsumableControllerTest {
     @MockBean
     private ConsumableRepository consumableRepository;
 
+    @MockBean
+    private KeysetPager keysetPager;
+
+    @MockBean
+    private EntityExporter entityExporter;
+
+    @MockBean
+    private BatchWriter batchWriter;
+
+    @MockBean
+    private SummaryService summaryService;
+
+    @MockBean
+    private CostRollupService costRollupService;
+
     @Test
     void testGetAllConsumables() throws Exception {
         Consumable c = new Consumable();
@@ -86,4 +112,36 @@ class ConsumableControllerTest {
 
         verify(consumableRepository).deleteById(1L);
     }
+
+    @Test
+    void testGetSummaries() throws Exception {
+        given(summaryService.consumables(Set.of())).willReturn(List.of(new ConsumableSummary(1L, null, 2,
+                new BigDecimal("12.50"), 3L, "Paracetamol", 4L, "Jane", "Doe")));
+
+        mockMvc.perform(get("/api/consumables/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].medicationName").value("Paracetamol"))
+                .andExpect(jsonPath("$[0].patientLastName").value("Doe"))
+                .andExpect(jsonPath("$[0].totalCost").value(12.5))
+                .andExpect(jsonPath("$[0].medication").doesNotExist())
+                .andExpect(jsonPath("$[0].patient").doesNotExist());
+    }
+
+    @Test
+    void testGetSummaries_Expand() throws Exception {
+        given(summaryService.consumables(Set.of("patient", "medication"))).willReturn(List.of());
+
+        mockMvc.perform(get("/api/consumables/summaries?expand=patient,medication"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/consumables/summaries?expand=patient&expand=medication"))
+                .andExpect(status().isOk());
+        verify(summaryService, times(2)).consumables(Set.of("patient", "medication"));
+    }
+
+    @Test
+    void testGetSummaries_UnknownExpand() throws Exception {
+        mockMvc.perform(get("/api/consumables/summaries?expand=personnel"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(summaryService);
+    }
 }
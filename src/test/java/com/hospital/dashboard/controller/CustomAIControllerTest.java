@@ -10,8 +10,11 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -36,7 +39,7 @@ class CustomAIControllerTest {
     @Test
     void testAsk() throws Exception {
         given(customAIService.isTrained()).willReturn(true); // Mock training check
-        given(chatService.chat(anyString())).willReturn("AI Answer"); // Mock ChatService delegation
+        given(chatService.chat(anyString(), anyString(), any())).willReturn("AI Answer"); // Mock ChatService delegation
 
         mockMvc.perform(post("/api/custom-ai/ask")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -44,4 +47,16 @@ class CustomAIControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.answer").value("AI Answer"));
     }
+
+    @Test
+    void testAskWithoutQuestion() throws Exception {
+        given(customAIService.isTrained()).willReturn(true);
+
+        mockMvc.perform(post("/api/custom-ai/ask")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verify(chatService, never()).chat(any(), any(), any());
+    }
 }
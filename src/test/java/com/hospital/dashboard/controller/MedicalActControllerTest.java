@@ -1,22 +1,41 @@
 package com.hospital.dashboard.controller;
 
+import com.hospital.dashboard.dto.BatchResult;
 import com.hospital.dashboard.model.MedicalAct;
+import com.hospital.dashboard.repository.BatchWriter;
+import com.hospital.dashboard.repository.EntityExporter;
+import com.hospital.dashboard.repository.KeysetPager;
 import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.service.CostRollupService;
+import com.hospital.dashboard.service.SummaryService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +49,33 @@ class MedicalActControllerTest {
     @MockBean
     private MedicalActRepository medicalActRepository;
 
+    @MockBean
+    private KeysetPager keysetPager;
+
+    @MockBean
+    private EntityExporter entityExporter;
+
+    @MockBean
+    private BatchWriter batchWriter;
+
+    @MockBean
+    private SummaryService summaryService;
+
+    @MockBean
+    private CostRollupService costRollupService;
+
+    @BeforeEach
+    void runBatchesInOneChunk() {
+        // The chunking and the transaction are BatchWriter's; here the whole batch is one chunk
+        given(batchWriter.write(anyList(), any())).willAnswer(invocation -> {
+            List<MedicalAct> items = invocation.getArgument(0);
+            BatchWriter.ChunkWriter<MedicalAct> writer = invocation.getArgument(1);
+            List<BatchResult.Item> results = new ArrayList<>();
+            writer.write(items, 0, results);
+            return BatchResult.of(results);
+        });
+    }
+
     @Test
     void testGetAllMedicalActs() throws Exception {
         MedicalAct act = new MedicalAct();
@@ -52,6 +98,8 @@ class MedicalActControllerTest {
                 .content("{\"type\": \"Consultation\", \"cost\": 50.0}"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.type").value("Consultation"));
+
+        verify(costRollupService).add(act);
     }
 
     @Test
@@ -72,6 +120,10 @@ class MedicalActControllerTest {
                 .content("{\"type\": \"New Type\"}"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.type").value("New Type"));
+
+        // The old contribution leaves the rollup before the new one is added
+        verify(costRollupService).remove(existing);
+        verify(costRollupService).add(updated);
     }
 
     @Test
@@ -81,4 +133,108 @@ class MedicalActControllerTest {
 
         verify(medicalActRepository).deleteById(1L);
     }
+
+    @Test
+    void testDeleteMedicalAct_UpdatesRollup() throws Exception {
+        MedicalAct existing = new MedicalAct();
+        existing.setId(2L);
+        existing.setDate(LocalDate.of(2024, 1, 10));
+        existing.setCost(BigDecimal.valueOf(120));
+        given(medicalActRepository.findById(2L)).willReturn(Optional.of(existing));
+
+        mockMvc.perform(delete("/api/medical-acts/2"))
+                .andExpect(status().isOk());
+
+        verify(costRollupService).remove(existing);
+        verify(medicalActRepository).deleteById(2L);
+    }
+
+    @Test
+    void testExportStreamsNdjson() throws Exception {
+        willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).given(entityExporter).writeNdjson(eq(MedicalAct.class), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/medical-acts/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"medicalact.ndjson\""))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void testCreateBatch() throws Exception {
+        given(medicalActRepository.save(any(MedicalAct.class))).willAnswer(invocation -> {
+            MedicalAct act = invocation.getArgument(0);
+            act.setId(act.getType().equals("Consultation") ? 10L : 11L);
+            return act;
+        });
+
+        mockMvc.perform(post("/api/medical-acts/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"type\": \"Consultation\", \"cost\": 50.0},"
+                        + " {\"id\": 3, \"type\": \"Scan\"},"
+                        + " {\"type\": \"Surgery\", \"cost\": 900.0}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.items[0].id").value(10))
+                .andExpect(jsonPath("$.items[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$.items[1].error").value("Id must not be set on create"))
+                .andExpect(jsonPath("$.items[2].index").value(2))
+                .andExpect(jsonPath("$.items[2].id").value(11));
+
+        verify(costRollupService, times(2)).add(any(MedicalAct.class));
+    }
+
+    @Test
+    void testUpdateBatch() throws Exception {
+        MedicalAct existing = new MedicalAct();
+        existing.setId(1L);
+        existing.setType("Old Type");
+        existing.setCost(BigDecimal.TEN);
+        given(medicalActRepository.findAllById(List.of(1L, 2L))).willReturn(List.of(existing));
+        given(medicalActRepository.save(existing)).willReturn(existing);
+
+        mockMvc.perform(put("/api/medical-acts/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": 1, \"type\": \"New Type\", \"cost\": 20.0},"
+                        + " {\"id\": 2, \"type\": \"Gone\"}, {\"type\": \"No id\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$.items[1].error").value("Not found"))
+                .andExpect(jsonPath("$.items[2].error").value("Missing id"))
+                .andExpect(jsonPath("$.items[2].id").doesNotExist());
+
+        assertEquals("New Type", existing.getType());
+        verify(costRollupService).remove(existing);
+        verify(costRollupService).add(existing);
+    }
+
+    @Test
+    void testBatchErrors() throws Exception {
+        // Stubbed without calling write, which would run the one-chunk answer with a null writer
+        willThrow(new IllegalArgumentException("At most 10000 items per batch"))
+                .willThrow(new DataIntegrityViolationException("constraint"))
+                .given(batchWriter).write(anyList(), any());
+
+        mockMvc.perform(post("/api/medical-acts/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/medical-acts/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"type\": \"Consultation\"}]"))
+                .andExpect(status().isConflict());
+
+        verify(medicalActRepository, never()).save(any(MedicalAct.class));
+    }
 }
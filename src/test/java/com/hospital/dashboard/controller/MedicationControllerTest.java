@@ -1,6 +1,9 @@
 package com.hospital.dashboard.controller;
 
 import com.hospital.dashboard.model.Medication;
+import com.hospital.dashboard.repository.BatchWriter;
+import com.hospital.dashboard.repository.EntityExporter;
+import com.hospital.dashboard.repository.KeysetPager;
 import com.hospital.dashboard.repository.MedicationRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +31,15 @@ class MedicationControllerTest {
     @MockBean
     private MedicationRepository medicationRepository;
 
+    @MockBean
+    private KeysetPager keysetPager;
+
+    @MockBean
+    private EntityExporter entityExporter;
+
+    @MockBean
+    private BatchWriter batchWriter;
+
     @Test
     void testGetAllMedications() throws Exception {
         Medication m = new Medication();
@@ -0,0 +1,48 @@
+package com.hospital.dashboard.controller;
+
+import com.hospital.dashboard.cache.ResultCache;
+import com.hospital.dashboard.service.LlmAdmissionQueue;
+import com.hospital.dashboard.service.LlmCircuitBreaker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MetricsController.class)
+class MetricsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ResultCache resultCache;
+
+    @MockBean
+    private LlmCircuitBreaker llmCircuitBreaker;
+
+    @MockBean
+    private LlmAdmissionQueue llmAdmissionQueue;
+
+    @Test
+    void testGetMetrics() throws Exception {
+        given(resultCache.getStats()).willReturn(Map.of("hits", 3L, "misses", 1L));
+        given(llmCircuitBreaker.getStats()).willReturn(Map.of("state", "OPEN", "stateLevel", 2));
+        given(llmAdmissionQueue.getStats()).willReturn(Map.of("queueDepth", 4, "waitMsP95", 1200L));
+
+        mockMvc.perform(get("/api/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cache.hits").value(3))
+                .andExpect(jsonPath("$.cache.misses").value(1))
+                .andExpect(jsonPath("$.llmCircuitBreaker.state").value("OPEN"))
+                .andExpect(jsonPath("$.llmCircuitBreaker.stateLevel").value(2))
+                .andExpect(jsonPath("$.llmQueue.queueDepth").value(4))
+                .andExpect(jsonPath("$.llmQueue.waitMsP95").value(1200));
+    }
+}
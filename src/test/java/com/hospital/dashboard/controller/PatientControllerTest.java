@@ -1,7 +1,12 @@
 package com.hospital.dashboard.controller;
 
 import com.hospital.dashboard.model.Patient;
+import com.hospital.dashboard.repository.BatchWriter;
+import com.hospital.dashboard.repository.EntityExporter;
+import com.hospital.dashboard.repository.KeysetPager;
 import com.hospital.dashboard.repository.PatientRepository;
+import com.hospital.dashboard.service.CostRollupService;
+import com.hospital.dashboard.service.StayIntervalIndex;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -27,6 +32,21 @@ class PatientControllerTest {
     @MockBean
     private PatientRepository patientRepository;
 
+    @MockBean
+    private KeysetPager keysetPager;
+
+    @MockBean
+    private EntityExporter entityExporter;
+
+    @MockBean
+    private BatchWriter batchWriter;
+
+    @MockBean
+    private CostRollupService costRollupService;
+
+    @MockBean
+    private StayIntervalIndex stayIntervalIndex;
+
     @Test
     void testGetAllPatients() throws Exception {
         Patient p = new Patient();
@@ -1,6 +1,9 @@
 package com.hospital.dashboard.controller;
 
 import com.hospital.dashboard.model.Personnel;
+import com.hospital.dashboard.repository.BatchWriter;
+import com.hospital.dashboard.repository.EntityExporter;
+import com.hospital.dashboard.repository.KeysetPager;
 import com.hospital.dashboard.repository.PersonnelRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +30,15 @@ class PersonnelControllerTest {
     @MockBean
     private PersonnelRepository personnelRepository;
 
+    @MockBean
+    private KeysetPager keysetPager;
+
+    @MockBean
+    private EntityExporter entityExporter;
+
+    @MockBean
+    private BatchWriter batchWriter;
+
     @Test
     void testGetAllPersonnel() throws Exception {
         Personnel p1 = new Personnel();
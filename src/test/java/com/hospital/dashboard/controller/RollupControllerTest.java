@@ -0,0 +1,31 @@
+package com.hospital.dashboard.controller;
+
+import com.hospital.dashboard.service.CostRollupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(RollupController.class)
+class RollupControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CostRollupService costRollupService;
+
+    @Test
+    void testRebuild() throws Exception {
+        mockMvc.perform(post("/api/rollup/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Rollup rebuilt"));
+
+        verify(costRollupService).rebuild();
+    }
+}
@@ -1,8 +1,16 @@
 package com.hospital.dashboard.controller;
 
+import com.hospital.dashboard.dto.KeysetPage;
+import com.hospital.dashboard.dto.StayInterval;
 import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.repository.BatchWriter;
+import com.hospital.dashboard.repository.EntityExporter;
 import com.hospital.dashboard.repository.HospitalStayRepository;
+import com.hospital.dashboard.repository.KeysetPager;
+import com.hospital.dashboard.service.CostRollupService;
 import com.hospital.dashboard.service.RevenueService;
+import com.hospital.dashboard.service.StayIntervalIndex;
+import com.hospital.dashboard.service.SummaryService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -16,8 +24,12 @@ import java.util.Arrays;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -30,9 +42,27 @@ class StayControllerTest {
     @MockBean
     private HospitalStayRepository stayRepository;
 
+    @MockBean
+    private KeysetPager keysetPager;
+
+    @MockBean
+    private EntityExporter entityExporter;
+
+    @MockBean
+    private BatchWriter batchWriter;
+
+    @MockBean
+    private SummaryService summaryService;
+
+    @MockBean
+    private CostRollupService costRollupService;
+
     @MockBean
     private RevenueService revenueService;
 
+    @MockBean
+    private StayIntervalIndex stayIntervalIndex;
+
     @Test
     void testGetAllStays() throws Exception {
         HospitalStay s = new HospitalStay();
@@ -82,6 +112,38 @@ class StayControllerTest {
         mockMvc.perform(delete("/api/stays/1"))
                 .andExpect(status().isOk());
         verify(stayRepository).deleteById(1L);
+        verify(stayIntervalIndex).remove(1L);
+    }
+
+    @Test
+    void testGetOccupancy() throws Exception {
+        LocalDate day = LocalDate.of(2024, 3, 10);
+        given(stayIntervalIndex.occupiedOn(day)).willReturn(Arrays.asList(
+                new StayInterval(9L, day.minusDays(2), day, BigDecimal.TEN),
+                new StayInterval(4L, day, day.plusDays(3), BigDecimal.TEN)));
+
+        mockMvc.perform(get("/api/stays/occupancy?date=2024-03-10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.date").value("2024-03-10"))
+                .andExpect(jsonPath("$.occupied").value(2))
+                .andExpect(jsonPath("$.stayIds[0]").value(4))
+                .andExpect(jsonPath("$.stayIds[1]").value(9));
+        verifyNoInteractions(stayRepository);
+    }
+
+    @Test
+    void testGetOccupancy_OverARange() throws Exception {
+        given(stayIntervalIndex.countOverlapping(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)))
+                .willReturn(1234L);
+
+        mockMvc.perform(get("/api/stays/occupancy?from=2024-01-01&to=2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stays").value(1234));
+
+        mockMvc.perform(get("/api/stays/occupancy?from=2024-01-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/stays/occupancy?from=2024-12-31&to=2024-01-01"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -92,4 +154,44 @@ class StayControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("1000"));
     }
+
+    @Test
+    void testGetPage() throws Exception {
+        HospitalStay s = new HospitalStay();
+        s.setPathology("Flu");
+        given(keysetPager.page(HospitalStay.class, "startDate", true, "abc", 2, LocalDate.of(2024, 1, 1), null, 7L,
+                true)).willReturn(new KeysetPage<>(Arrays.asList(s), "next", 2, 40L));
+
+        mockMvc.perform(get("/api/stays?limit=2&after=abc&sort=date&order=desc&from=2024-01-01&patientId=7&total=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].pathology").value("Flu"))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.total").value(40));
+        verifyNoInteractions(stayRepository);
+    }
+
+    @Test
+    void testGetPage_LastPageOmitsCursorAndTotal() throws Exception {
+        given(keysetPager.page(HospitalStay.class, null, false, null, 50, null, null, null, false))
+                .willReturn(new KeysetPage<>(Arrays.asList(), null, 50, null));
+
+        mockMvc.perform(get("/api/stays?limit=50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andExpect(jsonPath("$.total").doesNotExist());
+    }
+
+    @Test
+    void testGetPage_BadRequests() throws Exception {
+        mockMvc.perform(get("/api/stays?limit=10&sort=pathology"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/stays?limit=10&order=sideways"))
+                .andExpect(status().isBadRequest());
+
+        given(keysetPager.page(eq(HospitalStay.class), any(), anyBoolean(), eq("garbage"), anyInt(), any(), any(),
+                any(), anyBoolean())).willThrow(new IllegalArgumentException("Invalid cursor"));
+        mockMvc.perform(get("/api/stays?limit=10&after=garbage"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,49 @@
+package com.hospital.dashboard.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyAccumulatorTest {
+
+    @Test
+    void testMatchesBigDecimalSum() {
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(i % 9973, 2);
+            accumulator.add(amount);
+            expected = expected.add(amount);
+        }
+
+        assertEquals(0, expected.compareTo(accumulator.toBigDecimal()));
+        assertEquals(100_000, accumulator.count());
+    }
+
+    @Test
+    void testRatesAndNulls() {
+        MoneyAccumulator accumulator = new MoneyAccumulator()
+                .addTimes(new BigDecimal("150.25"), 3)
+                .add((BigDecimal) null)
+                .addTimes(null, 5)
+                .add(Money.ofCents(25));
+
+        assertEquals(new BigDecimal("451.00"), accumulator.toBigDecimal());
+        assertEquals(Money.ofCents(45100), accumulator.total());
+        assertEquals(2, accumulator.count());
+
+        accumulator.add(new MoneyAccumulator().addCents(100));
+        assertEquals(45200, accumulator.cents());
+        assertEquals(3, accumulator.count());
+    }
+
+    @Test
+    void testOverflowIsDetected() {
+        MoneyAccumulator accumulator = new MoneyAccumulator().addCents(Long.MAX_VALUE - 1);
+
+        assertThrows(ArithmeticException.class, () -> accumulator.addCents(2));
+        assertThrows(ArithmeticException.class, () -> accumulator.addTimes(BigDecimal.ONE, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,58 @@
+package com.hospital.dashboard.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testConversions() {
+        assertEquals(12345, Money.of(new BigDecimal("123.45")).cents());
+        assertEquals(12300, Money.of(BigDecimal.valueOf(123)).cents());
+        assertEquals(12300, Money.of(new BigDecimal("1.23E+2")).cents());
+        assertEquals(-550, Money.of(new BigDecimal("-5.5")).cents());
+        assertSame(Money.ZERO, Money.of(null));
+
+        // Finer than a cent rounds half-up, as the numeric(38,2) columns do
+        assertEquals(1001, Money.of(new BigDecimal("10.005")).cents());
+        assertEquals(1000, Money.of(new BigDecimal("10.004")).cents());
+
+        assertEquals(new BigDecimal("123.45"), Money.ofCents(12345).toBigDecimal());
+        assertEquals("0.05", Money.ofCents(5).toString());
+    }
+
+    @Test
+    void testArithmetic() {
+        Money a = Money.of(new BigDecimal("10.10"));
+        Money b = Money.of(new BigDecimal("0.20"));
+
+        assertEquals(Money.ofCents(1030), a.plus(b));
+        assertEquals(Money.ofCents(990), a.minus(b));
+        assertEquals(Money.ofCents(3030), a.times(3));
+        assertEquals(Money.ofCents(-1010), a.negate());
+        assertTrue(a.compareTo(b) > 0);
+        assertTrue(a.minus(a).isZero());
+    }
+
+    @Test
+    void testOverflowIsDetected() {
+        Money max = Money.ofCents(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1E+30")));
+    }
+
+    @Test
+    void testConverterKeepsColumnShape() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertEquals(new BigDecimal("42.50"), converter.convertToDatabaseColumn(Money.ofCents(4250)));
+        assertEquals(Money.ofCents(4250), converter.convertToEntityAttribute(new BigDecimal("42.50")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,66 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.dto.BatchResult;
+import com.hospital.dashboard.model.Medication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({ BatchWriter.class, DataVersion.class })
+class BatchWriterTest {
+
+    @Autowired
+    private BatchWriter batchWriter;
+    @Autowired
+    private MedicationRepository medicationRepository;
+
+    @Test
+    void testWritesInChunksOfTheJdbcBatchSize() {
+        List<Medication> medications = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            medications.add(new Medication(null, "Med " + i, "Generic", null, i, "box"));
+        }
+        List<Integer> offsets = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+
+        BatchResult result = batchWriter.write(medications, (chunk, offset, results) -> {
+            offsets.add(offset);
+            sizes.add(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Medication saved = medicationRepository.save(chunk.get(i));
+                results.add(offset + i == 7 ? BatchResult.Item.rejected(offset + i, null, "Skipped")
+                        : BatchResult.Item.created(offset + i, saved.getId()));
+            }
+        });
+
+        assertEquals(List.of(0, 50, 100), offsets);
+        assertEquals(List.of(50, 50, 20), sizes);
+        assertEquals(119, result.succeeded());
+        assertEquals(1, result.failed());
+        assertEquals(120, result.items().size());
+        assertEquals(120, medicationRepository.count());
+        // Pooled sequence ids: distinct and assigned before the insert
+        Set<Object> ids = new HashSet<>();
+        result.items().stream().filter(item -> item.id() != null).forEach(item -> ids.add(item.id()));
+        assertEquals(119, ids.size());
+    }
+
+    @Test
+    void testRejectsOversizedBatches() {
+        List<Medication> medications = Collections.nCopies(BatchWriter.MAX_ITEMS + 1, new Medication());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> batchWriter.write(medications, (chunk, offset, results) -> fail("Nothing is written")));
+    }
+}
@@ -0,0 +1,72 @@
+package com.hospital.dashboard.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.model.MedicalAct;
+import com.hospital.dashboard.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({ EntityExporter.class, DataVersion.class, JacksonAutoConfiguration.class })
+class EntityExporterTest {
+
+    @Autowired
+    private EntityExporter entityExporter;
+    @Autowired
+    private MedicalActRepository medicalActRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testWritesOneLinePerRowAcrossBatches() throws Exception {
+        Patient patient = patientRepository.save(new Patient(null, "Jane", "Doe", "1", LocalDate.of(1980, 1, 1)));
+        int count = EntityExporter.BATCH_SIZE * 2 + 7;
+        for (int i = 0; i < count; i++) {
+            MedicalAct act = new MedicalAct();
+            act.setType("Act " + i);
+            act.setDate(LocalDate.of(2024, 1, 1));
+            act.setCost(BigDecimal.TEN);
+            act.setPatient(patient);
+            medicalActRepository.save(act);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = entityExporter.writeNdjson(MedicalAct.class, out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        String[] lines = body.split("\n");
+        assertEquals(count, rows);
+        assertEquals(count, lines.length);
+        assertTrue(body.endsWith("\n"));
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            assertTrue(node.get("id").asLong() > previousId);
+            assertEquals("2024-01-01", node.get("date").asText());
+            assertEquals("Jane", node.get("patient").get("firstName").asText());
+            previousId = node.get("id").asLong();
+        }
+    }
+
+    @Test
+    void testEmptyTableWritesNothing() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, entityExporter.writeNdjson(MedicalAct.class, out));
+        assertEquals(0, out.size());
+    }
+}
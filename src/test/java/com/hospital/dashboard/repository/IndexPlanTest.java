@@ -0,0 +1,108 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.cache.DataVersion;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the H2 query plan of the date-range and per-parent lookups the services run, over a year of
+ * history, and checks that each one seeks an index instead of scanning the table.
+ */
+@DataJpaTest
+@Import(DataVersion.class)
+class IndexPlanTest {
+
+    private static final String MARCH = "BETWEEN DATE '2023-03-01' AND DATE '2023-03-31'";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        execute("INSERT INTO patient (id, first_name, last_name) SELECT X, 'First', 'Last' FROM SYSTEM_RANGE(1, 50)");
+        execute("INSERT INTO medication (id, name) SELECT X, 'Med' FROM SYSTEM_RANGE(1, 20)");
+        execute("INSERT INTO personnel (id, name, email) SELECT X, 'Staff', CONCAT('staff', X, '@hospital.com') "
+                + "FROM SYSTEM_RANGE(1, 200)");
+        execute("INSERT INTO medical_act (id, date, patient_id, cost) "
+                + "SELECT X, DATEADD('DAY', MOD(X, 365), DATE '2023-01-01'), MOD(X, 50) + 1, 10 "
+                + "FROM SYSTEM_RANGE(1, 3000)");
+        execute("INSERT INTO consumable (id, date, patient_id, medication_id, quantity, total_cost) "
+                + "SELECT X, DATEADD('DAY', MOD(X, 365), DATE '2023-01-01'), MOD(X, 50) + 1, MOD(X, 20) + 1, 1, 5 "
+                + "FROM SYSTEM_RANGE(1, 3000)");
+        execute("INSERT INTO hospital_stay (id, start_date, end_date, patient_id, daily_rate) "
+                + "SELECT X, DATEADD('DAY', MOD(X, 365), DATE '2023-01-01'), "
+                + "DATEADD('DAY', MOD(X, 365) + MOD(X, 9), DATE '2023-01-01'), MOD(X, 50) + 1, 100 "
+                + "FROM SYSTEM_RANGE(1, 3000)");
+        execute("INSERT INTO daily_cost_rollup (date, category, total, event_count) "
+                + "SELECT DATEADD('DAY', X, DATE '2023-01-01'), c.C, 100, 1 FROM SYSTEM_RANGE(0, 364) "
+                + "CROSS JOIN (VALUES ('ACTS'), ('CONSUMABLES'), ('STAYS')) c(C)");
+        // No ANALYZE: H2 commits the open transaction on it, and these rows must roll back with each test
+    }
+
+    @Test
+    void testMedicalActDateRange() {
+        assertUsesIndex("IDX_MEDICAL_ACT_DATE_ID", "SELECT * FROM medical_act WHERE date " + MARCH);
+    }
+
+    @Test
+    void testMedicalActsOfAPatient() {
+        assertUsesIndex("IDX_MEDICAL_ACT_PATIENT_DATE",
+                "SELECT * FROM medical_act WHERE patient_id = 7 AND date " + MARCH);
+    }
+
+    @Test
+    void testConsumableDateRange() {
+        assertUsesIndex("IDX_CONSUMABLE_DATE_ID", "SELECT * FROM consumable WHERE date " + MARCH);
+    }
+
+    @Test
+    void testConsumablesOfAMedicationAndAPatient() {
+        assertUsesIndex("IDX_CONSUMABLE_MEDICATION_DATE",
+                "SELECT * FROM consumable WHERE medication_id = 3 AND date " + MARCH);
+        assertUsesIndex("IDX_CONSUMABLE_PATIENT_DATE",
+                "SELECT * FROM consumable WHERE patient_id = 7 AND date " + MARCH);
+    }
+
+    @Test
+    void testOverlappingStays() {
+        // HospitalStayRepository.findSpansOverlapping
+        assertUsesIndex("IDX_HOSPITAL_STAY_START",
+                "SELECT start_date, end_date, daily_rate FROM hospital_stay "
+                        + "WHERE start_date <= DATE '2023-01-31' AND end_date >= DATE '2023-01-01'");
+        assertUsesIndex("IDX_HOSPITAL_STAY_PATIENT_START_DATE",
+                "SELECT * FROM hospital_stay WHERE patient_id = 7 AND start_date " + MARCH);
+    }
+
+    @Test
+    void testPersonnelByEmail() {
+        assertUsesIndex("IDX_PERSONNEL_EMAIL", "SELECT * FROM personnel WHERE email = 'staff7@hospital.com'");
+    }
+
+    @Test
+    void testRollupWindow() {
+        // The dashboard and forecast windows read the rollup by category and date
+        String plan = plan("SELECT date, total, event_count FROM daily_cost_rollup "
+                + "WHERE category = 'ACTS' AND date " + MARCH);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    private void assertUsesIndex(String index, String sql) {
+        String plan = plan(sql);
+        assertTrue(plan.contains(index), "Expected " + index + " in: " + plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    private String plan(String sql) {
+        return String.valueOf(entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult());
+    }
+
+    private void execute(String sql) {
+        entityManager.createNativeQuery(sql).executeUpdate();
+    }
+}
@@ -0,0 +1,124 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.dto.KeysetPage;
+import com.hospital.dashboard.model.MedicalAct;
+import com.hospital.dashboard.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({ KeysetPager.class, DataVersion.class })
+class KeysetPagerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private KeysetPager keysetPager;
+    @Autowired
+    private MedicalActRepository medicalActRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        patient = patientRepository.save(new Patient(null, "Jane", "Doe", "1", DAY));
+        Patient other = patientRepository.save(new Patient(null, "John", "Doe", "2", DAY));
+        // 25 acts over 5 days, several per day so the id breaks date ties
+        for (int i = 0; i < 25; i++) {
+            MedicalAct act = new MedicalAct();
+            act.setType("Act " + i);
+            act.setDate(DAY.plusDays(i % 5));
+            act.setCost(BigDecimal.TEN);
+            act.setPatient(i % 2 == 0 ? patient : other);
+            medicalActRepository.save(act);
+        }
+        MedicalAct undated = new MedicalAct();
+        undated.setType("Undated");
+        medicalActRepository.save(undated);
+    }
+
+    @Test
+    void testWalksAllPagesById() {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeysetPage<MedicalAct> page = keysetPager.page(MedicalAct.class, null, false, cursor, 10, null, null,
+                    null, false);
+            page.items().forEach(act -> ids.add(act.getId()));
+            assertNull(page.total());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(26, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i) > ids.get(i - 1));
+        }
+    }
+
+    @Test
+    void testWalksByDateDescendingWithFilters() {
+        List<MedicalAct> acts = new ArrayList<>();
+        String cursor = null;
+        Long total = null;
+        do {
+            KeysetPage<MedicalAct> page = keysetPager.page(MedicalAct.class, "date", true, cursor, 4,
+                    DAY.plusDays(1), DAY.plusDays(3), null, true);
+            acts.addAll(page.items());
+            total = page.total();
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        // Days 2 to 4, five acts each; the undated act is left out
+        assertEquals(15, acts.size());
+        assertEquals(15L, total);
+        for (int i = 1; i < acts.size(); i++) {
+            MedicalAct previous = acts.get(i - 1);
+            MedicalAct current = acts.get(i);
+            int byDate = current.getDate().compareTo(previous.getDate());
+            assertTrue(byDate < 0 || (byDate == 0 && current.getId() < previous.getId()));
+        }
+        assertEquals(DAY.plusDays(3), acts.get(0).getDate());
+    }
+
+    @Test
+    void testPatientFilter() {
+        KeysetPage<MedicalAct> page = keysetPager.page(MedicalAct.class, null, false, null, 100, null, null,
+                patient.getId(), true);
+
+        assertEquals(13, page.items().size());
+        assertEquals(13L, page.total());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testRejectsBadInput() {
+        String idCursor = keysetPager.page(MedicalAct.class, null, false, null, 1, null, null, null, false)
+                .nextCursor();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> keysetPager.page(MedicalAct.class, "date", false, idCursor, 1, null, null, null, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> keysetPager.page(MedicalAct.class, null, false, "not-a-cursor", 1, null, null, null, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> keysetPager.page(MedicalAct.class, null, false, null, KeysetPager.MAX_LIMIT + 1, null, null,
+                        null, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> keysetPager.page(MedicalAct.class, null, false, null, 10, DAY, null, null, false));
+    }
+}
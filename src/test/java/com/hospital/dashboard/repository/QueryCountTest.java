@@ -0,0 +1,152 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.model.Consumable;
+import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.model.MedicalAct;
+import com.hospital.dashboard.model.Medication;
+import com.hospital.dashboard.model.Patient;
+import com.hospital.dashboard.service.SummaryService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements per endpoint read path, counted by Hibernate. Each path is run at two table sizes: the
+ * count has to stay within its budget and must not grow with the rows, which is what an N+1 does.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ DataVersion.class, KeysetPager.class, EntityExporter.class, SummaryService.class,
+        JacksonAutoConfiguration.class })
+class QueryCountTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private MedicationRepository medicationRepository;
+    @Autowired
+    private ConsumableRepository consumableRepository;
+    @Autowired
+    private MedicalActRepository medicalActRepository;
+    @Autowired
+    private HospitalStayRepository stayRepository;
+    @Autowired
+    private KeysetPager keysetPager;
+    @Autowired
+    private EntityExporter entityExporter;
+    @Autowired
+    private SummaryService summaryService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testListEndpoints() {
+        assertBudget(1, () -> consumableRepository.findAll().forEach(c -> {
+            c.getPatient().getFirstName();
+            c.getMedication().getName();
+        }));
+        assertBudget(1, () -> medicalActRepository.findAll().forEach(a -> a.getPatient().getFirstName()));
+        assertBudget(1, () -> stayRepository.findAll().forEach(s -> s.getPatient().getFirstName()));
+    }
+
+    @Test
+    void testDetailEndpoint() {
+        assertBudget(1, () -> {
+            Consumable consumable = consumableRepository.findAll().get(0);
+            entityManager.clear();
+            statistics.clear();
+            Consumable loaded = consumableRepository.findById(consumable.getId()).orElseThrow();
+            loaded.getPatient().getFirstName();
+            loaded.getMedication().getName();
+        });
+    }
+
+    @Test
+    void testPagedAndExportEndpoints() {
+        // The page and its optional count
+        assertBudget(2, () -> keysetPager.page(MedicalAct.class, "date", true, null, 100, null, null, null, true)
+                .items().forEach(a -> a.getPatient().getFirstName()));
+        assertBudget(1, () -> {
+            try {
+                entityExporter.writeNdjson(Consumable.class, new ByteArrayOutputStream());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void testSummaryEndpoints() {
+        assertBudget(1, () -> summaryService.consumables(Set.of()));
+        assertBudget(1, () -> summaryService.medicalActs(Set.of()));
+        assertBudget(1, () -> summaryService.stays(Set.of()));
+        // One more query per kind of nested object, whatever the number of rows
+        assertBudget(3, () -> summaryService.consumables(Set.of(SummaryService.PATIENT, SummaryService.MEDICATION)));
+        assertBudget(2, () -> summaryService.stays(Set.of(SummaryService.PATIENT)));
+    }
+
+    @Test
+    void testDashboardRecentStays() {
+        assertBudget(1, () -> stayRepository
+                .findTop5ByPatientIsNotNullAndStartDateIsNotNullAndEndDateIsNotNullOrderByStartDateDesc()
+                .forEach(s -> s.getPatient().getLastName()));
+    }
+
+    private void assertBudget(long budget, Runnable readPath) {
+        seed(5);
+        long small = statements(readPath);
+        seed(40);
+        long large = statements(readPath);
+
+        assertTrue(small <= budget, "Expected at most " + budget + " statements, got " + small);
+        assertEquals(small, large, "Statement count grows with the number of rows");
+    }
+
+    private long statements(Runnable readPath) {
+        // Nothing left in the persistence context, so every link has to come from a query
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        readPath.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Adds rows, each on its own patient and medication, so a per-row load would show
+    private void seed(int rows) {
+        for (int i = 0; i < rows; i++) {
+            Patient patient = patientRepository.save(new Patient(null, "First " + i, "Last " + i, "ssn", DAY));
+            Medication medication = medicationRepository.save(
+                    new Medication(null, "Med " + i, "Generic", BigDecimal.ONE, 10, "box"));
+            consumableRepository.save(new Consumable(null, medication, 1, DAY, patient, BigDecimal.ONE));
+            medicalActRepository.save(new MedicalAct(null, "Act", DAY.plusDays(i), patient, "Dr. House",
+                    BigDecimal.TEN));
+            stayRepository.save(new HospitalStay(null, patient, DAY, DAY.plusDays(2), BigDecimal.TEN, "Flu"));
+        }
+    }
+}
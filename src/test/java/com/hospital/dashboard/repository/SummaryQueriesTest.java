@@ -0,0 +1,73 @@
+package com.hospital.dashboard.repository;
+
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.dto.ConsumableSummary;
+import com.hospital.dashboard.dto.MedicalActSummary;
+import com.hospital.dashboard.dto.StaySummary;
+import com.hospital.dashboard.model.Consumable;
+import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.model.MedicalAct;
+import com.hospital.dashboard.model.Medication;
+import com.hospital.dashboard.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The constructor-expression projections behind the /summaries endpoints
+@DataJpaTest
+@Import(DataVersion.class)
+class SummaryQueriesTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private MedicationRepository medicationRepository;
+    @Autowired
+    private ConsumableRepository consumableRepository;
+    @Autowired
+    private MedicalActRepository medicalActRepository;
+    @Autowired
+    private HospitalStayRepository stayRepository;
+
+    @Test
+    void testProjectionsFlattenTheLinksAndKeepOrphans() {
+        Patient patient = patientRepository.save(new Patient(null, "Jane", "Doe", "1", DAY));
+        Medication medication = medicationRepository.save(
+                new Medication(null, "Paracetamol", "Analgesic", BigDecimal.ONE, 10, "box"));
+        Consumable linked = consumableRepository.save(
+                new Consumable(null, medication, 2, DAY, patient, new BigDecimal("2.00")));
+        consumableRepository.save(new Consumable(null, null, 1, DAY, null, BigDecimal.ONE));
+        medicalActRepository.save(new MedicalAct(null, "Scan", DAY, patient, "Dr. House", BigDecimal.TEN));
+        stayRepository.save(new HospitalStay(null, null, DAY, DAY.plusDays(2), BigDecimal.TEN, "Flu"));
+
+        List<ConsumableSummary> consumables = consumableRepository.findSummaries();
+        assertEquals(2, consumables.size());
+        ConsumableSummary first = consumables.get(0);
+        assertEquals(linked.getId(), first.id());
+        assertEquals(medication.getId(), first.medicationId());
+        assertEquals("Paracetamol", first.medicationName());
+        assertEquals(patient.getId(), first.patientId());
+        assertEquals("Doe", first.patientLastName());
+        assertNull(first.patient());
+        // Left joins: a consumable without medication or patient is still listed
+        assertNull(consumables.get(1).medicationId());
+        assertNull(consumables.get(1).patientFirstName());
+
+        List<MedicalActSummary> acts = medicalActRepository.findSummaries();
+        assertEquals("Dr. House", acts.get(0).practitioner());
+        assertEquals("Jane", acts.get(0).patientFirstName());
+
+        List<StaySummary> stays = stayRepository.findSummaries();
+        assertEquals("Flu", stays.get(0).pathology());
+        assertNull(stays.get(0).patientId());
+    }
+}
@@ -1,18 +1,26 @@
 package com.hospital.dashboard.service;
 
+import com.hospital.dashboard.cache.DataVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +46,11 @@ class ChatServiceTest {
     @Mock
     private com.hospital.dashboard.repository.PersonnelRepository personnelRepository;
 
+    @Spy
+    private DataVersion dataVersion = new DataVersion();
+    @Spy
+    private LlmAdmissionQueue admissionQueue = new LlmAdmissionQueue(1, 10, 5, 1000);
+
     @InjectMocks
     private ChatService chatService;
 
@@ -64,7 +77,7 @@ class ChatServiceTest {
         // Mock OpenAiService response
         when(openAiService.getChatResponse(anyString(), anyString())).thenReturn("Hello, this is AI.");
 
-        String result = chatService.chat("Hello");
+        String result = chatService.chat("Hello", "client", null);
         assertEquals("Hello, this is AI.", result);
     }
 
@@ -77,7 +90,103 @@ class ChatServiceTest {
         // Mock OpenAiService failure response
         when(openAiService.getChatResponse(anyString(), anyString())).thenReturn("Error from AI");
 
-        String result = chatService.chat("Hello");
+        String result = chatService.chat("Hello", "client", null);
         assertEquals("Error from AI", result);
     }
+
+    @Test
+    void testChatStream() {
+        when(forecastService.getGlobalForecast(anyInt())).thenReturn(new HashMap<>());
+        when(openAiService.streamChatResponse(eq("Hello"), contains("HospiFin"))).thenReturn(Flux.just("Bon", "jour"));
+
+        assertEquals(List.of("Bon", "jour"), chatService.chatStream("Hello", "client", null).collectList().block());
+    }
+
+    @Test
+    void testChatStreamGrantedOnAnotherStreamsReleaseRunsOffThatThread() throws Exception {
+        when(forecastService.getGlobalForecast(anyInt())).thenReturn(new HashMap<>());
+        List<String> threads = new ArrayList<>();
+        when(openAiService.streamChatResponse(anyString(), anyString())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return Flux.just("Bon");
+        });
+
+        LlmAdmissionQueue.Ticket running = admissionQueue.admit("other");
+        CompletableFuture<List<String>> answer = chatService.chatStream("Hello", "client", null).collectList()
+                .toFuture();
+        // The slot is handed over by the release, as at the end of a stream on the event loop
+        Thread eventLoop = new Thread(running::release, "event-loop");
+        eventLoop.start();
+        eventLoop.join();
+
+        assertEquals(List.of("Bon"), answer.get(2, TimeUnit.SECONDS));
+        assertTrue(threads.get(0).startsWith("boundedElastic"));
+    }
+
+    @Test
+    void testContextIsServedFromMemoryUntilTheDataChanges() {
+        Map<String, Object> forecast = new HashMap<>();
+        forecast.put("globalTotal", BigDecimal.TEN);
+        forecast.put("globalPrediction", BigDecimal.ONE);
+        when(forecastService.getGlobalForecast(7)).thenReturn(forecast);
+        when(patientRepository.count()).thenReturn(12L, 13L);
+
+        String first = chatService.getFinancialContext();
+        assertTrue(first.contains("Patients: 12"));
+        for (int i = 0; i < 5; i++) {
+            assertSame(first, chatService.getFinancialContext());
+        }
+        verify(forecastService, times(1)).getGlobalForecast(7);
+
+        // A write: the old block is still answered at once, the new one is built in the background
+        dataVersion.bump();
+        assertSame(first, chatService.getFinancialContext());
+        verify(forecastService, timeout(2000).times(2)).getGlobalForecast(7);
+        verify(patientRepository, timeout(2000).times(2)).count();
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(2), () -> {
+            while (!chatService.getFinancialContext().contains("Patients: 13"))
+                Thread.sleep(10);
+        });
+    }
+
+    @Test
+    void testFailedRebuildKeepsTheLastGoodContext() {
+        when(forecastService.getGlobalForecast(7)).thenReturn(new HashMap<>())
+                .thenThrow(new IllegalStateException("Database down"));
+
+        String first = chatService.getFinancialContext();
+        dataVersion.bump();
+        chatService.getFinancialContext();
+        verify(forecastService, timeout(2000).times(2)).getGlobalForecast(7);
+
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(2), () -> {
+            // The failed build is retried on a later message, the good block is served meanwhile
+            while (!first.equals(chatService.getFinancialContext()))
+                Thread.sleep(10);
+        });
+        assertFalse(chatService.getFinancialContext().contains("indisponibles"));
+    }
+
+    @Test
+    void testChatHoldsAnLlmSlotOnlyWhileItRuns() {
+        when(forecastService.getGlobalForecast(anyInt())).thenReturn(new HashMap<>());
+        when(openAiService.getChatResponse(anyString(), anyString())).thenAnswer(invocation -> {
+            assertEquals(1, admissionQueue.getStats().get("running"));
+            return "Hello, this is AI.";
+        });
+        when(openAiService.streamChatResponse(anyString(), anyString())).thenReturn(Flux.just("Bon"));
+
+        chatService.chat("Hello", "client", null);
+        // A stream that is built but never subscribed (the dispatch failed) takes no slot
+        chatService.chatStream("Hello", "client", null);
+        assertEquals(1L, admissionQueue.getStats().get("admitted"));
+        chatService.chatStream("Hello", "client", null).blockLast();
+
+        // The stream ends on a worker thread, which releases the slot right after the last signal
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(2), () -> {
+            while (!Integer.valueOf(0).equals(admissionQueue.getStats().get("running")))
+                Thread.sleep(10);
+        });
+        assertEquals(2L, admissionQueue.getStats().get("admitted"));
+    }
 }
@@ -0,0 +1,157 @@
+package com.hospital.dashboard.service;
+
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.dto.StaySpan;
+import com.hospital.dashboard.model.CostCategory;
+import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.model.MedicalAct;
+import com.hospital.dashboard.repository.ConsumableRepository;
+import com.hospital.dashboard.repository.DailyCostRollupRepository;
+import com.hospital.dashboard.repository.HospitalStayRepository;
+import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.service.forecast.ForecastModels;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CostRollupServiceTest {
+
+    @Mock
+    private DailyCostRollupRepository rollupRepository;
+    @Mock
+    private MedicalActRepository medicalActRepository;
+    @Mock
+    private ConsumableRepository consumableRepository;
+    @Mock
+    private HospitalStayRepository stayRepository;
+    @Spy
+    private RevenueService revenueService = new RevenueService();
+    @Mock
+    private DataVersion dataVersion;
+    @Mock
+    private ForecastModels forecastModels;
+
+    @InjectMocks
+    private CostRollupService costRollupService;
+
+    @Test
+    void testAddAndRemoveMedicalAct() {
+        MedicalAct act = new MedicalAct();
+        act.setDate(LocalDate.of(2024, 3, 1));
+        act.setCost(BigDecimal.valueOf(120));
+
+        costRollupService.add(act);
+        costRollupService.remove(act);
+
+        verify(rollupRepository).increment(LocalDate.of(2024, 3, 1), "ACTS", BigDecimal.valueOf(120), 1);
+        verify(rollupRepository).increment(LocalDate.of(2024, 3, 1), "ACTS", BigDecimal.valueOf(-120), -1);
+
+        // Outside a transaction the online forecast model is updated at once
+        verify(forecastModels).apply(CostCategory.ACTS, LocalDate.of(2024, 3, 1), BigDecimal.valueOf(120), 1);
+        verify(forecastModels).apply(CostCategory.ACTS, LocalDate.of(2024, 3, 1), BigDecimal.valueOf(-120), -1);
+    }
+
+    @Test
+    void testDeltasInATransactionAreMergedBeforeCommit() {
+        MedicalAct first = new MedicalAct();
+        first.setDate(LocalDate.of(2024, 3, 1));
+        first.setCost(BigDecimal.valueOf(120));
+        MedicalAct second = new MedicalAct();
+        second.setDate(LocalDate.of(2024, 3, 1));
+        second.setCost(new BigDecimal("30.50"));
+        MedicalAct unchanged = new MedicalAct();
+        unchanged.setDate(LocalDate.of(2024, 3, 2));
+        unchanged.setCost(BigDecimal.TEN);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            costRollupService.add(first);
+            costRollupService.add(second);
+            // An update that changes nothing
+            costRollupService.remove(unchanged);
+            costRollupService.add(unchanged);
+            verifyNoInteractions(rollupRepository);
+
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            verify(rollupRepository).increment(LocalDate.of(2024, 3, 1), "ACTS", new BigDecimal("150.50"), 2);
+            verifyNoMoreInteractions(rollupRepository);
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            verify(forecastModels).apply(CostCategory.ACTS, LocalDate.of(2024, 3, 1), new BigDecimal("150.50"), 2);
+        } finally {
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertNull(TransactionSynchronizationManager.getResource(costRollupService));
+    }
+
+    @Test
+    void testAddStay_BooksEveryBilledDay() {
+        HospitalStay stay = new HospitalStay();
+        stay.setStartDate(LocalDate.of(2024, 3, 1));
+        stay.setEndDate(LocalDate.of(2024, 3, 4));
+        stay.setDailyRate(BigDecimal.valueOf(100));
+
+        costRollupService.add(stay);
+
+        // Three nights, one row each, with the stay counted once per day
+        for (int i = 0; i < 3; i++) {
+            verify(rollupRepository).increment(LocalDate.of(2024, 3, 1 + i), "STAYS", new BigDecimal("100.00"), 1);
+            verify(forecastModels).apply(CostCategory.STAYS, LocalDate.of(2024, 3, 1 + i), new BigDecimal("100.00"), 1);
+        }
+        verify(rollupRepository, never()).increment(eq(LocalDate.of(2024, 3, 4)), any(), any(), anyLong());
+    }
+
+    @Test
+    void testIncompleteRowsAreIgnored() {
+        costRollupService.add(new MedicalAct());
+        costRollupService.add(new HospitalStay());
+
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testRebuild_SpreadsStaysOverBilledDays() {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        when(medicalActRepository.sumCostByDay())
+                .thenReturn(Arrays.asList(new DailyCost(day, BigDecimal.valueOf(300), 2L)));
+        when(consumableRepository.sumCostByDay()).thenReturn(Collections.emptyList());
+
+        StaySpan first = new StaySpan(day, day.plusDays(2), BigDecimal.valueOf(100));
+        StaySpan second = new StaySpan(day, day.plusDays(1), BigDecimal.valueOf(50));
+        when(stayRepository.findAllSpans()).thenReturn(Arrays.asList(first, second));
+
+        costRollupService.rebuild();
+
+        verify(rollupRepository).deleteAllInBatch();
+        verify(rollupRepository).increment(day, "ACTS", BigDecimal.valueOf(300), 2L);
+        // 200 + 50 of revenue: both stays on the first night, only the longer one on the second
+        verify(rollupRepository).increment(day, "STAYS", new BigDecimal("150.00"), 2L);
+        verify(rollupRepository).increment(day.plusDays(1), "STAYS", new BigDecimal("100.00"), 1L);
+        verify(forecastModels).recompute();
+    }
+
+    @Test
+    void testTotal_DefaultsToZero() {
+        when(rollupRepository.sumTotal(CostCategory.ACTS)).thenReturn(null);
+        assertEquals(BigDecimal.ZERO, costRollupService.total(CostCategory.ACTS));
+    }
+}
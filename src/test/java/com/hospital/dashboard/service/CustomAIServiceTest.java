@@ -1,5 +1,6 @@
 package com.hospital.dashboard.service;
 
+import com.hospital.dashboard.dto.StaySpan;
 import com.hospital.dashboard.repository.*;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,10 +8,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,8 +41,12 @@ class CustomAIServiceTest {
     @Test
     void testTrainModel() {
         when(patientRepository.count()).thenReturn(10L);
-        when(stayRepository.findAll()).thenReturn(Collections.emptyList());
-        when(medicalActRepository.findAll()).thenReturn(Collections.emptyList());
+        when(stayRepository.findAllSpans()).thenReturn(List.of(
+                new StaySpan(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 4), new BigDecimal("100.00")),
+                new StaySpan(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), null)));
+        when(stayRepository.count()).thenReturn(3L);
+        when(medicalActRepository.count()).thenReturn(4L);
+        when(medicalActRepository.sumCost()).thenReturn(new BigDecimal("50.00"));
         when(personnelRepository.count()).thenReturn(5L);
 
         Map<String, Object> model = customAIService.trainModel();
@@ -44,6 +54,13 @@ class CustomAIServiceTest {
         assertNotNull(model);
         assertTrue(customAIService.isTrained());
         assertEquals(10L, model.get("patientCount"));
+        assertEquals(new BigDecimal("350.00"), model.get("totalRevenue"));
+        assertEquals(2.0, model.get("avgStayDuration"));
+        assertEquals(3L, model.get("stayCount"));
+        assertEquals(4L, model.get("actCount"));
+        // Read through aggregates, never through the entities
+        verify(stayRepository, never()).findAll();
+        verify(medicalActRepository, never()).findAll();
     }
 
     @Test
@@ -75,8 +92,7 @@ class CustomAIServiceTest {
         when(personnelRepository.count()).thenReturn(5L);
         when(medicationRepository.count()).thenReturn(10L);
         when(consumableRepository.count()).thenReturn(20L);
-        when(stayRepository.findAll()).thenReturn(Collections.emptyList());
-        when(medicalActRepository.findAll()).thenReturn(Collections.emptyList());
+        when(stayRepository.findAllSpans()).thenReturn(Collections.emptyList());
 
         customAIService.trainModel();
 
@@ -1,28 +1,40 @@
 package com.hospital.dashboard.service;
 
-import com.hospital.dashboard.model.Consumable;
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.cache.ResultCache;
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.dto.StayInterval;
+import com.hospital.dashboard.model.CostCategory;
 import com.hospital.dashboard.model.HospitalStay;
-import com.hospital.dashboard.model.MedicalAct;
-import com.hospital.dashboard.model.Personnel;
-import com.hospital.dashboard.repository.ConsumableRepository;
 import com.hospital.dashboard.repository.HospitalStayRepository;
-import com.hospital.dashboard.repository.MedicalActRepository;
 import com.hospital.dashboard.repository.PersonnelRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,35 +43,42 @@ class DashboardServiceTest {
     @Mock
     private HospitalStayRepository stayRepository;
     @Mock
-    private MedicalActRepository medicalActRepository;
-    @Mock
-    private ConsumableRepository consumableRepository;
-    @Mock
     private PersonnelRepository personnelRepository;
     @Mock
     private ForecastServiceV2 forecastService;
+    @Spy
+    private RevenueService revenueService = new RevenueService();
+    @Mock
+    private CostRollupService costRollupService;
     @Mock
-    private RevenueService revenueService;
+    private StayIntervalIndex stayIntervalIndex;
+
+    private final DataVersion dataVersion = new DataVersion();
+    @Spy
+    private ResultCache resultCache = new ResultCache(dataVersion, 10, false);
 
     @InjectMocks
     private DashboardService dashboardService;
 
+    @BeforeEach
+    void setUp() {
+        // Sections run on the calling thread unless a test needs real concurrency
+        ReflectionTestUtils.setField(dashboardService, "dashboardExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(dashboardService, "sectionTimeoutMs", 1000L);
+    }
+
     @Test
     void testGetDashboardSummary() {
         // Mock Data
-        Personnel p = new Personnel();
-        p.setCostPerDay(BigDecimal.valueOf(100));
-        when(personnelRepository.findAll()).thenReturn(Arrays.asList(p));
+        when(personnelRepository.sumCostPerDay()).thenReturn(BigDecimal.valueOf(100));
+        when(costRollupService.dailyTotals(eq(CostCategory.ACTS), any(), any()))
+                .thenReturn(Arrays.asList(new DailyCost(LocalDate.now(), BigDecimal.valueOf(200), 1L)));
+        when(costRollupService.dailyTotals(eq(CostCategory.CONSUMABLES), any(), any()))
+                .thenReturn(Arrays.asList(new DailyCost(LocalDate.now(), BigDecimal.valueOf(50), 1L)));
 
-        MedicalAct act = new MedicalAct();
-        act.setDate(LocalDate.now());
-        act.setCost(BigDecimal.valueOf(200));
-        when(medicalActRepository.findAll()).thenReturn(Arrays.asList(act));
-
-        Consumable cons = new Consumable();
-        cons.setDate(LocalDate.now());
-        cons.setTotalCost(BigDecimal.valueOf(50));
-        when(consumableRepository.findAll()).thenReturn(Arrays.asList(cons));
+        StayInterval interval = new StayInterval(1L, LocalDate.now().minusDays(1), LocalDate.now().plusDays(1),
+                BigDecimal.valueOf(300));
+        when(stayIntervalIndex.overlapping(any(), any())).thenReturn(Arrays.asList(interval));
 
         HospitalStay stay = new HospitalStay();
         stay.setStartDate(LocalDate.now().minusDays(1));
@@ -73,8 +92,8 @@ class DashboardServiceTest {
         stay.setPatient(patient);
         stay.setPathology("Test Path");
 
-        when(stayRepository.findAll()).thenReturn(Arrays.asList(stay));
-        when(revenueService.calculateStayRevenue(stay)).thenReturn(BigDecimal.valueOf(600));
+        when(stayRepository.findTop5ByPatientIsNotNullAndStartDateIsNotNullAndEndDateIsNotNullOrderByStartDateDesc())
+                .thenReturn(Arrays.asList(stay));
 
         // Mock Forecast
         Map<String, Object> forecast = new HashMap<>();
@@ -87,5 +106,134 @@ class DashboardServiceTest {
         assertTrue(summary.containsKey("totalRealCost"));
         assertTrue(summary.containsKey("totalPredictedCost"));
         assertEquals(BigDecimal.valueOf(10000.00).setScale(2), summary.get("totalPredictedCost"));
+
+        List<?> recentStays = (List<?>) summary.get("recentStays");
+        assertEquals(1, recentStays.size());
+        assertEquals("John Doe", ((Map<?, ?>) recentStays.get(0)).get("patientName"));
+    }
+
+    @Test
+    void testGetDashboardSummary_ReadsRollupAndAggregatesOnly() {
+        when(personnelRepository.sumCostPerDay()).thenReturn(BigDecimal.valueOf(100));
+
+        when(costRollupService.dailyTotals(eq(CostCategory.ACTS), any(), any())).thenReturn(Arrays.asList(
+                new DailyCost(LocalDate.now().minusDays(2), BigDecimal.valueOf(200), 1L),
+                new DailyCost(LocalDate.now().minusDays(45), BigDecimal.valueOf(80), 1L)));
+        when(costRollupService.total(CostCategory.ACTS)).thenReturn(BigDecimal.valueOf(1280));
+
+        when(costRollupService.dailyTotals(eq(CostCategory.CONSUMABLES), any(), any()))
+                .thenReturn(Arrays.asList(new DailyCost(LocalDate.now(), BigDecimal.valueOf(50), 1L)));
+        when(costRollupService.total(CostCategory.CONSUMABLES)).thenReturn(BigDecimal.valueOf(50));
+
+        // A two-night stay, rolled up on each billed day
+        when(costRollupService.dailyTotals(eq(CostCategory.STAYS), any(), any())).thenReturn(Arrays.asList(
+                new DailyCost(LocalDate.now().minusDays(5), BigDecimal.valueOf(300), 1L),
+                new DailyCost(LocalDate.now().minusDays(4), BigDecimal.valueOf(300), 1L)));
+        StayInterval interval = new StayInterval(1L, LocalDate.now().minusDays(5), LocalDate.now().minusDays(3),
+                BigDecimal.valueOf(300));
+        when(stayIntervalIndex.overlapping(any(), any())).thenReturn(Arrays.asList(interval));
+        when(costRollupService.total(CostCategory.STAYS)).thenReturn(BigDecimal.valueOf(600));
+
+        when(forecastService.getGlobalForecast(anyInt())).thenReturn(new HashMap<>());
+
+        Map<String, Object> summary = dashboardService.getDashboardSummary();
+
+        // Current window: 200 (act) + 50 (consumable) + 600 (stay) + 3000 (personnel)
+        assertEquals(0, BigDecimal.valueOf(3850).compareTo((BigDecimal) summary.get("totalRealCost")));
+        assertEquals(BigDecimal.valueOf(600).setScale(2), summary.get("avgCostPerStay"));
+        assertEquals(4, ((List<?>) summary.get("costByCategory")).size());
+
+        verify(costRollupService, times(1)).dailyTotals(eq(CostCategory.ACTS), any(), any());
+        verify(costRollupService, times(1)).dailyTotals(eq(CostCategory.CONSUMABLES), any(), any());
+        verify(costRollupService, times(1)).dailyTotals(eq(CostCategory.STAYS), any(), any());
+        verify(stayIntervalIndex, times(1)).overlapping(any(), any());
+        verify(stayRepository, never()).findSpansOverlapping(any(), any());
+        verify(stayRepository, never()).findAll();
+        verify(personnelRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetDashboardSummary_CachedUntilDataChanges() {
+        when(personnelRepository.sumCostPerDay()).thenReturn(BigDecimal.valueOf(100));
+        when(forecastService.getGlobalForecast(anyInt())).thenReturn(new HashMap<>());
+
+        Map<String, Object> first = dashboardService.getDashboardSummary();
+        Map<String, Object> second = dashboardService.getDashboardSummary();
+
+        assertSame(first, second);
+        verify(personnelRepository, times(1)).sumCostPerDay();
+
+        // A write bumps the data version and the next read recomputes
+        dataVersion.bump();
+        dashboardService.getDashboardSummary();
+
+        verify(personnelRepository, times(2)).sumCostPerDay();
+    }
+
+    @Test
+    void testGetDashboardSummary_SlowForecastIsDegraded() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ReflectionTestUtils.setField(dashboardService, "dashboardExecutor", executor);
+        ReflectionTestUtils.setField(dashboardService, "sectionTimeoutMs", 200L);
+
+        when(personnelRepository.sumCostPerDay()).thenReturn(BigDecimal.valueOf(100));
+        when(forecastService.getGlobalForecast(anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return new HashMap<>();
+        });
+
+        long start = System.currentTimeMillis();
+        Map<String, Object> summary = dashboardService.getDashboardSummary();
+        long elapsed = System.currentTimeMillis() - start;
+
+        // The other sections are still returned, without waiting for the forecast
+        assertTrue(elapsed < 1500);
+        assertEquals(List.of("forecast"), summary.get("degradedSections"));
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo((BigDecimal) summary.get("totalRealCost")));
+        assertFalse(summary.containsKey("totalPredictedCost"));
+        assertTrue(summary.containsKey("recentStays"));
+
+        // A degraded summary is not cached
+        dashboardService.getDashboardSummary();
+        verify(personnelRepository, times(2)).sumCostPerDay();
+
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testGetDashboardSummary_SaturatedPoolIsDegraded() {
+        ReflectionTestUtils.setField(dashboardService, "dashboardExecutor", (Executor) task -> {
+            throw new RejectedExecutionException("saturated");
+        });
+
+        Map<String, Object> summary = dashboardService.getDashboardSummary();
+
+        // Nothing ran on the request thread
+        assertEquals(List.of("totals", "forecast", "recentStays"), summary.get("degradedSections"));
+        verify(personnelRepository, never()).sumCostPerDay();
+        verify(forecastService, never()).getGlobalForecast(anyInt());
+    }
+
+    @Test
+    void testGetDashboardSummary_StayStraddlingWindowsIsSplit() {
+        when(personnelRepository.sumCostPerDay()).thenReturn(BigDecimal.ZERO);
+        when(forecastService.getGlobalForecast(anyInt())).thenReturn(new HashMap<>());
+
+        // Nights on both sides of the 30-day boundary: each window gets its own nights
+        LocalDate boundary = LocalDate.now().minusDays(30);
+        when(costRollupService.dailyTotals(eq(CostCategory.STAYS), any(), any())).thenReturn(Arrays.asList(
+                new DailyCost(boundary.minusDays(1), BigDecimal.valueOf(200), 1L),
+                new DailyCost(boundary, BigDecimal.valueOf(200), 1L),
+                new DailyCost(boundary.plusDays(1), BigDecimal.valueOf(200), 1L)));
+        when(costRollupService.dailyTotals(eq(CostCategory.ACTS), any(), any())).thenReturn(List.of());
+        when(costRollupService.dailyTotals(eq(CostCategory.CONSUMABLES), any(), any())).thenReturn(List.of());
+        when(costRollupService.total(CostCategory.ACTS)).thenReturn(BigDecimal.ZERO);
+        when(costRollupService.total(CostCategory.CONSUMABLES)).thenReturn(BigDecimal.ZERO);
+        when(costRollupService.total(CostCategory.STAYS)).thenReturn(BigDecimal.valueOf(600));
+
+        Map<String, Object> summary = dashboardService.getDashboardSummary();
+
+        assertFalse(summary.containsKey("degradedSections"));
+        assertEquals(0, BigDecimal.valueOf(400).compareTo((BigDecimal) summary.get("totalRealCost")));
     }
 }
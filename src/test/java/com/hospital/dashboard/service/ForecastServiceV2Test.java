@@ -1,54 +1,77 @@
 package com.hospital.dashboard.service;
 
-import com.hospital.dashboard.model.Consumable;
-import com.hospital.dashboard.model.HospitalStay;
-import com.hospital.dashboard.model.MedicalAct;
-import com.hospital.dashboard.model.Personnel;
-import com.hospital.dashboard.repository.ConsumableRepository;
-import com.hospital.dashboard.repository.HospitalStayRepository;
-import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.cache.DataVersion;
+import com.hospital.dashboard.cache.ResultCache;
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.model.CostCategory;
 import com.hospital.dashboard.repository.PersonnelRepository;
+import com.hospital.dashboard.service.forecast.Backtester;
+import com.hospital.dashboard.service.forecast.BootstrapIntervals;
+import com.hospital.dashboard.service.forecast.ForecastModels;
+import com.hospital.dashboard.service.forecast.HoltModel;
+import com.hospital.dashboard.service.forecast.HoltWintersModel;
+import com.hospital.dashboard.service.forecast.LinearSeasonalModel;
+import com.hospital.dashboard.service.forecast.SeasonalNaiveModel;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ForecastServiceV2Test {
 
-    @Mock
-    private MedicalActRepository medicalActRepository;
-
-    @Mock
-    private ConsumableRepository consumableRepository;
-
-    @Mock
-    private HospitalStayRepository stayRepository;
-
     @Mock
     private PersonnelRepository personnelRepository;
     @Mock
-    private RevenueService revenueService;
+    private CostRollupService costRollupService;
+    private final DataVersion dataVersion = new DataVersion();
+    @Spy
+    private ResultCache resultCache = new ResultCache(dataVersion, 10, false);
+    @Spy
+    private ForecastModels forecastModels = new ForecastModels();
+    @Spy
+    private Backtester backtester = new Backtester(List.of(new LinearSeasonalModel(), new HoltModel(),
+            new HoltWintersModel(), new SeasonalNaiveModel()), 14, 4, 2);
+    @Spy
+    private BootstrapIntervals bootstrapIntervals = new BootstrapIntervals(500, 5000, 2);
 
     @InjectMocks
     private ForecastServiceV2 forecastService;
 
+    @AfterEach
+    void tearDown() {
+        backtester.shutdown();
+        bootstrapIntervals.shutdown();
+    }
+
     @Test
     void testGetGlobalForecast_EmptyData() {
-        when(medicalActRepository.findAll()).thenReturn(Collections.emptyList());
-        when(consumableRepository.findAll()).thenReturn(Collections.emptyList());
-        when(stayRepository.findAll()).thenReturn(Collections.emptyList());
-        when(personnelRepository.findAll()).thenReturn(Collections.emptyList());
+        when(personnelRepository.sumCostPerDay()).thenReturn(null);
 
         Map<String, Object> result = forecastService.getGlobalForecast(30);
 
@@ -60,55 +83,189 @@ class ForecastServiceV2Test {
     @Test
     void testGetGlobalForecast_WithData() {
         // Mock Personnel (Fixed Cost)
-        Personnel p = new Personnel();
-        p.setCostPerDay(BigDecimal.valueOf(100));
-        when(personnelRepository.findAll()).thenReturn(Arrays.asList(p));
+        when(personnelRepository.sumCostPerDay()).thenReturn(BigDecimal.valueOf(100));
+
+        // Medical Act daily rollup - Need at least 2 points for regression
+        forecastModels.get(CostCategory.ACTS).reset(Arrays.asList(
+                new DailyCost(LocalDate.now().minusMonths(2), BigDecimal.valueOf(200), 1L),
+                new DailyCost(LocalDate.now().minusMonths(1), BigDecimal.valueOf(220), 1L)));
+
+        // Consumable daily rollup
+        forecastModels.get(CostCategory.CONSUMABLES).reset(Arrays.asList(
+                new DailyCost(LocalDate.now().minusMonths(2), BigDecimal.valueOf(50), 1L),
+                new DailyCost(LocalDate.now().minusMonths(1), BigDecimal.valueOf(55), 1L)));
+
+        // Stay rollup (300/day * 2 days, booked on the start date)
+        forecastModels.get(CostCategory.STAYS).reset(Arrays.asList(
+                new DailyCost(LocalDate.now().minusMonths(2), BigDecimal.valueOf(600), 1L),
+                new DailyCost(LocalDate.now().minusMonths(1), BigDecimal.valueOf(600), 1L)));
+
+        Map<String, Object> result = forecastService.getGlobalForecast(30);
+
+        assertNotNull(result);
+        BigDecimal globalTotal = (BigDecimal) result.get("globalTotal");
+
+        // Expected: 420 (Acts) + 105 (Cons) + 1200 (Stays) + 100*30 (Personnel) = 4725
+        assertEquals(0, BigDecimal.valueOf(4725).compareTo(globalTotal));
 
-        // Mock Medical Act - Need at least 2 points for regression
-        MedicalAct act1 = new MedicalAct();
-        act1.setDate(LocalDate.now().minusMonths(2));
-        act1.setCost(BigDecimal.valueOf(200));
+        // Daily horizons read the online models, never the full rollup
+        verify(costRollupService, never()).dailyTotals(any());
+    }
 
-        MedicalAct act2 = new MedicalAct();
-        act2.setDate(LocalDate.now().minusMonths(1));
-        act2.setCost(BigDecimal.valueOf(220));
+    @Test
+    void testGetGlobalForecast_FollowsIncrementalUpdates() {
+        LocalDate start = LocalDate.now().minusDays(10);
+        forecastModels.get(CostCategory.ACTS).reset(Arrays.asList(
+                new DailyCost(start, BigDecimal.valueOf(100), 1L),
+                new DailyCost(start.plusDays(1), BigDecimal.valueOf(100), 1L)));
 
-        when(medicalActRepository.findAll()).thenReturn(Arrays.asList(act1, act2));
+        BigDecimal before = (BigDecimal) forecastService.getGlobalForecast(30).get("globalTotal");
 
-        // Mock Consumable
-        Consumable cons1 = new Consumable();
-        cons1.setDate(LocalDate.now().minusMonths(2));
-        cons1.setTotalCost(BigDecimal.valueOf(50));
+        // A new act is committed: the rollup delta reaches the model and the data version moves
+        forecastModels.apply(CostCategory.ACTS, start.plusDays(2), BigDecimal.valueOf(40), 1);
+        dataVersion.bump();
 
-        Consumable cons2 = new Consumable();
-        cons2.setDate(LocalDate.now().minusMonths(1));
-        cons2.setTotalCost(BigDecimal.valueOf(55));
+        BigDecimal after = (BigDecimal) forecastService.getGlobalForecast(30).get("globalTotal");
+        assertEquals(0, before.add(BigDecimal.valueOf(40)).compareTo(after));
+    }
 
-        when(consumableRepository.findAll()).thenReturn(Arrays.asList(cons1, cons2));
+    @Test
+    void testGetGlobalForecast_CachedPerHorizon() {
+        Map<String, Object> first = forecastService.getGlobalForecast(30);
+        Map<String, Object> second = forecastService.getGlobalForecast(30);
+        forecastService.getGlobalForecast(7);
 
-        // Mock Stay
-        HospitalStay stay1 = new HospitalStay();
-        stay1.setStartDate(LocalDate.now().minusMonths(2));
-        stay1.setEndDate(LocalDate.now().minusMonths(2).plusDays(2));
-        stay1.setDailyRate(BigDecimal.valueOf(300));
+        assertSame(first, second);
+        verify(forecastModels, times(2)).fit(eq(CostCategory.ACTS), any());
+    }
 
-        HospitalStay stay2 = new HospitalStay();
-        stay2.setStartDate(LocalDate.now().minusMonths(1));
-        stay2.setEndDate(LocalDate.now().minusMonths(1).plusDays(2));
-        stay2.setDailyRate(BigDecimal.valueOf(300));
+    @Test
+    void testGetGlobalForecast_ConcurrentBurstComputesOnce() throws Exception {
+        doAnswer(invocation -> {
+            Thread.sleep(200); // Keep the computation in flight while the burst arrives
+            return invocation.callRealMethod();
+        }).when(forecastModels).fit(eq(CostCategory.ACTS), any());
 
-        when(stayRepository.findAll()).thenReturn(Arrays.asList(stay1, stay2));
-        when(revenueService.calculateStayRevenue(stay1)).thenReturn(BigDecimal.valueOf(600));
-        when(revenueService.calculateStayRevenue(stay2)).thenReturn(BigDecimal.valueOf(600));
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(executor.submit(() -> forecastService.getGlobalForecast(30)));
+        }
+
+        Map<String, Object> first = results.get(0).get();
+        for (Future<Map<String, Object>> result : results) {
+            assertSame(first, result.get());
+        }
+        verify(forecastModels, times(1)).fit(eq(CostCategory.ACTS), any());
+        executor.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetGlobalForecast_MonthlyHorizon() {
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        when(costRollupService.dailyTotals(CostCategory.ACTS)).thenReturn(Arrays.asList(
+                new DailyCost(thisMonth.minusMonths(2), BigDecimal.valueOf(100), 1L),
+                new DailyCost(thisMonth.minusMonths(2).plusDays(3), BigDecimal.valueOf(50), 1L),
+                new DailyCost(thisMonth.minusMonths(1), BigDecimal.valueOf(200), 1L)));
+        when(costRollupService.dailyTotals(CostCategory.CONSUMABLES)).thenReturn(Collections.emptyList());
+        when(costRollupService.dailyTotals(CostCategory.STAYS)).thenReturn(Collections.emptyList());
+
+        Map<String, Object> result = forecastService.getGlobalForecast(180);
+
+        List<Map<String, Object>> history = (List<Map<String, Object>>) result.get("globalHistory");
+        // Two months of history, grouped per month, then six predicted months
+        assertEquals(8, history.size());
+        assertEquals(thisMonth.minusMonths(2).toString().substring(0, 7), history.get(0).get("month"));
+        assertEquals(0, BigDecimal.valueOf(150).compareTo((BigDecimal) history.get(0).get("real")));
+        assertFalse(history.get(7).containsKey("real"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetGlobalForecast_BacktestPicksModelOncePerDataVersion() {
+        // Weekdays cost 100, weekends 20, on a slow upward trend
+        LocalDate start = LocalDate.now().minusDays(120);
+        List<DailyCost> days = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            LocalDate day = start.plusDays(i);
+            days.add(new DailyCost(day, BigDecimal.valueOf((day.getDayOfWeek().getValue() >= 6 ? 20 : 100) + i * 0.5), 1L));
+        }
+        forecastModels.get(CostCategory.ACTS).reset(days);
 
         Map<String, Object> result = forecastService.getGlobalForecast(30);
 
-        assertNotNull(result);
-        BigDecimal globalTotal = (BigDecimal) result.get("globalTotal");
+        Map<String, Object> acts = (Map<String, Object>) result.get("medicalActs");
+        Map<String, Object> methodology = (Map<String, Object>) acts.get("methodology");
+        assertEquals("holt-winters", methodology.get("model"));
+        assertEquals(4, ((Map<String, Double>) methodology.get("backtestMae")).size());
+
+        // Another horizon reuses the selections (one per category); a write triggers new backtests
+        forecastService.getGlobalForecast(7);
+        verify(backtester, times(3)).select(any());
+        dataVersion.bump();
+        forecastService.getGlobalForecast(7);
+        verify(backtester, times(6)).select(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetGlobalForecast_WithIntervals() {
+        when(personnelRepository.sumCostPerDay()).thenReturn(BigDecimal.valueOf(100));
+        LocalDate start = LocalDate.now().minusDays(60);
+        Random random = new Random(3);
+        List<DailyCost> days = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            days.add(new DailyCost(start.plusDays(i), BigDecimal.valueOf(500 + random.nextInt(200)), 1L));
+        }
+        forecastModels.get(CostCategory.ACTS).reset(days);
+
+        Map<String, Object> result = forecastService.getGlobalForecast(30, true);
+
+        Map<String, Object> meta = (Map<String, Object>) result.get("intervals");
+        assertEquals(500, meta.get("resamples"));
+        assertEquals(false, meta.get("degraded"));
+
+        BigDecimal prediction = (BigDecimal) result.get("globalPrediction");
+        assertTrue(((BigDecimal) result.get("globalPredictionP10")).compareTo(prediction) < 0);
+        assertTrue(((BigDecimal) result.get("globalPredictionP90")).compareTo(prediction) > 0);
+
+        List<Map<String, Object>> history = (List<Map<String, Object>>) result.get("globalHistory");
+        long futurePoints = 0;
+        for (Map<String, Object> point : history) {
+            if (point.containsKey("real")) {
+                assertFalse(point.containsKey("p10"));
+                continue;
+            }
+            futurePoints++;
+            BigDecimal predicted = (BigDecimal) point.get("predicted");
+            assertTrue(((BigDecimal) point.get("p10")).compareTo(predicted) <= 0);
+            assertTrue(((BigDecimal) point.get("p90")).compareTo(predicted) >= 0);
+        }
+        assertEquals(30, futurePoints);
+
+        // Point forecasts alone are cached apart and never pay for the bootstrap
+        Map<String, Object> plain = forecastService.getGlobalForecast(30);
+        assertFalse(plain.containsKey("intervals"));
+        assertSame(result, forecastService.getGlobalForecast(30, true));
+        verify(bootstrapIntervals, times(1)).compute(any());
+    }
+
+    @Test
+    void testGetGlobalForecast_DegradedIntervalsAreNotCached() {
+        BootstrapIntervals noBudget = new BootstrapIntervals(1000, 0, 1);
+        ReflectionTestUtils.setField(forecastService, "bootstrapIntervals", noBudget);
+        forecastModels.get(CostCategory.ACTS).reset(Arrays.asList(
+                new DailyCost(LocalDate.now().minusDays(2), BigDecimal.valueOf(100), 1L),
+                new DailyCost(LocalDate.now().minusDays(1), BigDecimal.valueOf(140), 1L)));
+
+        Map<String, Object> first = forecastService.getGlobalForecast(30, true);
 
-        // Expected: 200 (Act) + 50 (Cons) + 600 (Stay: 300*2) + 100*30 (Personnel) =
-        // 850 + 3000 = 3850
-        // Use verify or approximate check
-        assertTrue(globalTotal.compareTo(BigDecimal.valueOf(3000)) > 0);
+        // Out of budget: the point forecast is still served, without ranges
+        assertNotNull(first.get("globalPrediction"));
+        assertFalse(first.containsKey("globalPredictionP10"));
+        assertEquals(true, ((Map<?, ?>) first.get("intervals")).get("degraded"));
+        assertNotSame(first, forecastService.getGlobalForecast(30, true));
+        noBudget.shutdown();
     }
 }
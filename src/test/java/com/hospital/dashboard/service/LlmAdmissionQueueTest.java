@@ -0,0 +1,149 @@
+package com.hospital.dashboard.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmAdmissionQueueTest {
+
+    @Test
+    void testRunsUpToTheConcurrencyLevelAndQueuesTheRest() {
+        LlmAdmissionQueue queue = new LlmAdmissionQueue(2, 2, 5, 1000);
+        LlmAdmissionQueue.Ticket first = queue.admit("a");
+        queue.admit("b");
+        List<String> granted = new ArrayList<>();
+        grantedInto(queue.admit("c"), "c", granted);
+        grantedInto(queue.admit("d"), "d", granted);
+
+        assertEquals(2, queue.getStats().get("running"));
+        assertEquals(2, queue.getStats().get("queueDepth"));
+        assertTrue(granted.isEmpty());
+
+        // Queue full: refused at once with a retry hint
+        LlmBusyException busy = assertThrows(LlmBusyException.class, () -> queue.admit("e"));
+        assertTrue(busy.getRetryAfterSeconds() >= 1);
+        assertEquals(String.valueOf(busy.getRetryAfterSeconds()), busy.getHeaders().getFirst("Retry-After"));
+        assertEquals(1L, queue.getStats().get("rejected"));
+
+        first.release();
+        first.release();
+        assertEquals(List.of("c"), granted);
+        assertEquals(2, queue.getStats().get("running"));
+        assertEquals(1, queue.getStats().get("queueDepth"));
+    }
+
+    @Test
+    void testWaitingClientsAreServedInTurn() {
+        LlmAdmissionQueue queue = new LlmAdmissionQueue(1, 50, 5, 1000);
+        LlmAdmissionQueue.Ticket running = queue.admit("burst");
+        List<String> granted = new ArrayList<>();
+        Map<String, LlmAdmissionQueue.Ticket> tickets = new HashMap<>();
+        for (String name : List.of("burst-1", "burst-2", "burst-3")) {
+            tickets.put(name, grantedInto(queue.admit("burst"), name, granted));
+        }
+        tickets.put("web", grantedInto(queue.admit("web"), "web", granted));
+        tickets.put("mobile", grantedInto(queue.admit("mobile"), "mobile", granted));
+
+        // Each chat ends as soon as it got its slot, handing the slot to the next in turn
+        running.release();
+        for (int i = 0; i < tickets.size(); i++) {
+            tickets.get(granted.get(i)).release();
+        }
+
+        assertEquals(List.of("burst-1", "web", "mobile", "burst-2", "burst-3"), granted);
+        assertEquals(0, queue.getStats().get("running"));
+    }
+
+    @Test
+    void testSubKeysShareTheirClientsTurn() {
+        LlmAdmissionQueue queue = new LlmAdmissionQueue(1, 50, 4, 1000);
+        LlmAdmissionQueue.Ticket running = queue.admit("10.0.0.7");
+        List<String> granted = new ArrayList<>();
+        Map<String, LlmAdmissionQueue.Ticket> tickets = new HashMap<>();
+        tickets.put("web-1", grantedInto(queue.admit("10.0.0.7", "web"), "web-1", granted));
+        tickets.put("web-2", grantedInto(queue.admit("10.0.0.7", "web"), "web-2", granted));
+        tickets.put("mobile", grantedInto(queue.admit("10.0.0.7", "mobile"), "mobile", granted));
+        tickets.put("other", grantedInto(queue.admit("10.0.0.8"), "other", granted));
+        // A new sub-key gets no extra share of the queue
+        tickets.put("tablet", grantedInto(queue.admit("10.0.0.7", "tablet"), "tablet", granted));
+        assertThrows(LlmBusyException.class, () -> queue.admit("10.0.0.7", "fresh"));
+
+        running.release();
+        for (int i = 0; i < tickets.size(); i++) {
+            tickets.get(granted.get(i)).release();
+        }
+
+        assertEquals(List.of("web-1", "other", "mobile", "tablet", "web-2"), granted);
+        assertEquals(0, queue.getStats().get("queueDepth"));
+    }
+
+    @Test
+    void testOneClientCannotFillTheQueue() {
+        LlmAdmissionQueue queue = new LlmAdmissionQueue(1, 50, 2, 1000);
+        queue.admit("burst");
+        queue.admit("burst");
+        queue.admit("burst");
+
+        assertThrows(LlmBusyException.class, () -> queue.admit("burst"));
+        assertDoesNotThrow(() -> queue.admit("web"));
+        // No client id: all such requests share one turn
+        queue.admit(null);
+        queue.admit(" ");
+        assertThrows(LlmBusyException.class, () -> queue.admit(null));
+    }
+
+    @Test
+    void testWaitRunsOut() {
+        LlmAdmissionQueue queue = new LlmAdmissionQueue(1, 50, 5, 50);
+        queue.admit("a");
+        LlmAdmissionQueue.Ticket waiting = queue.admit("b");
+
+        assertThrows(LlmBusyException.class, waiting::await);
+        assertThrows(LlmBusyException.class, () -> queue.admit("c").whenGranted().block());
+
+        assertEquals(0, queue.getStats().get("queueDepth"));
+        assertEquals(2L, queue.getStats().get("timedOut"));
+    }
+
+    @Test
+    void testAbandonedWaitFreesItsPlace() {
+        LlmAdmissionQueue queue = new LlmAdmissionQueue(1, 50, 5, 1000);
+        LlmAdmissionQueue.Ticket running = queue.admit("a");
+        List<String> granted = new ArrayList<>();
+        LlmAdmissionQueue.Ticket gone = grantedInto(queue.admit("b"), "b", granted);
+        grantedInto(queue.admit("c"), "c", granted);
+
+        gone.release();
+        assertEquals(1, queue.getStats().get("queueDepth"));
+        running.release();
+
+        assertEquals(List.of("c"), granted);
+    }
+
+    @Test
+    void testWaitTimesAreRecorded() throws Exception {
+        LlmAdmissionQueue queue = new LlmAdmissionQueue(1, 50, 5, 1000);
+        LlmAdmissionQueue.Ticket running = queue.admit("a");
+        LlmAdmissionQueue.Ticket waiting = queue.admit("b");
+        Thread.sleep(30);
+        running.release();
+        waiting.await();
+
+        assertTrue((Long) queue.getStats().get("waitMsMax") >= 30);
+        assertEquals(0L, queue.getStats().get("waitMsP50"));
+        assertEquals(2L, queue.getStats().get("admitted"));
+    }
+
+    private static LlmAdmissionQueue.Ticket grantedInto(LlmAdmissionQueue.Ticket ticket, String name,
+            List<String> granted) {
+        ticket.whenGranted().subscribe(v -> {
+        }, e -> {
+        }, () -> granted.add(name));
+        return ticket;
+    }
+}
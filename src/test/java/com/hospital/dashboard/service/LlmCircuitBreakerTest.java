@@ -0,0 +1,85 @@
+package com.hospital.dashboard.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmCircuitBreakerTest {
+
+    private long now;
+    private final LlmCircuitBreaker breaker = new LlmCircuitBreaker(3, 1000, () -> now);
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        // A success in between starts the count again
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1L, breaker.getStats().get("opened"));
+        assertEquals(2L, breaker.getStats().get("rejected"));
+    }
+
+    @Test
+    void testHalfOpenLetsOneProbeThrough() {
+        open();
+
+        now = 999;
+        assertFalse(breaker.tryAcquire());
+        now = 1000;
+        assertTrue(breaker.tryAcquire());
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Only the probe goes out
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testFailedProbeOpensForAnotherPeriod() {
+        open();
+        now = 1000;
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        now = 1999;
+        assertFalse(breaker.tryAcquire());
+        now = 2000;
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testReleasedProbeLetsTheNextCallProbe() {
+        open();
+        now = 1000;
+        assertTrue(breaker.tryAcquire());
+
+        breaker.release();
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
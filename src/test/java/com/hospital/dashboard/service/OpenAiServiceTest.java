@@ -1,69 +1,271 @@
 package com.hospital.dashboard.service;
 
+import com.hospital.dashboard.config.LlmClientConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.http.HttpEntity;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
 class OpenAiServiceTest {
 
-    @Mock
-    private RestTemplate restTemplate;
+    private static final String MODELS = "{\"data\": [{\"id\": \"nomic-embed-text\"}, {\"id\": \"llama-3.1-8b\"}]}";
+    private static final String COMPLETION = "{\"choices\": [{\"message\": {\"content\": \"AI Response\"}}]}";
 
-    @InjectMocks
-    private OpenAiService openAiService;
+    private final OpenAiService openAiService = new OpenAiService();
+    private final List<String> requests = new ArrayList<>();
+    private final AtomicLong now = new AtomicLong();
+    private final LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(3, 30_000, now::get);
 
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(openAiService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(openAiService, "modelTtlMs", 300_000L);
+        ReflectionTestUtils.setField(openAiService, "discoveryTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(openAiService, "responseTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(openAiService, "circuitBreaker", circuitBreaker);
     }
 
     @Test
-    @SuppressWarnings("null")
     void testGetChatResponse_Success() {
-        Map<String, Object> responseBody = new HashMap<>();
-        Map<String, Object> choice = new HashMap<>();
-        Map<String, Object> message = new HashMap<>();
-        message.put("content", "AI Response");
-        choice.put("message", message);
-        responseBody.put("choices", Collections.singletonList(choice));
-
-        ResponseEntity<Map> responseEntity = ResponseEntity.ok(responseBody);
-
-        when(restTemplate.postForEntity(any(String.class), any(HttpEntity.class), eq(Map.class)))
-                .thenReturn(responseEntity);
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : json(HttpStatus.OK, COMPLETION));
 
         String result = openAiService.getChatResponse("Hello");
         assertEquals("AI Response", result);
+        // Embedding models are skipped
+        assertEquals("llama-3.1-8b", openAiService.currentModel());
     }
 
     @Test
-    @SuppressWarnings("null")
     void testGetChatResponse_QuotaExceeded() {
-        when(restTemplate.postForEntity(any(String.class), any(HttpEntity.class), eq(Map.class)))
-                .thenThrow(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)); // 429
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : json(HttpStatus.TOO_MANY_REQUESTS, "{}")); // 429
 
         String result = openAiService.getChatResponse("Hello");
         // Expect Fallback response
         assertTrue(result.contains("mode de secours") || result.contains("Info Secours"));
     }
+
+    @Test
+    void testModelIsDetectedOnceForManyChats() {
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : json(HttpStatus.OK, COMPLETION));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("AI Response", openAiService.getChatResponse("Hello"));
+        }
+
+        assertEquals(List.of("GET /v1/models", "POST /v1/chat/completions", "POST /v1/chat/completions",
+                "POST /v1/chat/completions"), requests);
+    }
+
+    @Test
+    void testExpiredModelIsRefreshedWithoutDelayingTheChat() {
+        ReflectionTestUtils.setField(openAiService, "modelTtlMs", 0L);
+        List<String> models = new ArrayList<>(List.of(MODELS, "{\"data\": [{\"id\": \"mistral-7b\"}]}"));
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK,
+                models.size() > 1 ? models.remove(0) : models.get(0))
+                : json(HttpStatus.OK, COMPLETION));
+
+        openAiService.getChatResponse("Hello");
+        // Still the cached id for this call, the refresh replaces it for the next ones
+        assertEquals("llama-3.1-8b", openAiService.currentModel());
+        assertEquals("mistral-7b", openAiService.currentModel());
+    }
+
+    @Test
+    void testDetectionFailureFallsBackToTheDefaultModel() {
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.INTERNAL_SERVER_ERROR, "{}")
+                : json(HttpStatus.OK, COMPLETION));
+
+        assertEquals("AI Response", openAiService.getChatResponse("Hello"));
+        assertEquals("local-model", openAiService.currentModel());
+    }
+
+    @Test
+    void testHungServerTimesOutToFallback() {
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : Mono.never());
+        ReflectionTestUtils.setField(openAiService, "responseTimeoutMs", 100L);
+
+        long start = System.currentTimeMillis();
+        String result = openAiService.getChatResponse("Hello");
+
+        assertTrue(result.contains("mode de secours") || result.contains("Info Secours"));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    void testStreamChatResponse() {
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : eventStream(Flux.just(
+                        "{\"choices\": [{\"delta\": {\"role\": \"assistant\"}}]}",
+                        "{\"choices\": [{\"delta\": {\"content\": \"Bon\"}}]}",
+                        "{\"choices\": [{\"delta\": {\"content\": \"jour\"}}]}",
+                        "[DONE]")));
+
+        assertEquals(List.of("Bon", "jour"), openAiService.streamChatResponse("Hello", null).collectList().block());
+    }
+
+    @Test
+    void testStreamFailingBeforeTheFirstTokenSendsTheFallback() {
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : json(HttpStatus.SERVICE_UNAVAILABLE, "{}"));
+
+        List<String> chunks = openAiService.streamChatResponse("Hello", null).collectList().block();
+
+        assertEquals(1, chunks.size());
+        assertTrue(chunks.get(0).contains("mode de secours"));
+    }
+
+    @Test
+    void testCancellingTheStreamCancelsTheUpstreamRequest() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : eventStream(Flux.concat(Flux.just("{\"choices\": [{\"delta\": {\"content\": \"Bon\"}}]}"),
+                        Flux.<String>never()).doOnCancel(() -> cancelled.set(true))));
+
+        // The client reads one token and goes away
+        assertEquals("Bon", openAiService.streamChatResponse("Hello", null).blockFirst());
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void testRefusedRequestsDoNotOpenTheBreaker() {
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : json(HttpStatus.BAD_REQUEST, "{\"error\": \"Model is not llm\"}"));
+
+        for (int i = 0; i < 5; i++) {
+            openAiService.getChatResponse("Hello");
+        }
+
+        assertEquals(LlmCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testProbeThatNeverWentOutIsHandedBack() {
+        server(request -> request.url().getPath().endsWith("/models") ? json(HttpStatus.OK, MODELS)
+                : json(HttpStatus.OK, COMPLETION));
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        now.set(30_000);
+
+        // The probe permit is taken, then building the request fails: no call, no verdict
+        assertThrows(NullPointerException.class, () -> openAiService.getChatResponse(null));
+        assertThrows(NullPointerException.class, () -> openAiService.streamChatResponse(null, null).blockFirst());
+        assertEquals(LlmCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // The next call probes the endpoint instead of being refused until restart
+        assertEquals("AI Response", openAiService.getChatResponse("Hello"));
+        assertEquals(LlmCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testBreakerAgainstAStubLlmServer() throws Exception {
+        AtomicBoolean healthy = new AtomicBoolean();
+        AtomicInteger completions = new AtomicInteger();
+        HttpServer llm = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        llm.createContext("/v1/models", exchange -> respond(exchange, 200, MODELS));
+        llm.createContext("/v1/chat/completions", exchange -> {
+            completions.incrementAndGet();
+            respond(exchange, healthy.get() ? 200 : 503, healthy.get() ? COMPLETION : "{}");
+        });
+        llm.start();
+        try {
+            WebClient webClient = new LlmClientConfig().llmWebClient(WebClient.builder(),
+                    "http://127.0.0.1:" + llm.getAddress().getPort() + "/v1", 4, 1000, 1000);
+            ReflectionTestUtils.setField(openAiService, "webClient", webClient);
+
+            // Three failed completions open the breaker, after which chat falls back without calling out
+            for (int i = 0; i < 10; i++) {
+                assertTrue(openAiService.getChatResponse("Hello").contains("mode de secours"));
+            }
+            assertEquals(3, completions.get());
+            assertEquals(LlmCircuitBreaker.State.OPEN, circuitBreaker.getState());
+            assertTrue(openAiService.streamChatResponse("Hello", null).blockFirst().contains("mode de secours"));
+            assertEquals(3, completions.get());
+
+            // The endpoint is back: once the open period is over, one probe closes the breaker again
+            healthy.set(true);
+            now.set(30_000);
+            assertEquals("AI Response", openAiService.getChatResponse("Hello"));
+            assertEquals(LlmCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+            assertEquals("AI Response", openAiService.getChatResponse("Hello"));
+            assertEquals(5, completions.get());
+
+        } finally {
+            llm.stop(0);
+        }
+
+        // Server gone: connection refused counts as a failure too
+        for (int i = 0; i < 5; i++) {
+            openAiService.getChatResponse("Hello");
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void server(Function<ClientRequest, Mono<ClientResponse>> handler) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:1234/v1")
+                .exchangeFunction(request -> {
+                    requests.add(request.method() + " " + request.url().getPath());
+                    return handler.apply(request);
+                })
+                .build();
+        ReflectionTestUtils.setField(openAiService, "webClient", webClient);
+    }
+
+    private static Mono<ClientResponse> json(HttpStatus status, String body) {
+        return Mono.just(ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+
+    private static Mono<ClientResponse> eventStream(Flux<String> events) {
+        Flux<DataBuffer> body = events.map(data -> DefaultDataBufferFactory.sharedInstance
+                .wrap(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8)));
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .body(body)
+                .build());
+    }
 }
@@ -1,5 +1,8 @@
 package com.hospital.dashboard.service;
 
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.dto.StayRevenueSummary;
+import com.hospital.dashboard.dto.StaySpan;
 import com.hospital.dashboard.model.HospitalStay;
 import com.hospital.dashboard.repository.HospitalStayRepository;
 import org.junit.jupiter.api.Test;
@@ -10,10 +13,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,13 +32,19 @@ class RevenueServiceTest {
 
     @Test
     void testCalculateTotalRevenue_Empty() {
-        when(stayRepository.findAll()).thenReturn(Collections.emptyList());
+        when(stayRepository.sumRevenue()).thenReturn(null);
         BigDecimal total = revenueService.calculateTotalRevenue();
         assertEquals(BigDecimal.ZERO, total);
     }
 
     @Test
     void testCalculateTotalRevenue_WithData() {
+        when(stayRepository.sumRevenue()).thenReturn(BigDecimal.valueOf(600));
+        assertEquals(BigDecimal.valueOf(600), revenueService.calculateTotalRevenue());
+    }
+
+    @Test
+    void testCalculateStayRevenue() {
         HospitalStay stay1 = new HospitalStay();
         stay1.setStartDate(LocalDate.of(2023, 1, 1));
         stay1.setEndDate(LocalDate.of(2023, 1, 5)); // 4 days
@@ -47,14 +58,106 @@ class RevenueServiceTest {
         // Null checks
         HospitalStay stay3 = new HospitalStay();
 
-        when(stayRepository.findAll()).thenReturn(Arrays.asList(stay1, stay2, stay3));
-
-        BigDecimal total = revenueService.calculateTotalRevenue();
-
         // Stay1: 4 * 100 = 400
         // Stay2: 1 * 200 = 200
         // Stay3: 0
-        // Total: 600
-        assertEquals(BigDecimal.valueOf(600), total);
+        assertEquals(BigDecimal.valueOf(400), revenueService.calculateStayRevenue(stay1));
+        assertEquals(BigDecimal.valueOf(200), revenueService.calculateStayRevenue(stay2));
+        assertEquals(BigDecimal.ZERO, revenueService.calculateStayRevenue(stay3));
+
+        // Projections follow the same rule as entities
+        StaySpan span = new StaySpan(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 5), BigDecimal.valueOf(100));
+        assertEquals(BigDecimal.valueOf(400), revenueService.calculateStayRevenue(span));
+    }
+
+    @Test
+    void testApportionByDay() {
+        LocalDate day = LocalDate.of(2023, 1, 1);
+        List<DailyCost> days = revenueService.apportionByDay(Arrays.asList(
+                new StaySpan(day, day.plusDays(3), BigDecimal.valueOf(100)), // Nights of the 1st, 2nd and 3rd
+                new StaySpan(day.plusDays(2), day.plusDays(2), BigDecimal.valueOf(50)), // Same day: 1 day billed
+                new StaySpan(day.plusDays(5), day.plusDays(6), BigDecimal.valueOf(70)),
+                new StaySpan(day, null, BigDecimal.valueOf(999)))); // Not billable
+
+        assertEquals(Arrays.asList(
+                new DailyCost(day, new BigDecimal("100.00"), 1L),
+                new DailyCost(day.plusDays(1), new BigDecimal("100.00"), 1L),
+                new DailyCost(day.plusDays(2), new BigDecimal("150.00"), 2L),
+                new DailyCost(day.plusDays(5), new BigDecimal("70.00"), 1L)), days);
+    }
+
+    @Test
+    void testApportionByDay_MatchesStayRevenue() {
+        List<StaySpan> spans = new ArrayList<>();
+        LocalDate origin = LocalDate.of(2023, 1, 1);
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 1000; i++) {
+            StaySpan span = new StaySpan(origin.plusDays(i % 97), origin.plusDays(i % 97 + i % 13),
+                    BigDecimal.valueOf(10 + i % 7));
+            spans.add(span);
+            expected = expected.add(revenueService.calculateStayRevenue(span));
+        }
+
+        BigDecimal apportioned = BigDecimal.ZERO;
+        for (DailyCost day : revenueService.apportionByDay(spans)) {
+            apportioned = apportioned.add(day.total());
+        }
+        assertEquals(0, expected.compareTo(apportioned));
+    }
+
+    @Test
+    void testApportionByDay_ClipsToRange() {
+        LocalDate day = LocalDate.of(2023, 1, 1);
+        List<DailyCost> days = revenueService.apportionByDay(
+                Arrays.asList(new StaySpan(day, day.plusDays(10), BigDecimal.valueOf(100))),
+                day.plusDays(8), day.plusDays(20));
+
+        assertEquals(2, days.size());
+        assertEquals(day.plusDays(8), days.get(0).day());
+        assertEquals(day.plusDays(9), days.get(1).day());
+        assertTrue(revenueService.apportionByDay(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    void testSummarize() {
+        LocalDate day = LocalDate.of(2023, 1, 1);
+        List<StaySpan> spans = Arrays.asList(
+                new StaySpan(day, day.plusDays(4), new BigDecimal("100.50")),
+                new StaySpan(day.plusMonths(1), day.plusMonths(1), BigDecimal.valueOf(200)),
+                new StaySpan(day.plusMonths(1), day.plusMonths(1).plusDays(2), null)); // Counted, no revenue
+
+        StayRevenueSummary<Integer> summary = revenueService.summarize(spans.stream(),
+                span -> span.startDate().getMonthValue());
+
+        assertEquals(new BigDecimal("602.00"), summary.total());
+        assertEquals(3, summary.stays());
+        assertEquals(new BigDecimal("402.00"), summary.buckets().get(1));
+        assertEquals(new BigDecimal("200.00"), summary.buckets().get(2));
+
+        // Same totals as one call per stay
+        BigDecimal perStay = BigDecimal.ZERO;
+        for (StaySpan span : spans) {
+            perStay = perStay.add(revenueService.calculateStayRevenue(span));
+        }
+        assertEquals(0, perStay.compareTo(revenueService.summarize(spans).total()));
+        assertTrue(revenueService.summarize(spans).buckets().isEmpty());
+    }
+
+    @Test
+    void testStayEndingBeforeItStartsBillsNothing() {
+        LocalDate day = LocalDate.of(2023, 1, 10);
+        StaySpan reversed = new StaySpan(day, day.minusDays(3), BigDecimal.valueOf(100));
+        List<StaySpan> spans = Arrays.asList(reversed, new StaySpan(day, day.plusDays(2), BigDecimal.valueOf(50)));
+
+        assertEquals(BigDecimal.ZERO, revenueService.calculateStayRevenue(reversed));
+        // Every path agrees: per stay, batch summary and apportioned by day
+        StayRevenueSummary<Void> summary = revenueService.summarize(spans);
+        assertEquals(new BigDecimal("100.00"), summary.total());
+        assertEquals(2, summary.stays());
+        BigDecimal apportioned = BigDecimal.ZERO;
+        for (DailyCost cost : revenueService.apportionByDay(spans)) {
+            apportioned = apportioned.add(cost.total());
+        }
+        assertEquals(0, summary.total().compareTo(apportioned));
     }
 }
@@ -0,0 +1,141 @@
+package com.hospital.dashboard.service;
+
+import com.hospital.dashboard.dto.StayInterval;
+import com.hospital.dashboard.model.HospitalStay;
+import com.hospital.dashboard.repository.HospitalStayRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StayIntervalIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @Mock
+    private HospitalStayRepository stayRepository;
+
+    @InjectMocks
+    private StayIntervalIndex index;
+
+    @Test
+    void testOverlapStabbingAndCountBounds() {
+        when(stayRepository.findAllIntervals()).thenReturn(List.of(
+                interval(1L, 0, 4),
+                interval(2L, 5, 5),
+                interval(3L, 10, 20),
+                // Ends before it starts: not a stay the index can place
+                interval(4L, 8, 6)));
+
+        assertEquals(List.of(1L), ids(index.occupiedOn(DAY.plusDays(4))));
+        assertEquals(List.of(2L), ids(index.occupiedOn(DAY.plusDays(5))));
+        assertEquals(List.of(), ids(index.occupiedOn(DAY.plusDays(7))));
+        assertEquals(List.of(1L, 2L, 3L), ids(index.overlapping(DAY.plusDays(4), DAY.plusDays(10))));
+        assertEquals(3, index.countOverlapping(DAY.plusDays(4), DAY.plusDays(10)));
+        assertEquals(0, index.countOverlapping(DAY.plusDays(21), DAY.plusDays(30)));
+        assertEquals(3, index.size());
+        // Loaded once, on first use
+        verify(stayRepository, times(1)).findAllIntervals();
+    }
+
+    @Test
+    void testWritesAreAppliedWithoutReloading() {
+        when(stayRepository.findAllIntervals()).thenReturn(List.of(interval(1L, 0, 4), interval(2L, 10, 12)));
+        index.size();
+
+        index.add(stay(3L, 3, 6));
+        index.add(stay(2L, 1, 2));
+        index.remove(1L);
+        // Losing a date takes a stay out
+        HospitalStay undated = stay(3L, 3, 6);
+        undated.setEndDate(null);
+        index.add(stay(5L, 20, 21));
+        index.add(undated);
+
+        assertEquals(List.of(2L), ids(index.overlapping(DAY, DAY.plusDays(12))));
+        assertEquals(1, index.countOverlapping(DAY, DAY.plusDays(12)));
+        assertEquals(List.of(5L), ids(index.occupiedOn(DAY.plusDays(20))));
+        assertEquals(2, index.size());
+        verify(stayRepository, times(1)).findAllIntervals();
+    }
+
+    @Test
+    void testMatchesALinearScanAcrossRebuilds() {
+        Random random = new Random(42);
+        Map<Long, StayInterval> expected = new HashMap<>();
+        List<StayInterval> initial = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            StayInterval interval = randomInterval(random, id);
+            initial.add(interval);
+            expected.put(id, interval);
+        }
+        when(stayRepository.findAllIntervals()).thenReturn(initial);
+
+        // Enough writes to fold the pending ones into the sorted array more than once
+        for (int i = 0; i < 3 * StayIntervalIndex.PENDING_LIMIT; i++) {
+            long id = 1 + random.nextInt(2500);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                expected.remove(id);
+            } else {
+                StayInterval interval = randomInterval(random, id);
+                index.add(stay(id, interval.startDate(), interval.endDate()));
+                expected.put(id, interval);
+            }
+            if (i % 97 == 0)
+                assertQueries(random, expected);
+        }
+        assertQueries(random, expected);
+        assertEquals(expected.size(), index.size());
+    }
+
+    private void assertQueries(Random random, Map<Long, StayInterval> expected) {
+        LocalDate from = DAY.plusDays(random.nextInt(400) - 20);
+        LocalDate to = from.plusDays(random.nextInt(40));
+        List<Long> overlapping = expected.values().stream()
+                .filter(i -> !i.startDate().isAfter(to) && !i.endDate().isBefore(from))
+                .map(StayInterval::id).sorted().toList();
+
+        assertEquals(overlapping, ids(index.overlapping(from, to)));
+        assertEquals(overlapping.size(), index.countOverlapping(from, to));
+        assertEquals(expected.values().stream()
+                .filter(i -> !i.startDate().isAfter(from) && !i.endDate().isBefore(from))
+                .map(StayInterval::id).sorted().toList(), ids(index.occupiedOn(from)));
+    }
+
+    private static StayInterval randomInterval(Random random, long id) {
+        LocalDate start = DAY.plusDays(random.nextInt(365));
+        return new StayInterval(id, start, start.plusDays(random.nextInt(30)), BigDecimal.TEN);
+    }
+
+    private static StayInterval interval(Long id, int startDay, int endDay) {
+        return new StayInterval(id, DAY.plusDays(startDay), DAY.plusDays(endDay), BigDecimal.TEN);
+    }
+
+    private static HospitalStay stay(Long id, int startDay, int endDay) {
+        return stay(id, DAY.plusDays(startDay), DAY.plusDays(endDay));
+    }
+
+    private static HospitalStay stay(Long id, LocalDate start, LocalDate end) {
+        return new HospitalStay(id, null, start, end, BigDecimal.TEN, "Flu");
+    }
+
+    private static List<Long> ids(List<StayInterval> intervals) {
+        return intervals.stream().map(StayInterval::id).sorted().toList();
+    }
+}
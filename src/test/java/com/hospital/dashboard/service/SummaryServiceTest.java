@@ -0,0 +1,103 @@
+package com.hospital.dashboard.service;
+
+import com.hospital.dashboard.dto.ConsumableSummary;
+import com.hospital.dashboard.dto.MedicalActSummary;
+import com.hospital.dashboard.dto.StaySummary;
+import com.hospital.dashboard.model.Medication;
+import com.hospital.dashboard.model.Patient;
+import com.hospital.dashboard.repository.ConsumableRepository;
+import com.hospital.dashboard.repository.HospitalStayRepository;
+import com.hospital.dashboard.repository.MedicalActRepository;
+import com.hospital.dashboard.repository.MedicationRepository;
+import com.hospital.dashboard.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryServiceTest {
+
+    @Mock
+    private ConsumableRepository consumableRepository;
+    @Mock
+    private MedicalActRepository medicalActRepository;
+    @Mock
+    private HospitalStayRepository stayRepository;
+    @Mock
+    private PatientRepository patientRepository;
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @InjectMocks
+    private SummaryService summaryService;
+
+    private final Patient jane = new Patient(4L, "Jane", "Doe", "1", LocalDate.of(1980, 1, 1));
+
+    @Test
+    void testConsumables_NoExpandReadsOnlyTheProjection() {
+        List<ConsumableSummary> rows = List.of(consumable(1L, 3L, 4L));
+        when(consumableRepository.findSummaries()).thenReturn(rows);
+
+        assertSame(rows, summaryService.consumables(Set.of()));
+        verifyNoInteractions(patientRepository, medicationRepository);
+    }
+
+    @Test
+    void testConsumables_ExpandLoadsEachKindOnce() {
+        Medication paracetamol = new Medication(3L, "Paracetamol", "Analgesic", BigDecimal.ONE, 10, "box");
+        when(consumableRepository.findSummaries())
+                .thenReturn(List.of(consumable(1L, 3L, 4L), consumable(2L, 3L, 4L), consumable(3L, null, null)));
+        when(medicationRepository.findAllById(Set.of(3L))).thenReturn(List.of(paracetamol));
+        when(patientRepository.findAllById(Set.of(4L))).thenReturn(List.of(jane));
+
+        List<ConsumableSummary> rows = summaryService.consumables(Set.of("patient", "medication"));
+
+        assertSame(paracetamol, rows.get(0).medication());
+        assertSame(jane, rows.get(1).patient());
+        assertNull(rows.get(2).medication());
+        assertNull(rows.get(2).patient());
+        assertEquals("Paracetamol", rows.get(0).medicationName());
+    }
+
+    @Test
+    void testConsumables_ExpandPatientOnly() {
+        when(consumableRepository.findSummaries()).thenReturn(List.of(consumable(1L, 3L, 4L)));
+        when(patientRepository.findAllById(Set.of(4L))).thenReturn(List.of(jane));
+
+        ConsumableSummary row = summaryService.consumables(Set.of("patient")).get(0);
+
+        assertSame(jane, row.patient());
+        assertNull(row.medication());
+        verifyNoInteractions(medicationRepository);
+    }
+
+    @Test
+    void testMedicalActsAndStays_ExpandPatient() {
+        when(medicalActRepository.findSummaries()).thenReturn(List.of(
+                new MedicalActSummary(1L, "Scan", null, "Dr. House", BigDecimal.TEN, 4L, "Jane", "Doe")));
+        when(stayRepository.findSummaries()).thenReturn(List.of(
+                new StaySummary(1L, null, null, BigDecimal.TEN, "Flu", 4L, "Jane", "Doe")));
+        when(patientRepository.findAllById(Set.of(4L))).thenReturn(List.of(jane));
+
+        assertSame(jane, summaryService.medicalActs(Set.of("patient")).get(0).patient());
+        assertSame(jane, summaryService.stays(Set.of("patient")).get(0).patient());
+        assertNull(summaryService.stays(Set.of()).get(0).patient());
+        verify(patientRepository, times(2)).findAllById(Set.of(4L));
+    }
+
+    private static ConsumableSummary consumable(Long id, Long medicationId, Long patientId) {
+        return new ConsumableSummary(id, LocalDate.of(2024, 1, 1), 1, BigDecimal.ONE, medicationId,
+                medicationId != null ? "Paracetamol" : null, patientId, patientId != null ? "Jane" : null,
+                patientId != null ? "Doe" : null);
+    }
+}
@@ -0,0 +1,57 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BacktesterTest {
+
+    private final Backtester backtester = new Backtester(List.of(new LinearSeasonalModel(), new HoltModel(),
+            new HoltWintersModel(), new SeasonalNaiveModel()), 14, 4, 2);
+
+    @AfterEach
+    void tearDown() {
+        backtester.shutdown();
+    }
+
+    @Test
+    void testPicksSeasonalModelOnWeeklyPattern() {
+        TimeSeries history = weeklyPattern(200);
+
+        ModelSelection selection = backtester.select(history);
+
+        assertEquals("holt-winters", selection.model());
+        assertEquals(4, selection.scores().size());
+        assertTrue(selection.scores().get("holt-winters") < selection.scores().get("holt"));
+        // Next day is a Friday (200 days after a Monday): 100 + 0.5 * 200
+        assertEquals(200, selection.forecaster().predict(history.origin() + 200), 1.0);
+    }
+
+    @Test
+    void testShortHistoryKeepsDefaultModel() {
+        ModelSelection selection = backtester.select(weeklyPattern(20));
+
+        assertEquals(LinearSeasonalModel.NAME, selection.model());
+        assertNull(selection.forecaster());
+        assertTrue(selection.scores().isEmpty());
+    }
+
+    @Test
+    void testEmptyHistoryKeepsDefaultModel() {
+        assertEquals(LinearSeasonalModel.NAME, backtester.select(TimeSeries.empty(true)).model());
+    }
+
+    /** Weekdays cost 100, weekends 20, plus 0.5 per day of trend, starting on a Monday. */
+    static TimeSeries weeklyPattern(int days) {
+        TimeSeries series = new TimeSeries(true, LocalDate.of(2024, 1, 1).toEpochDay(), days);
+        for (int i = 0; i < days; i++) {
+            long day = series.origin() + i;
+            series.add(day, (TimeSeries.dayOfWeekIndex(day) >= 5 ? 20 : 100) + i * 0.5);
+        }
+        return series;
+    }
+}
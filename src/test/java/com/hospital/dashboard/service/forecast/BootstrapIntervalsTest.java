@@ -0,0 +1,82 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BootstrapIntervalsTest {
+
+    private final BootstrapIntervals intervals = new BootstrapIntervals(1000, 5000, 2);
+
+    @AfterEach
+    void tearDown() {
+        intervals.shutdown();
+    }
+
+    @Test
+    void testIntervalsSurroundForecast() {
+        double[] residuals = new double[60];
+        Random random = new Random(7);
+        for (int i = 0; i < residuals.length; i++) {
+            residuals[i] = random.nextGaussian() * 10;
+        }
+
+        BootstrapIntervals.Result result = intervals.compute(List.of(
+                new BootstrapIntervals.Path(100, new double[] { 100, 100, 100 }, residuals),
+                new BootstrapIntervals.Path(101, new double[] { 50, 50 }, new double[0])));
+
+        assertTrue(result.available());
+        assertFalse(result.degraded());
+        assertEquals(1000, result.resamples());
+        assertEquals(100, result.firstPeriod());
+        assertEquals(3, result.low().length);
+        for (int i = 0; i < 3; i++) {
+            double point = i == 0 ? 100 : 150;
+            assertTrue(result.low()[i] < point && point < result.high()[i]);
+            // Roughly +/- 1.28 standard deviations of the residuals
+            assertEquals(25, result.high()[i] - result.low()[i], 10);
+        }
+        assertTrue(result.totalLow() < 400 && 400 < result.totalHigh());
+    }
+
+    @Test
+    void testNoResidualsGiveNoSpread() {
+        BootstrapIntervals.Result result = intervals.compute(List.of(
+                new BootstrapIntervals.Path(0, new double[] { 10, 20 }, new double[0])));
+
+        assertArrayEquals(new double[] { 10, 20 }, result.low());
+        assertArrayEquals(new double[] { 10, 20 }, result.high());
+        assertEquals(30, result.totalLow());
+        assertEquals(30, result.totalHigh());
+    }
+
+    @Test
+    void testTimeBudgetDegradesGracefully() {
+        BootstrapIntervals tight = new BootstrapIntervals(10_000, 0, 1);
+        double[] forecast = new double[120];
+        Arrays.fill(forecast, 100);
+
+        BootstrapIntervals.Result result = tight.compute(List.of(
+                new BootstrapIntervals.Path(0, forecast, new double[] { -5, 5 })));
+        tight.shutdown();
+
+        assertTrue(result.degraded());
+        assertFalse(result.available());
+        assertEquals(10_000, result.requested());
+    }
+
+    @Test
+    void testNoForecastGivesNoInterval() {
+        BootstrapIntervals.Result result = intervals.compute(List.of(
+                new BootstrapIntervals.Path(0, new double[0], new double[] { -5, 5 })));
+
+        assertFalse(result.available());
+        assertFalse(result.degraded());
+        assertFalse(intervals.compute(List.of()).available());
+    }
+}
@@ -0,0 +1,60 @@
+package com.hospital.dashboard.service.forecast;
+
+import com.hospital.dashboard.dto.DailyCost;
+import com.hospital.dashboard.model.CostCategory;
+import com.hospital.dashboard.repository.DailyCostRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ForecastModelsTest {
+
+    @Mock
+    private DailyCostRollupRepository rollupRepository;
+
+    @InjectMocks
+    private ForecastModels forecastModels;
+
+    @Test
+    void testRecomputeReplacesIncrementalState() {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        forecastModels.apply(CostCategory.ACTS, day, BigDecimal.valueOf(999), 1);
+
+        when(rollupRepository.findDailyTotals(CostCategory.ACTS))
+                .thenReturn(List.of(new DailyCost(day, BigDecimal.valueOf(100), 2L)));
+        when(rollupRepository.findDailyTotals(CostCategory.CONSUMABLES)).thenReturn(Collections.emptyList());
+        when(rollupRepository.findDailyTotals(CostCategory.STAYS)).thenReturn(Collections.emptyList());
+
+        forecastModels.recompute();
+
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(forecastModels.fit(CostCategory.ACTS, day).total()));
+    }
+
+    @Test
+    void testDeltaDuringRecomputeIsKept() {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+
+        // Committed after the rollup was read, before the refitted state is swapped in
+        when(rollupRepository.findDailyTotals(CostCategory.ACTS)).thenAnswer(invocation -> {
+            forecastModels.apply(CostCategory.ACTS, day, BigDecimal.valueOf(40), 1);
+            return List.of(new DailyCost(day, BigDecimal.valueOf(100), 2L));
+        });
+        when(rollupRepository.findDailyTotals(CostCategory.CONSUMABLES)).thenReturn(Collections.emptyList());
+        when(rollupRepository.findDailyTotals(CostCategory.STAYS)).thenReturn(Collections.emptyList());
+
+        forecastModels.recompute();
+
+        assertEquals(0, BigDecimal.valueOf(140).compareTo(forecastModels.fit(CostCategory.ACTS, day).total()));
+    }
+}
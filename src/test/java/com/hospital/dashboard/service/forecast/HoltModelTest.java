@@ -0,0 +1,22 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HoltModelTest {
+
+    @Test
+    void testFollowsLinearTrend() {
+        TimeSeries history = new TimeSeries(true, 0, 30);
+        for (int i = 0; i < 30; i++) {
+            history.add(i, 50 + 2 * i);
+        }
+
+        Forecaster forecaster = new HoltModel().fit(history);
+
+        assertEquals(50 + 2 * 30, forecaster.predict(30), 1e-6);
+        assertEquals(50 + 2 * 39, forecaster.predict(39), 1e-6);
+        assertEquals(50 + 2 * 10, forecaster.predict(10), 1e-6); // One-step fitted value
+    }
+}
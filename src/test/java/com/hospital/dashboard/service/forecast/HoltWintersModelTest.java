@@ -0,0 +1,24 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HoltWintersModelTest {
+
+    @Test
+    void testReproducesWeeklySeason() {
+        TimeSeries history = BacktesterTest.weeklyPattern(70);
+
+        Forecaster forecaster = new HoltWintersModel().fit(history);
+
+        // Day 70 is a Monday, day 75 a Saturday
+        assertEquals(100 + 0.5 * 70, forecaster.predict(history.origin() + 70), 1.0);
+        assertEquals(20 + 0.5 * 75, forecaster.predict(history.origin() + 75), 1.0);
+    }
+
+    @Test
+    void testNeedsTwoWeeks() {
+        assertEquals(14, new HoltWintersModel().minHistory());
+    }
+}
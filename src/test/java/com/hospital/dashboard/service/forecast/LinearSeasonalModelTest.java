@@ -0,0 +1,32 @@
+package com.hospital.dashboard.service.forecast;
+
+import com.hospital.dashboard.dto.DailyCost;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LinearSeasonalModelTest {
+
+    @Test
+    void testMatchesOnlineModel() {
+        TimeSeries history = BacktesterTest.weeklyPattern(60);
+        List<DailyCost> days = new ArrayList<>();
+        for (int i = 0; i < history.length(); i++) {
+            days.add(new DailyCost(LocalDate.ofEpochDay(history.period(i)), BigDecimal.valueOf(history.value(i)), 1L));
+        }
+        OnlineRegressionModel online = new OnlineRegressionModel();
+        online.reset(days);
+
+        Forecaster forecaster = new LinearSeasonalModel().fit(history);
+        OnlineRegressionModel.Fit fit = online.fit(LocalDate.ofEpochDay(history.origin()));
+
+        long day = history.origin() + 65;
+        double expected = fit.predict(day) * fit.weekdayIndices()[TimeSeries.dayOfWeekIndex(day)];
+        assertEquals(expected, forecaster.predict(day), 1e-6);
+    }
+}
@@ -0,0 +1,127 @@
+package com.hospital.dashboard.service.forecast;
+
+import com.hospital.dashboard.dto.DailyCost;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnlineRegressionModelTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void testMatchesBatchRegression() {
+        Random random = new Random(42);
+        OnlineRegressionModel model = new OnlineRegressionModel();
+        SimpleRegression regression = new SimpleRegression();
+
+        for (int day = 0; day < 400; day++) {
+            if (random.nextInt(5) == 0)
+                continue; // Days without costs
+            double cost = 100 + day * 0.5 + random.nextInt(50);
+            model.apply(START.plusDays(day), BigDecimal.valueOf(cost), 1);
+            regression.addData(START.plusDays(day).toEpochDay(), cost);
+        }
+
+        OnlineRegressionModel.Fit fit = model.fit(START);
+        assertEquals(regression.getSlope(), fit.slope(), 1e-9);
+        long day = START.plusDays(450).toEpochDay();
+        assertEquals(regression.predict(day), fit.predict(day), 1e-6);
+    }
+
+    @Test
+    void testBackdatedEditAndDeleteAreExact() {
+        OnlineRegressionModel incremental = new OnlineRegressionModel();
+        incremental.apply(START.plusDays(10), BigDecimal.valueOf(100), 1);
+        incremental.apply(START.plusDays(11), BigDecimal.valueOf(120), 1);
+        incremental.apply(START.plusDays(12), BigDecimal.valueOf(90), 1);
+
+        // Backdated insert before the first day, edit of day 11, delete of the last day
+        incremental.apply(START, BigDecimal.valueOf(80), 1);
+        incremental.apply(START.plusDays(11), BigDecimal.valueOf(-120), -1);
+        incremental.apply(START.plusDays(11), BigDecimal.valueOf(150), 1);
+        incremental.apply(START.plusDays(12), BigDecimal.valueOf(-90), -1);
+
+        OnlineRegressionModel exact = new OnlineRegressionModel();
+        exact.reset(List.of(
+                new DailyCost(START, BigDecimal.valueOf(80), 1L),
+                new DailyCost(START.plusDays(10), BigDecimal.valueOf(100), 1L),
+                new DailyCost(START.plusDays(11), BigDecimal.valueOf(150), 1L)));
+
+        OnlineRegressionModel.Fit a = incremental.fit(START);
+        OnlineRegressionModel.Fit b = exact.fit(START);
+        long day = START.plusDays(20).toEpochDay();
+        assertEquals(b.predict(day), a.predict(day), 1e-9);
+        assertArrayEquals(b.weekdayIndices(), a.weekdayIndices(), 1e-9);
+        assertEquals(START.plusDays(11).toEpochDay(), a.lastDay());
+        assertEquals(0, BigDecimal.valueOf(330).compareTo(a.total()));
+        assertEquals(3, a.window().presentCount());
+    }
+
+    @Test
+    void testDeltaOrderDoesNotMatter() {
+        List<Object[]> deltas = new ArrayList<>();
+        deltas.add(new Object[] { START, 100, 1 });
+        deltas.add(new Object[] { START.plusDays(1), 50, 1 });
+        deltas.add(new Object[] { START, -100, -1 });
+        deltas.add(new Object[] { START, 30, 1 });
+        deltas.add(new Object[] { START.plusDays(3), 70, 1 });
+
+        OnlineRegressionModel inOrder = new OnlineRegressionModel();
+        deltas.forEach(d -> inOrder.apply((LocalDate) d[0], BigDecimal.valueOf((Integer) d[1]), (Integer) d[2]));
+        Collections.reverse(deltas);
+        OnlineRegressionModel reversed = new OnlineRegressionModel();
+        deltas.forEach(d -> reversed.apply((LocalDate) d[0], BigDecimal.valueOf((Integer) d[1]), (Integer) d[2]));
+
+        long day = START.plusDays(7).toEpochDay();
+        assertEquals(inOrder.fit(START).predict(day), reversed.fit(START).predict(day), 1e-9);
+        assertEquals(inOrder.fit(START).lastDay(), reversed.fit(START).lastDay());
+    }
+
+    @Test
+    void testFitWindowOnlyHoldsDaysShown() {
+        OnlineRegressionModel model = new OnlineRegressionModel();
+        for (int day = 0; day < 100; day++) {
+            model.apply(START.plusDays(day), BigDecimal.TEN, 1);
+        }
+
+        OnlineRegressionModel.Fit fit = model.fit(START.plusDays(90));
+
+        assertEquals(10, fit.window().length());
+        assertEquals(START.plusDays(90).toEpochDay(), fit.window().origin());
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(fit.total()));
+    }
+
+    @Test
+    void testSnapshotAndRestore() {
+        OnlineRegressionModel model = new OnlineRegressionModel();
+        model.apply(START, BigDecimal.valueOf(100), 1);
+        model.apply(START.plusDays(1), BigDecimal.valueOf(200), 1);
+        OnlineRegressionModel.Snapshot snapshot = model.snapshot();
+        double expected = model.fit(START).predict(START.plusDays(5).toEpochDay());
+
+        model.apply(START.plusDays(2), BigDecimal.valueOf(1000), 1);
+        assertNotEquals(expected, model.fit(START).predict(START.plusDays(5).toEpochDay()));
+
+        model.restore(snapshot);
+        assertEquals(expected, model.fit(START).predict(START.plusDays(5).toEpochDay()), 1e-9);
+        assertEquals(START.plusDays(1).toEpochDay(), model.fit(START).lastDay());
+    }
+
+    @Test
+    void testFewerThanTwoDaysHasNoSlope() {
+        OnlineRegressionModel model = new OnlineRegressionModel();
+        model.apply(START, BigDecimal.TEN, 1);
+
+        assertTrue(Double.isNaN(model.fit(START).slope()));
+        assertEquals(-1, new OnlineRegressionModel().fit(START).lastDay());
+    }
+}
@@ -0,0 +1,24 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SeasonalNaiveModelTest {
+
+    @Test
+    void testRepeatsLastWeek() {
+        TimeSeries history = new TimeSeries(true, 0, 10);
+        for (int i = 0; i < 10; i++) {
+            history.add(i, i);
+        }
+
+        Forecaster forecaster = new SeasonalNaiveModel().fit(history);
+
+        // Last week observed is days 3..9
+        assertEquals(3, forecaster.predict(10));
+        assertEquals(9, forecaster.predict(16));
+        assertEquals(3, forecaster.predict(17));
+        assertEquals(1, forecaster.predict(8)); // Inside the history: same weekday one week before
+    }
+}
@@ -0,0 +1,66 @@
+package com.hospital.dashboard.service.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesTest {
+
+    @Test
+    void testDailyBuckets() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        TimeSeries series = new TimeSeries(true, start.toEpochDay(), 5);
+        series.add(start.toEpochDay(), 100);
+        series.add(start.plusDays(4).toEpochDay(), 40);
+        series.add(start.plusDays(4).toEpochDay(), 60);
+
+        assertEquals(2, series.presentCount());
+        assertFalse(series.isPresent(1));
+        assertEquals(100, series.value(4));
+        assertEquals(100, series.mean());
+        assertEquals(start.plusDays(4).toEpochDay(), series.lastPeriod());
+    }
+
+    @Test
+    void testMonthPeriodsAndLabels() {
+        long december = TimeSeries.periodOf(LocalDate.of(2023, 12, 15), false);
+
+        assertEquals("2023-12", TimeSeries.labelOf(december, false));
+        assertEquals("2024-01", TimeSeries.labelOf(december + 1, false));
+        assertEquals(LocalDate.of(2024, 1, 1), TimeSeries.dateOf(december + 1, false));
+        assertEquals("2024-02-29", TimeSeries.labelOf(LocalDate.of(2024, 2, 29).toEpochDay(), true));
+    }
+
+    @Test
+    void testDayOfWeekIndexMatchesLocalDate() {
+        for (int i = 0; i < 14; i++) {
+            LocalDate date = LocalDate.of(2024, 3, 1).plusDays(i);
+            assertEquals(date.getDayOfWeek().ordinal(), TimeSeries.dayOfWeekIndex(date.toEpochDay()));
+        }
+    }
+
+    @Test
+    void testWeekdayIndices() {
+        LocalDate monday = LocalDate.of(2024, 1, 1);
+        TimeSeries series = new TimeSeries(true, monday.toEpochDay(), 2);
+        series.add(monday.toEpochDay(), 300);
+        series.add(monday.plusDays(1).toEpochDay(), 100);
+
+        double[] indices = series.weekdayIndices();
+
+        assertEquals(1.5, indices[0], 1e-9);
+        assertEquals(0.5, indices[1], 1e-9);
+        assertEquals(1.0, indices[6], 1e-9); // No Sunday data: neutral
+    }
+
+    @Test
+    void testEmpty() {
+        TimeSeries series = TimeSeries.empty(true);
+
+        assertTrue(series.isEmpty());
+        assertEquals(-1, series.lastPeriod());
+        assertEquals(0, series.mean());
+    }
+}